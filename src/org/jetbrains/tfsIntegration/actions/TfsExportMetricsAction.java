@@ -0,0 +1,44 @@
+package org.jetbrains.tfsIntegration.actions;
+
+import com.intellij.openapi.actionSystem.AnActionEvent;
+import com.intellij.openapi.fileChooser.FileChooserFactory;
+import com.intellij.openapi.fileChooser.FileSaverDescriptor;
+import com.intellij.openapi.project.DumbAwareAction;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.ui.Messages;
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.openapi.util.io.FileUtilRt;
+import com.intellij.openapi.vfs.VirtualFileWrapper;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.tfsIntegration.core.TFSBundle;
+import org.jetbrains.tfsIntegration.webservice.TfsRequestMetrics;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Saves request metrics collected since start (see {@link TfsRequestMetrics}) as JSON or CSV, depending on chosen file extension.
+ */
+public class TfsExportMetricsAction extends DumbAwareAction {
+
+  @Override
+  public void actionPerformed(@NotNull AnActionEvent e) {
+    Project project = e.getProject();
+    FileSaverDescriptor descriptor =
+      new FileSaverDescriptor(TFSBundle.message("export.metrics.title"), TFSBundle.message("export.metrics.description"), "json", "csv");
+    VirtualFileWrapper wrapper = FileChooserFactory.getInstance().createSaveFileDialog(descriptor, project).save(null, "tfs-metrics.json");
+    if (wrapper == null) {
+      return;
+    }
+
+    File file = wrapper.getFile();
+    TfsRequestMetrics metrics = TfsRequestMetrics.getInstance();
+    String content = "csv".equalsIgnoreCase(FileUtilRt.getExtension(file.getName())) ? metrics.toCsv() : metrics.toJson();
+    try {
+      FileUtil.writeToFile(file, content);
+    }
+    catch (IOException ex) {
+      Messages.showErrorDialog(project, ex.getMessage(), TFSBundle.message("export.metrics.title"));
+    }
+  }
+}
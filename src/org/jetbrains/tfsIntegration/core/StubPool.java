@@ -0,0 +1,87 @@
+package org.jetbrains.tfsIntegration.core;
+
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.util.ThrowableComputable;
+import org.apache.axis2.AxisFault;
+import org.apache.axis2.client.Stub;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Pool of stubs of one web service. Axis2 stub keeps its options and operation state in its {@code ServiceClient}, so it must not
+ * be used by several threads at a time. A stub is borrowed by the request executed in current thread (see
+ * {@link #computeWithBorrowedStubs}) and returned to the pool when the request completes, so concurrent requests to the same server
+ * get different stubs and sequential ones reuse them.
+ */
+public final class StubPool<T extends Stub> {
+  private static final Logger LOG = Logger.getInstance(StubPool.class.getName());
+
+  // stubs borrowed by the request executed in current thread, one per pool
+  private static final ThreadLocal<Map<StubPool<?>, Stub>> ourBorrowed = new ThreadLocal<>();
+
+  private final ThrowableComputable<T, AxisFault> myFactory;
+  private final Queue<T> myIdle = new ConcurrentLinkedQueue<>();
+
+  public StubPool(@NotNull ThrowableComputable<T, AxisFault> factory) {
+    myFactory = factory;
+  }
+
+  /**
+   * Executes the computation with stubs borrowed from pools; every stub borrowed inside is returned when it completes.
+   * Nested calls share the stubs borrowed by the outermost one.
+   */
+  public static <R, E extends Exception> R computeWithBorrowedStubs(@NotNull ThrowableComputable<R, E> computable) throws E {
+    if (ourBorrowed.get() != null) {
+      return computable.compute();
+    }
+
+    Map<StubPool<?>, Stub> borrowed = new HashMap<>();
+    ourBorrowed.set(borrowed);
+    try {
+      return computable.compute();
+    }
+    finally {
+      ourBorrowed.remove();
+      for (Map.Entry<StubPool<?>, Stub> entry : borrowed.entrySet()) {
+        entry.getKey().release(entry.getValue());
+      }
+    }
+  }
+
+  /**
+   * @return stub borrowed by current request, idle or newly created one
+   */
+  @NotNull
+  public T borrow() throws AxisFault {
+    Map<StubPool<?>, Stub> borrowed = ourBorrowed.get();
+    if (borrowed != null) {
+      //noinspection unchecked
+      T stub = (T)borrowed.get(this);
+      if (stub != null) {
+        return stub;
+      }
+    }
+
+    T stub = myIdle.poll();
+    if (stub == null) {
+      stub = myFactory.compute();
+    }
+    if (borrowed != null) {
+      borrowed.put(this, stub);
+    }
+    else {
+      // not returned to the pool, will be just collected
+      LOG.debug("Stub borrowed outside of request");
+    }
+    return stub;
+  }
+
+  private void release(@NotNull Stub stub) {
+    //noinspection unchecked
+    myIdle.offer((T)stub);
+  }
+}
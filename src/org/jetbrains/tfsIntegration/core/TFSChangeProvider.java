@@ -25,6 +25,7 @@ import com.intellij.openapi.vcs.changes.*;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.tfsIntegration.core.tfs.*;
 import org.jetbrains.tfsIntegration.exceptions.TfsException;
+import org.jetbrains.tfsIntegration.webservice.RequestPriority;
 
 import java.text.MessageFormat;
 import java.util.List;
@@ -80,14 +81,24 @@ public class TFSChangeProvider implements ChangeProvider {
     try {
       final Ref<Boolean> mappingFound = Ref.create(false);
       // ingore orphan roots here
-      WorkstationHelper.processByWorkspaces(roots, true, myProject, new WorkstationHelper.VoidProcessDelegate() {
+      // query workspaces concurrently, but feed the builder from this thread only
+      // change list refresh is background work, user actions go first
+      RequestPriority.computeInBackground(() -> WorkstationHelper.processByWorkspacesConcurrently(roots, true, myProject,
+                                                        new WorkstationHelper.ProcessDelegate<VersionControlServer.ExtendedItemsAndPendingChanges>() {
         @Override
-        public void executeRequest(final WorkspaceInfo workspace, final List<ItemPath> paths) throws TfsException {
-          StatusProvider
-            .visitByStatus(workspace, paths, true, progress, new ChangelistBuilderStatusVisitor(myProject, builder, workspace), myProject);
+        public VersionControlServer.ExtendedItemsAndPendingChanges executeRequest(final WorkspaceInfo workspace, final List<ItemPath> paths)
+          throws TfsException {
+          return StatusProvider.queryStatus(workspace, paths, true, myProject);
+        }
+      }, new WorkstationHelper.ResultConsumer<VersionControlServer.ExtendedItemsAndPendingChanges>() {
+        @Override
+        public void consume(final WorkspaceInfo workspace,
+                            final List<ItemPath> paths,
+                            final VersionControlServer.ExtendedItemsAndPendingChanges result) throws TfsException {
+          StatusProvider.visitByStatus(paths, true, result, progress, new ChangelistBuilderStatusVisitor(myProject, builder, workspace));
           mappingFound.set(true);
         }
-      });
+      }));
       if (!mappingFound.get()) {
         final String message;
         if (roots.size() > 1) {
@@ -165,36 +165,57 @@ public class TFSCheckinEnvironment implements CheckinEnvironment {
     }
     final List<VcsException> errors = new ArrayList<>();
     try {
-      WorkstationHelper.processByWorkspaces(files, false, myVcs.getProject(), new WorkstationHelper.VoidProcessDelegate() {
+      // pending changes are queried and uploaded for all workspaces concurrently, check in is done one workspace at a time
+      WorkstationHelper.processByWorkspacesConcurrently(files, false, myVcs.getProject(),
+                                                        new WorkstationHelper.ProcessDelegate<Collection<PendingChange>>() {
         @Override
-        public void executeRequest(final WorkspaceInfo workspace, final List<ItemPath> paths) throws TfsException {
-          try {
-            TFSProgressUtil.setProgressText(progressIndicator, TFSBundle.message("loading.pending.changes"));
-            // get pending changes for given items
-            Collection<PendingChange> pendingChanges = workspace.getServer().getVCS()
-              .queryPendingSetsByLocalPaths(workspace.getName(), workspace.getOwnerName(), paths, RecursionType.None, myVcs.getProject(),
-                                            TFSBundle.message("loading.pending.changes"));
+        public Collection<PendingChange> executeRequest(final WorkspaceInfo workspace, final List<ItemPath> paths) throws TfsException {
+          TFSProgressUtil.setProgressText(progressIndicator, TFSBundle.message("loading.pending.changes"));
+          // get pending changes for given items
+          Collection<PendingChange> pendingChanges = workspace.getServer().getVCS()
+            .queryPendingSetsByLocalPaths(workspace.getName(), workspace.getOwnerName(), paths, RecursionType.None, myVcs.getProject(),
+                                          TFSBundle.message("loading.pending.changes"));
+
+          // upload files
+          TFSProgressUtil.setProgressText(progressIndicator, TFSBundle.message("uploading.files"));
+          for (PendingChange pendingChange : pendingChanges) {
+            if (pendingChange.getType() == ItemType.File) {
+              ChangeTypeMask changeType = new ChangeTypeMask(pendingChange.getChg());
+              if (changeType.contains(ChangeType_type0.Edit) || changeType.contains(ChangeType_type0.Add)) {
+                TFSProgressUtil
+                  .setProgressText2(progressIndicator, VersionControlPath.localPathFromTfsRepresentation(pendingChange.getLocal()));
+                try {
+                  workspace.getServer().getVCS()
+                    .uploadItem(workspace, pendingChange, myVcs.getProject(), null);
+                }
+                catch (IOException e) {
+                  throw new TfsException(e);
+                }
+              }
+            }
+          }
+          TFSProgressUtil.setProgressText2(progressIndicator, "");
+          return pendingChanges;
+        }
+      }, new WorkstationHelper.ResultConsumer<Collection<PendingChange>>() {
+        @Override
+        public void consumeError(final WorkspaceInfo workspace, final List<ItemPath> paths, final TfsException error) {
+          // report and go on with other workspaces
+          errors.add(new VcsException(error));
+        }
 
+        @Override
+        public void consume(final WorkspaceInfo workspace, final List<ItemPath> paths, final Collection<PendingChange> pendingChanges)
+          throws TfsException {
+          try {
             if (pendingChanges.isEmpty()) {
               return;
             }
 
-            Collection<String> checkIn = new ArrayList<>();
-            // upload files
-            TFSProgressUtil.setProgressText(progressIndicator, TFSBundle.message("uploading.files"));
+            Collection<String> checkIn = new ArrayList<>(pendingChanges.size());
             for (PendingChange pendingChange : pendingChanges) {
-              if (pendingChange.getType() == ItemType.File) {
-                ChangeTypeMask changeType = new ChangeTypeMask(pendingChange.getChg());
-                if (changeType.contains(ChangeType_type0.Edit) || changeType.contains(ChangeType_type0.Add)) {
-                  TFSProgressUtil
-                    .setProgressText2(progressIndicator, VersionControlPath.localPathFromTfsRepresentation(pendingChange.getLocal()));
-                  workspace.getServer().getVCS()
-                    .uploadItem(workspace, pendingChange, myVcs.getProject(), null);
-                }
-              }
               checkIn.add(pendingChange.getItem());
             }
-            TFSProgressUtil.setProgressText2(progressIndicator, "");
 
             final WorkItemsCheckinParameters state = myVcs.getCheckinData().parameters.getWorkItems(workspace.getServer());
             final Map<WorkItem, CheckinWorkItemAction> workItemActions =
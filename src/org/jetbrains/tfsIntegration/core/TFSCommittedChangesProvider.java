@@ -36,6 +36,7 @@ import org.jetbrains.tfsIntegration.core.tfs.version.DateVersionSpec;
 import org.jetbrains.tfsIntegration.core.tfs.version.LatestVersionSpec;
 import org.jetbrains.tfsIntegration.exceptions.TfsException;
 import org.jetbrains.tfsIntegration.ui.TFSVersionFilterComponent;
+import org.jetbrains.tfsIntegration.webservice.RequestPriority;
 
 import java.io.DataInput;
 import java.io.DataOutput;
@@ -183,15 +184,19 @@ public class TFSCommittedChangesProvider implements CachingCommittedChangesProvi
                                                  @NotNull RepositoryLocation location,
                                                  int maxCount) throws VcsException {
     final List<TFSChangeList> result = new ArrayList<>();
-    loadCommittedChanges(settings, location, maxCount, new AsynchConsumer<CommittedChangeList>() {
-      @Override
-      public void finished() {
-      }
+    // used by committed changes cache refresh and incoming changes polling
+    RequestPriority.computeInBackground(() -> {
+      loadCommittedChanges(settings, location, maxCount, new AsynchConsumer<CommittedChangeList>() {
+        @Override
+        public void finished() {
+        }
 
-      @Override
-      public void consume(CommittedChangeList committedChangeList) {
-        result.add((TFSChangeList)committedChangeList);
-      }
+        @Override
+        public void consume(CommittedChangeList committedChangeList) {
+          result.add((TFSChangeList)committedChangeList);
+        }
+      });
+      return null;
     });
     return result;
   }
@@ -56,7 +56,7 @@ public class TFSProjectConfiguration implements PersistentStateComponent<TFSProj
     myConfigurationBean = state;
   }
 
-  public UpdateWorkspaceInfo getUpdateWorkspaceInfo(WorkspaceInfo workspace) {
+  public synchronized UpdateWorkspaceInfo getUpdateWorkspaceInfo(WorkspaceInfo workspace) {
     UpdateWorkspaceInfo info = myUpdateWorkspaceInfos.get(workspace);
     if (info == null) {
       info = new UpdateWorkspaceInfo(LatestVersionSpec.INSTANCE);
@@ -204,6 +204,8 @@ public class TFSRollbackEnvironment extends DefaultRollbackEnvironment {
                                   @NotNull final RollbackProgressListener listener,
                                   final boolean tolerateNoChangesFailure) {
     try {
+      // workspaces are processed one by one, undoing on server and locally at once, so that cancellation or a local failure
+      // does not leave changes undone on server without local files restored
       WorkstationHelper.processByWorkspaces(localPaths, false, myProject, new WorkstationHelper.VoidProcessDelegate() {
         @Override
         public void executeRequest(final WorkspaceInfo workspace, final List<ItemPath> paths) throws TfsException {
@@ -61,10 +61,10 @@ public class TFSUpdateEnvironment implements UpdateEnvironment {
     try {
       final Map<WorkspaceInfo, Collection<Conflict>> workspace2Conflicts = new HashMap<>();
       List<FilePath> orphanPaths =
-        WorkstationHelper.processByWorkspaces(Arrays.asList(contentRoots), true, myVcs.getProject(),
-                                              new WorkstationHelper.VoidProcessDelegate() {
+        WorkstationHelper.processByWorkspacesConcurrently(Arrays.asList(contentRoots), true, myVcs.getProject(),
+                                                          new WorkstationHelper.ProcessDelegate<List<GetOperation>>() {
           @Override
-          public void executeRequest(final WorkspaceInfo workspace, final List<ItemPath> paths) throws TfsException {
+          public List<GetOperation> executeRequest(final WorkspaceInfo workspace, final List<ItemPath> paths) throws TfsException {
             VersionSpecBase version = LatestVersionSpec.INSTANCE;
             RecursionType recursionType = RecursionType.Full;
             TFSProjectConfiguration configuration = TFSProjectConfiguration.getInstance(myVcs.getProject());
@@ -80,9 +80,20 @@ public class TFSUpdateEnvironment implements UpdateEnvironment {
               TFSProgressUtil.checkCanceled(progressIndicator);
             }
 
-            List<GetOperation> operations = workspace.getServer().getVCS()
+            return workspace.getServer().getVCS()
               .get(workspace.getName(), workspace.getOwnerName(), requests, myVcs.getProject(),
                    TFSBundle.message("preparing.for.download"));
+          }
+        }, new WorkstationHelper.ResultConsumer<List<GetOperation>>() {
+          @Override
+          public void consumeError(final WorkspaceInfo workspace, final List<ItemPath> paths, final TfsException error) {
+            // report and go on updating other workspaces
+            exceptions.add(new VcsException(error));
+          }
+
+          @Override
+          public void consume(final WorkspaceInfo workspace, final List<ItemPath> paths, final List<GetOperation> operations)
+            throws TfsException {
             // execute GetOperation-s, conflicting ones will be skipped
             final Collection<VcsException> applyErrors = ApplyGetOperations
               .execute(myVcs.getProject(), workspace, operations, new ApplyProgress.ProgressIndicatorWrapper(progressIndicator),
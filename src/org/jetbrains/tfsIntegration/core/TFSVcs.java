@@ -105,6 +105,7 @@ public class TFSVcs extends AbstractVcs {
   public void activate() {
     myFileListener = new TFSFileListener(getProject(), this);
     TfsSdkManager.activate();
+    TfsWarmUp.startIfEnabled(getProject());
   }
 
   @Override
@@ -7,14 +7,15 @@ import com.microsoft.schemas.teamfoundation._2005._06.services.groupsecurity._03
 import com.microsoft.schemas.teamfoundation._2005._06.services.registration._03.*;
 import com.microsoft.schemas.teamfoundation._2005._06.versioncontrol.clientservices._03.RepositoryStub;
 import com.microsoft.schemas.teamfoundation._2005._06.workitemtracking.clientservices._03.ClientService2Stub;
+import org.apache.axis2.AxisFault;
+import org.apache.axis2.client.Stub;
 import org.apache.axis2.context.ConfigurationContext;
 import org.apache.commons.httpclient.HttpClient;
-import org.apache.commons.httpclient.HttpConnectionManager;
-import org.apache.commons.httpclient.MultiThreadedHttpConnectionManager;
-import org.apache.commons.httpclient.params.HttpClientParams;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.jetbrains.tfsIntegration.core.configuration.Credentials;
+import org.jetbrains.tfsIntegration.core.configuration.ServiceLocations;
+import org.jetbrains.tfsIntegration.core.configuration.TFSConfigurationManager;
 import org.jetbrains.tfsIntegration.core.tfs.TfsUtil;
 import org.jetbrains.tfsIntegration.exceptions.HostNotApplicableException;
 import org.jetbrains.tfsIntegration.webservice.WebServiceHelper;
@@ -28,87 +29,128 @@ public class TfsBeansHolder {
 
   private final URI myServerUri;
 
-  private RepositoryStub myRepository;
-  // Newer version of repository service. Required for several operations with local workspaces.
-  private RepositoryStub myRepository4;
-  private ClientService2Stub myWorkItemTrackingClientService;
-  private GroupSecurityServiceStub myGroupSecurityService;
-  private String myDownloadUrl;
-  private String myUploadUrl;
-  private final HttpClient[] myUploadDownloadClients = new HttpClient[2]; // regular, proxy
+  // replaced as a whole, so that readers never see partially initialized services
+  private volatile Services myServices;
+  private final Object myServicesLock = new Object();
+  private HttpClient myProxyClient;
 
   public TfsBeansHolder(URI serverUri) {
     myServerUri = serverUri;
   }
 
+  private static final class Services {
+    private final ServiceLocations myLocations;
+    private final StubPool<RepositoryStub> myRepository;
+    // Newer version of repository service. Required for several operations with local workspaces.
+    private final StubPool<RepositoryStub> myRepository4;
+    private final StubPool<ClientService2Stub> myWorkItemTrackingClientService;
+    private final StubPool<GroupSecurityServiceStub> myGroupSecurityService;
+
+    private Services(@NotNull ServiceLocations locations,
+                     @NotNull StubPool<RepositoryStub> repository,
+                     @NotNull StubPool<RepositoryStub> repository4,
+                     @NotNull StubPool<ClientService2Stub> workItemTrackingClientService,
+                     @NotNull StubPool<GroupSecurityServiceStub> groupSecurityService) {
+      myLocations = locations;
+      myRepository = repository;
+      myRepository4 = repository4;
+      myWorkItemTrackingClientService = workItemTrackingClientService;
+      myGroupSecurityService = groupSecurityService;
+    }
+  }
+
   @NotNull
   public RepositoryStub getRepositoryStub(Credentials credentials, ProgressIndicator pi)
     throws HostNotApplicableException, RemoteException {
-    if (myRepository == null) {
-      createStubs(credentials, pi);
-    }
-    WebServiceHelper.setupStub(myRepository, credentials, myServerUri);
-    return myRepository;
+    return borrowStub(getServices(credentials, pi).myRepository, credentials);
   }
 
   @NotNull
   public RepositoryStub getRepository4Stub(Credentials credentials, ProgressIndicator pi)
     throws HostNotApplicableException, RemoteException {
-    if (myRepository4 == null) {
-      createStubs(credentials, pi);
-    }
-    WebServiceHelper.setupStub(myRepository4, credentials, myServerUri);
-    return myRepository4;
+    return borrowStub(getServices(credentials, pi).myRepository4, credentials);
   }
 
   @NotNull
   public ClientService2Stub getWorkItemServiceStub(Credentials credentials, ProgressIndicator pi)
     throws HostNotApplicableException, RemoteException {
-    if (myWorkItemTrackingClientService == null) {
-      createStubs(credentials, pi);
-    }
-    WebServiceHelper.setupStub(myWorkItemTrackingClientService, credentials, myServerUri);
-    return myWorkItemTrackingClientService;
+    return borrowStub(getServices(credentials, pi).myWorkItemTrackingClientService, credentials);
   }
 
   @NotNull
   public GroupSecurityServiceStub getGroupSecurityServiceStub(Credentials credentials, ProgressIndicator pi)
     throws HostNotApplicableException, RemoteException {
-    if (myGroupSecurityService == null) {
-      createStubs(credentials, pi);
-    }
-    WebServiceHelper.setupStub(myGroupSecurityService, credentials, myServerUri);
-    return myGroupSecurityService;
+    return borrowStub(getServices(credentials, pi).myGroupSecurityService, credentials);
   }
 
   @NotNull
   public String getDownloadUrl(Credentials credentials, ProgressIndicator pi) throws HostNotApplicableException, RemoteException {
-    if (myDownloadUrl == null) {
-      createStubs(credentials, pi);
-    }
-    return myDownloadUrl;
+    return getServices(credentials, pi).myLocations.getDownload();
   }
 
   @NotNull
   public String getUploadUrl(Credentials credentials, ProgressIndicator pi) throws HostNotApplicableException, RemoteException {
-    if (myUploadUrl == null) {
-      createStubs(credentials, pi);
+    return getServices(credentials, pi).myLocations.getUpload();
+  }
+
+  @NotNull
+  private <T extends Stub> T borrowStub(@NotNull StubPool<T> pool, Credentials credentials) throws AxisFault {
+    T stub = pool.borrow();
+    WebServiceHelper.setupStub(stub, credentials, myServerUri);
+    return stub;
+  }
+
+  @NotNull
+  private Services getServices(Credentials credentials, @Nullable ProgressIndicator pi) throws RemoteException, HostNotApplicableException {
+    Services services = myServices;
+    if (services == null || services.myLocations.isInvalidated()) {
+      synchronized (myServicesLock) {
+        services = myServices;
+        if (services == null || services.myLocations.isInvalidated()) {
+          myServices = services = createServices(credentials, pi);
+        }
+      }
     }
-    return myUploadUrl;
+    return services;
   }
 
-  private void createStubs(Credentials authorizedCredentials, @Nullable ProgressIndicator pi)
+  @NotNull
+  private Services createServices(Credentials authorizedCredentials, @Nullable ProgressIndicator pi)
     throws RemoteException, HostNotApplicableException {
     LOG.assertTrue(!ApplicationManager.getApplication().isDispatchThread());
 
+    // locations persisted in previous session are validated lazily: if server does not recognize them, request manager
+    // invalidates them and retries
+    ServiceLocations locations = TFSConfigurationManager.getInstance().getServiceLocations(myServerUri);
+    // stubs share HTTP client (and so authenticated connections) with uploads and downloads of this server
+    final ConfigurationContext configContext = WebServiceHelper.getStubConfigurationContext(myServerUri);
+    if (locations == null) {
+      locations = queryServiceLocations(configContext, authorizedCredentials, pi);
+      TFSConfigurationManager.getInstance().storeServiceLocations(myServerUri, locations);
+    }
+
+    String repository = TfsUtil.appendPath(myServerUri, locations.getRepository());
+    String repository4 = TfsUtil.appendPath(myServerUri, locations.getRepository4());
+    String workItemTracking = TfsUtil.appendPath(myServerUri, locations.getWorkItemTracking());
+    String groupSecurity = TfsUtil.appendPath(myServerUri, locations.getGroupSecurity());
+    return new Services(locations,
+                        new StubPool<>(() -> new RepositoryStub(configContext, repository)),
+                        new StubPool<>(() -> new RepositoryStub(configContext, repository4)),
+                        new StubPool<>(() -> new ClientService2Stub(configContext, workItemTracking)),
+                        new StubPool<>(() -> new GroupSecurityServiceStub(configContext, groupSecurity)));
+  }
+
+  @NotNull
+  private ServiceLocations queryServiceLocations(ConfigurationContext configContext,
+                                                 Credentials authorizedCredentials,
+                                                 @Nullable ProgressIndicator pi)
+    throws RemoteException, HostNotApplicableException {
     String piText = pi != null ? pi.getText() : null;
 
     if (pi != null) {
       pi.setText(TFSBundle.message("loading.services"));
     }
 
-    final ConfigurationContext configContext = WebServiceHelper.getStubConfigurationContext();
-
     RegistrationStub registrationStub =
       new RegistrationStub(configContext, TfsUtil.appendPath(myServerUri, TFSConstants.REGISTRATION_ASMX));
     WebServiceHelper.setupStub(registrationStub, authorizedCredentials, myServerUri);
@@ -145,49 +187,21 @@ public class TfsBeansHolder {
     if (groupSecurityService == null) {
       throw new HostNotApplicableException(null);
     }
-    doCreateStubs(configContext, isccProvider, isccProvider4, download, upload, workItemService, groupSecurityService);
 
     if (pi != null) {
       pi.setText(piText);
     }
+    return new ServiceLocations(isccProvider, isccProvider4, download, upload, workItemService, groupSecurityService);
   }
 
-  private void doCreateStubs(@Nullable ConfigurationContext configContext,
-                             String isccProvider,
-                             String isccProvider4,
-                             String download,
-                             String upload,
-                             String workItemService,
-                             String groupSecurity) {
-    myDownloadUrl = download;
-    myUploadUrl = upload;
-    try {
-      if (configContext == null) {
-        configContext = WebServiceHelper.getStubConfigurationContext();
-      }
-      myRepository = new RepositoryStub(configContext, TfsUtil.appendPath(myServerUri, isccProvider));
-      myRepository4 = new RepositoryStub(configContext, TfsUtil.appendPath(myServerUri, isccProvider4));
-      myWorkItemTrackingClientService =
-        new ClientService2Stub(configContext, TfsUtil.appendPath(myServerUri, workItemService));
-      myGroupSecurityService =
-        new GroupSecurityServiceStub(configContext, TfsUtil.appendPath(myServerUri, groupSecurity));
-    }
-    catch (Exception e) {
-      LOG.error("Failed to initialize web service stub", e);
+  public synchronized HttpClient getUploadDownloadClient(boolean forProxy) {
+    if (!forProxy) {
+      return WebServiceHelper.getHttpClient(myServerUri);
     }
-  }
-  
-  public HttpClient getUploadDownloadClient(boolean forProxy) {
-    int index = forProxy ? 1 : 0;
-    if (myUploadDownloadClients[index] == null) {
-      HttpConnectionManager connManager = new MultiThreadedHttpConnectionManager();
-      myUploadDownloadClients[index] = new HttpClient(connManager);
-      HttpClientParams clientParams = new HttpClientParams();
-      // Set the default timeout in case we have a connection pool starvation to 30sec
-      clientParams.setConnectionManagerTimeout(30000);
-      myUploadDownloadClients[index].setParams(clientParams);
+    if (myProxyClient == null) {
+      myProxyClient = WebServiceHelper.createHttpClient();
     }
-    return myUploadDownloadClients[index];
+    return myProxyClient;
   }
 
   @Nullable
@@ -0,0 +1,130 @@
+package org.jetbrains.tfsIntegration.core;
+
+import com.intellij.openapi.util.ThrowableComputable;
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Java Flight Recorder events of TFS operations: requests, parts of large requests, uploads and downloads, file steps of get
+ * operations and status passes. Events caused by one operation (e.g. update) share correlation id, so a recording shows
+ * which requests and file operations made it slow. Correlation id is kept per thread and passed to pooled threads doing
+ * the same operation.
+ * <p/>
+ * Events cost nothing unless a recording with "TFS" events enabled is running.
+ */
+public final class TfsTrace {
+  private static final AtomicLong ourNextCorrelationId = new AtomicLong();
+  private static final ThreadLocal<Long> ourCorrelationId = new ThreadLocal<>();
+
+  private TfsTrace() {
+  }
+
+  /**
+   * @return correlation id of the operation executed in current thread, or 0 if there's none
+   */
+  public static long getCorrelationId() {
+    Long result = ourCorrelationId.get();
+    return result != null ? result : 0;
+  }
+
+  /**
+   * Executes the computation as a part of current operation, or as a new one if there's no current operation.
+   */
+  public static <T, E extends Throwable> T computeInScope(@NotNull ThrowableComputable<T, E> computable) throws E {
+    return computeWithCorrelationId(getCorrelationId(), computable);
+  }
+
+  /**
+   * Executes the computation as a part of the operation with given correlation id (0 to start a new one),
+   * e.g. on a pooled thread doing work of an operation started in another thread.
+   */
+  public static <T, E extends Throwable> T computeWithCorrelationId(long correlationId, @NotNull ThrowableComputable<T, E> computable)
+    throws E {
+    Long previous = ourCorrelationId.get();
+    ourCorrelationId.set(correlationId != 0 ? correlationId : ourNextCorrelationId.incrementAndGet());
+    try {
+      return computable.compute();
+    }
+    finally {
+      if (previous != null) {
+        ourCorrelationId.set(previous);
+      }
+      else {
+        ourCorrelationId.remove();
+      }
+    }
+  }
+
+  @Name("org.jetbrains.tfsIntegration.Request")
+  @Label("TFS Request")
+  @Description("Request executed by TfsRequestManager, including wait for the server lock")
+  @Category("TFS")
+  @StackTrace(false)
+  public static final class RequestEvent extends Event {
+    @Label("Correlation Id") public long correlationId;
+    @Label("Server") public String server;
+    @Label("Title") public String title;
+    @Label("Priority") public String priority;
+    @Label("Lock Wait") @Timespan(Timespan.MILLISECONDS) public long lockWait;
+    @Label("Failed") public boolean failed;
+  }
+
+  @Name("org.jetbrains.tfsIntegration.Chunk")
+  @Label("TFS Request Chunk")
+  @Description("Part of a request split by number of items")
+  @Category("TFS")
+  @StackTrace(false)
+  public static final class ChunkEvent extends Event {
+    @Label("Correlation Id") public long correlationId;
+    @Label("Server") public String server;
+    @Label("Title") public String title;
+    @Label("Index") public int index;
+    @Label("Items") public int items;
+  }
+
+  @Name("org.jetbrains.tfsIntegration.Transfer")
+  @Label("TFS Transfer")
+  @Description("File upload or download")
+  @Category("TFS")
+  @StackTrace(false)
+  public static final class TransferEvent extends Event {
+    @Label("Correlation Id") public long correlationId;
+    @Label("Server") public String server;
+    @Label("Upload") public boolean upload;
+    @Label("URL") public String url;
+    @Label("Size") @DataAmount public long bytes;
+    @Label("Failed") public boolean failed;
+  }
+
+  @Name("org.jetbrains.tfsIntegration.FileStep")
+  @Label("TFS Get Operation Step")
+  @Description("Local file system step applying a get operation received from server")
+  @Category("TFS")
+  @StackTrace(false)
+  public static final class FileStepEvent extends Event {
+    @Label("Correlation Id") public long correlationId;
+    @Label("Step") public String step;
+    @Label("Path") public String path;
+  }
+
+  @Name("org.jetbrains.tfsIntegration.Status")
+  @Label("TFS Status Pass")
+  @Description("Status of local items queried from server or matched against local files")
+  @Category("TFS")
+  @StackTrace(false)
+  public static final class StatusEvent extends Event {
+    @Label("Correlation Id") public long correlationId;
+    @Label("Phase") public String phase;
+    @Label("Roots") public int roots;
+    @Label("Recursive") public boolean recursive;
+  }
+}
@@ -0,0 +1,123 @@
+package org.jetbrains.tfsIntegration.core;
+
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.progress.EmptyProgressIndicator;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Disposer;
+import com.intellij.openapi.util.Key;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import com.intellij.util.containers.ContainerUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.tfsIntegration.core.tfs.ServerInfo;
+import org.jetbrains.tfsIntegration.core.tfs.Workstation;
+import org.jetbrains.tfsIntegration.exceptions.TfsException;
+import org.jetbrains.tfsIntegration.webservice.RequestPriority;
+import org.jetbrains.tfsIntegration.webservice.TfsRequestManager;
+import org.jetbrains.tfsIntegration.webservice.WebServiceHelper;
+
+import java.util.List;
+
+/**
+ * Optional warm-up run in background when TFS becomes active in a project: initializes Axis2, reads workspace cache,
+ * creates web service stubs and connects to every server that doesn't need login, so that the first user action doesn't have to.
+ * Enabled with {@code -Dorg.jetbrains.tfsIntegration.warmUp=true}, the timing of every phase is logged.
+ * <p/>
+ * Servers are warmed up one by one in a single low priority thread, and their requests are made at background
+ * {@link RequestPriority}, so that whatever the user does meanwhile goes first.
+ */
+public final class TfsWarmUp {
+  private static final Logger LOG = Logger.getInstance(TfsWarmUp.class.getName());
+
+  private static final boolean ENABLED = Boolean.getBoolean("org.jetbrains.tfsIntegration.warmUp");
+
+  // services are prepared for a project, so every project is warmed up once (application-wide state is ready by then)
+  private static final Key<Boolean> STARTED = Key.create("TFS_WARM_UP_STARTED");
+
+  private TfsWarmUp() {
+  }
+
+  public static void startIfEnabled(@NotNull Project project) {
+    if (!ENABLED) {
+      return;
+    }
+    synchronized (STARTED) {
+      if (project.getUserData(STARTED) != null) {
+        return;
+      }
+      project.putUserData(STARTED, Boolean.TRUE);
+    }
+
+    ProgressIndicator indicator = new EmptyProgressIndicator();
+    Disposer.register(project, () -> indicator.cancel());
+    AppExecutorUtil.getAppExecutorService().execute(() -> {
+      Thread thread = Thread.currentThread();
+      int priority = thread.getPriority();
+      thread.setPriority(Thread.MIN_PRIORITY);
+      try {
+        ProgressManager.getInstance().runProcess(() -> RequestPriority.computeInBackground(() -> {
+          warmUp(project);
+          return null;
+        }), indicator);
+      }
+      catch (Throwable e) {
+        // nothing is lost, the same will be done on demand
+        LOG.info("TFS warm-up interrupted", e);
+      }
+      finally {
+        thread.setPriority(priority);
+      }
+    });
+  }
+
+  private static void warmUp(@NotNull Project project) {
+    StringBuilder timings = new StringBuilder();
+    long start = System.currentTimeMillis();
+
+    long phaseStart = System.currentTimeMillis();
+    WebServiceHelper.getStubConfigurationContext();
+    appendTiming(timings, "Axis2 configuration", phaseStart);
+
+    phaseStart = System.currentTimeMillis();
+    List<ServerInfo> servers = ContainerUtil.filter(Workstation.getInstance().getServers(),
+                                                    server -> !TfsRequestManager.shouldShowLoginDialog(server.getUri()));
+    appendTiming(timings, "workspace cache", phaseStart);
+
+    // no hurry, so don't take pooled threads to process servers concurrently
+    for (ServerInfo server : servers) {
+      ProgressManager.checkCanceled();
+      String serverTiming;
+      try {
+        serverTiming = warmUp(project, server);
+      }
+      catch (TfsException e) {
+        LOG.info("TFS warm-up failed for " + server.getPresentableUri(), e);
+        serverTiming = "failed";
+      }
+      timings.append(", ").append(server.getPresentableUri()).append(": ").append(serverTiming);
+    }
+    LOG.info("TFS warm-up finished in " + (System.currentTimeMillis() - start) + " ms: " + timings);
+  }
+
+  @NotNull
+  private static String warmUp(@NotNull Project project, @NotNull ServerInfo server) throws TfsException {
+    StringBuilder result = new StringBuilder();
+    long phaseStart = System.currentTimeMillis();
+    server.getVCS().prepareServices(project);
+    appendTiming(result, "services", phaseStart);
+
+    // first real request: authentication handshake and workspaces refresh
+    phaseStart = System.currentTimeMillis();
+    server.refreshWorkspacesForCurrentOwnerAndComputer(project, false);
+    appendTiming(result, "connection and workspaces", phaseStart);
+    return result.toString();
+  }
+
+  private static void appendTiming(@NotNull StringBuilder builder, @NotNull String phase, long phaseStart) {
+    if (builder.length() > 0) {
+      builder.append(", ");
+    }
+    builder.append(phase).append(" ").append(System.currentTimeMillis() - phaseStart).append(" ms");
+  }
+}
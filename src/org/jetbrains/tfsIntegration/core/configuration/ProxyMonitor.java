@@ -0,0 +1,243 @@
+package org.jetbrains.tfsIntegration.core.configuration;
+
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.util.ConcurrencyUtil;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import com.intellij.util.containers.ContainerUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.tfsIntegration.webservice.WebServiceHelper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Chooses the endpoint (TFS proxy or the server itself) to download files from.
+ * <p/>
+ * While files are being downloaded, both endpoints are probed every {@code org.jetbrains.tfsIntegration.proxyProbeIntervalSec}
+ * seconds with the same unauthenticated request, and latency of each is tracked as a moving average of probe times. Downloads go
+ * to the proxy unless it is noticeably slower than the server. Downloads themselves are not compared: authenticated transfers of
+ * files of different size take different time regardless of the endpoint.
+ * <p/>
+ * A proxy that failed a download is not used until a probe finds it responding again. Probing stops while nothing is downloaded.
+ * <p/>
+ * Response time of recent downloads from either endpoint is kept separately to decide when a download is worth hedging with the
+ * other endpoint.
+ */
+public final class ProxyMonitor {
+  private static final Logger LOG = Logger.getInstance(ProxyMonitor.class.getName());
+
+  private static final long PROBE_INTERVAL_MS =
+    TimeUnit.SECONDS.toMillis(Math.max(1, Integer.getInteger("org.jetbrains.tfsIntegration.proxyProbeIntervalSec", 60)));
+  private static final int PROBE_TIMEOUT_MS = 5000;
+  private static final long IDLE_INTERVALS = 5;
+  private static final double SMOOTHING = 0.3;
+  // proxy takes load off the server, so prefer it unless it is this much slower
+  private static final double PROXY_PREFERENCE = 1.5;
+  private static final int MIN_PERCENTILE_SAMPLES = 10;
+  private static final int MAX_PERCENTILE_SAMPLES = 100;
+  private static final long MAX_SAMPLE_AGE_MS = TimeUnit.MINUTES.toMillis(10);
+
+  private static final ConcurrentMap<URI, ProxyMonitor> ourInstances = ContainerUtil.newConcurrentMap();
+
+  private final URI myServerUri;
+
+  private final EndpointLatency myProxyLatency = new EndpointLatency();
+  private final EndpointLatency myServerLatency = new EndpointLatency();
+  private final ResponseTimes myProxyDownloads = new ResponseTimes();
+  private final ResponseTimes myServerDownloads = new ResponseTimes();
+  private final AtomicBoolean myProbing = new AtomicBoolean();
+  private ScheduledFuture<?> myProbeTask;
+  private long myLastUsed;
+
+  private ProxyMonitor(@NotNull URI serverUri) {
+    myServerUri = serverUri;
+  }
+
+  @NotNull
+  public static ProxyMonitor getInstance(@NotNull URI serverUri) {
+    ProxyMonitor result = ourInstances.get(serverUri);
+    if (result == null) {
+      result = ConcurrencyUtil.cacheOrGet(ourInstances, serverUri, new ProxyMonitor(serverUri));
+    }
+    return result;
+  }
+
+  /**
+   * @return true if the next download should go via proxy
+   */
+  public boolean shouldUseProxy() {
+    TFSConfigurationManager configurationManager = TFSConfigurationManager.getInstance();
+    if (configurationManager.getProxyUri(myServerUri) == null) {
+      return false;
+    }
+    synchronized (this) {
+      myLastUsed = System.currentTimeMillis();
+      startProbing();
+    }
+    if (!configurationManager.shouldTryProxy(myServerUri)) {
+      return false;
+    }
+    long proxyMs = myProxyLatency.getMs();
+    long serverMs = myServerLatency.getMs();
+    return proxyMs < 0 || serverMs < 0 || proxyMs <= serverMs * PROXY_PREFERENCE;
+  }
+
+  /**
+   * @return true if proxy is configured and did not fail, regardless of its latency
+   */
+  public boolean isProxyAvailable() {
+    TFSConfigurationManager configurationManager = TFSConfigurationManager.getInstance();
+    return configurationManager.getProxyUri(myServerUri) != null && configurationManager.shouldTryProxy(myServerUri);
+  }
+
+  /**
+   * @return given percentile of response time of downloads from the endpoint, or -1 if not enough downloads were made from it
+   */
+  public long getResponseTimePercentileMs(boolean proxy, int percentile) {
+    return (proxy ? myProxyDownloads : myServerDownloads).getPercentileMs(percentile);
+  }
+
+  /**
+   * @param ms time to response headers of a download
+   */
+  public void responseReceived(boolean viaProxy, long ms) {
+    (viaProxy ? myProxyDownloads : myServerDownloads).record(ms);
+  }
+
+  public void proxyFailed() {
+    TFSConfigurationManager.getInstance().setProxyInaccessible(myServerUri);
+    myProxyLatency.reset();
+    myProxyDownloads.reset();
+    synchronized (this) {
+      startProbing();
+    }
+  }
+
+  private void startProbing() {
+    if (myProbeTask == null) {
+      // probes block for up to their timeout, so they don't run in the shared scheduler thread, and skip a turn while
+      // the previous one is still running
+      myProbeTask = AppExecutorUtil.getAppScheduledExecutorService().scheduleWithFixedDelay(() -> {
+        if (myProbing.compareAndSet(false, true)) {
+          ApplicationManager.getApplication().executeOnPooledThread(() -> {
+            try {
+              probe();
+            }
+            finally {
+              myProbing.set(false);
+            }
+          });
+        }
+      }, 0, PROBE_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  private void probe() {
+    TFSConfigurationManager configurationManager = TFSConfigurationManager.getInstance();
+    URI proxyUri = configurationManager.getProxyUri(myServerUri);
+    synchronized (this) {
+      if (myProbeTask == null) {
+        return;
+      }
+      if (proxyUri == null || System.currentTimeMillis() - myLastUsed > IDLE_INTERVALS * PROBE_INTERVAL_MS) {
+        myProbeTask.cancel(false);
+        myProbeTask = null;
+        return;
+      }
+    }
+
+    if (!configurationManager.shouldTryProxy(myServerUri)) {
+      if (probe(proxyUri, myProxyLatency)) {
+        LOG.info("TFS proxy " + proxyUri + " is available again");
+        configurationManager.setProxyAccessible(myServerUri);
+      }
+      return;
+    }
+    probe(proxyUri, myProxyLatency);
+    probe(myServerUri, myServerLatency);
+  }
+
+  private static boolean probe(@NotNull URI uri, @NotNull EndpointLatency latency) {
+    long start = System.currentTimeMillis();
+    try {
+      WebServiceHelper.probe(uri, PROBE_TIMEOUT_MS);
+      latency.record(System.currentTimeMillis() - start);
+      return true;
+    }
+    catch (IOException e) {
+      LOG.debug("Probe of " + uri + " failed", e);
+      return false;
+    }
+  }
+
+  /**
+   * Moving average of probe times
+   */
+  private static class EndpointLatency {
+    private double myAverageMs = -1;
+
+    synchronized void record(long ms) {
+      myAverageMs = myAverageMs < 0 ? ms : myAverageMs + SMOOTHING * (ms - myAverageMs);
+    }
+
+    /**
+     * @return -1 if not known
+     */
+    synchronized long getMs() {
+      return Math.round(myAverageMs);
+    }
+
+    synchronized void reset() {
+      myAverageMs = -1;
+    }
+  }
+
+  /**
+   * Response times of the last {@link #MAX_PERCENTILE_SAMPLES} downloads made within {@link #MAX_SAMPLE_AGE_MS}, so that percentiles
+   * follow the current state of the endpoint
+   */
+  private static class ResponseTimes {
+    private final long[] myTimesMs = new long[MAX_PERCENTILE_SAMPLES];
+    private final long[] myTimestamps = new long[MAX_PERCENTILE_SAMPLES];
+    private int myNext;
+    private int myCount;
+
+    synchronized void record(long ms) {
+      myTimesMs[myNext] = ms;
+      myTimestamps[myNext] = System.currentTimeMillis();
+      myNext = (myNext + 1) % MAX_PERCENTILE_SAMPLES;
+      myCount = Math.min(myCount + 1, MAX_PERCENTILE_SAMPLES);
+    }
+
+    /**
+     * @return -1 if there are not enough recent samples
+     */
+    synchronized long getPercentileMs(int percentile) {
+      long since = System.currentTimeMillis() - MAX_SAMPLE_AGE_MS;
+      long[] recent = new long[myCount];
+      int count = 0;
+      for (int i = 0; i < myCount; i++) {
+        if (myTimestamps[i] >= since) {
+          recent[count++] = myTimesMs[i];
+        }
+      }
+      if (count < MIN_PERCENTILE_SAMPLES) {
+        return -1;
+      }
+      Arrays.sort(recent, 0, count);
+      int rank = Math.max(1, (count * percentile + 99) / 100);
+      return recent[Math.min(rank, count) - 1];
+    }
+
+    synchronized void reset() {
+      myNext = 0;
+      myCount = 0;
+    }
+  }
+}
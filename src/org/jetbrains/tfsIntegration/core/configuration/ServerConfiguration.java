@@ -34,6 +34,8 @@ public class ServerConfiguration {
 
   private Notification myAuthCanceledNotification;
 
+  private @Nullable ServiceLocations myServiceLocations;
+
   public ServerConfiguration() {
   }
 
@@ -69,8 +71,18 @@ public class ServerConfiguration {
     return myProxyInaccessible;
   }
 
-  public void setProxyInaccessible() {
-    myProxyInaccessible = true;
+  public void setProxyInaccessible(boolean proxyInaccessible) {
+    myProxyInaccessible = proxyInaccessible;
+  }
+
+  @Nullable
+  @Tag(value = "services")
+  public ServiceLocations getServiceLocations() {
+    return myServiceLocations;
+  }
+
+  public void setServiceLocations(@Nullable ServiceLocations serviceLocations) {
+    myServiceLocations = serviceLocations;
   }
 
   @Transient
@@ -0,0 +1,132 @@
+package org.jetbrains.tfsIntegration.core.configuration;
+
+import com.intellij.util.xmlb.annotations.Attribute;
+import com.intellij.util.xmlb.annotations.Tag;
+import com.intellij.util.xmlb.annotations.Transient;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Service paths resolved via Registration service, persisted so that they don't have to be queried again on every start.
+ * Paths are relative to server (collection) URI.
+ */
+@Tag(value = "services")
+@SuppressWarnings("UnusedDeclaration")
+public class ServiceLocations {
+
+  private String myRepository;
+  private String myRepository4;
+  private String myDownload;
+  private String myUpload;
+  private String myWorkItemTracking;
+  private String myGroupSecurity;
+  private long myTimestamp;
+
+  // loaded from settings rather than just queried from server, so not validated yet
+  private final boolean myRestored;
+
+  // set when server reports the locations are wrong, so that holders of this instance re-query them
+  private volatile boolean myInvalidated;
+
+  public ServiceLocations() {
+    myRestored = true;
+  }
+
+  public ServiceLocations(@NotNull String repository,
+                          @NotNull String repository4,
+                          @NotNull String download,
+                          @NotNull String upload,
+                          @NotNull String workItemTracking,
+                          @NotNull String groupSecurity) {
+    myRepository = repository;
+    myRepository4 = repository4;
+    myDownload = download;
+    myUpload = upload;
+    myWorkItemTracking = workItemTracking;
+    myGroupSecurity = groupSecurity;
+    myTimestamp = System.currentTimeMillis();
+    myRestored = false;
+  }
+
+  @Attribute(value = "repository")
+  public String getRepository() {
+    return myRepository;
+  }
+
+  public void setRepository(String repository) {
+    myRepository = repository;
+  }
+
+  @Attribute(value = "repository4")
+  public String getRepository4() {
+    return myRepository4;
+  }
+
+  public void setRepository4(String repository4) {
+    myRepository4 = repository4;
+  }
+
+  @Attribute(value = "download")
+  public String getDownload() {
+    return myDownload;
+  }
+
+  public void setDownload(String download) {
+    myDownload = download;
+  }
+
+  @Attribute(value = "upload")
+  public String getUpload() {
+    return myUpload;
+  }
+
+  public void setUpload(String upload) {
+    myUpload = upload;
+  }
+
+  @Attribute(value = "workItemTracking")
+  public String getWorkItemTracking() {
+    return myWorkItemTracking;
+  }
+
+  public void setWorkItemTracking(String workItemTracking) {
+    myWorkItemTracking = workItemTracking;
+  }
+
+  @Attribute(value = "groupSecurity")
+  public String getGroupSecurity() {
+    return myGroupSecurity;
+  }
+
+  public void setGroupSecurity(String groupSecurity) {
+    myGroupSecurity = groupSecurity;
+  }
+
+  @Attribute(value = "timestamp")
+  public long getTimestamp() {
+    return myTimestamp;
+  }
+
+  public void setTimestamp(long timestamp) {
+    myTimestamp = timestamp;
+  }
+
+  @Transient
+  public boolean isComplete() {
+    return myRepository != null && myRepository4 != null && myDownload != null && myUpload != null && myWorkItemTracking != null &&
+           myGroupSecurity != null;
+  }
+
+  @Transient
+  public boolean isRestored() {
+    return myRestored;
+  }
+
+  @Transient
+  public boolean isInvalidated() {
+    return myInvalidated;
+  }
+
+  public void invalidate() {
+    myInvalidated = true;
+  }
+}
@@ -42,11 +42,15 @@ import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 @State(name = "org.jetbrains.tfsIntegration.core.configuration.TFSConfigurationManager", storages = @Storage("tfs.xml"))
 public class TFSConfigurationManager implements PersistentStateComponent<TFSConfigurationManager.State> {
   private static final String TFS_NOTIFICATION_GROUP = "TFS";
 
+  private static final long SERVICE_LOCATIONS_TTL =
+    TimeUnit.HOURS.toMillis(Integer.getInteger("org.jetbrains.tfsIntegration.serviceLocationsTtlHours", 24 * 7));
+
   public static class State {
     @OptionTag
     @XMap(entryTagName = "server", keyAttributeName = "uri")
@@ -129,7 +133,14 @@ public class TFSConfigurationManager implements PersistentStateComponent<TFSConf
   }
 
   public void setProxyInaccessible(@NotNull URI serverUri) {
-    getConfiguration(serverUri).setProxyInaccessible();
+    getConfiguration(serverUri).setProxyInaccessible(true);
+  }
+
+  public void setProxyAccessible(@NotNull URI serverUri) {
+    final ServerConfiguration serverConfiguration = getConfiguration(serverUri);
+    if (serverConfiguration != null) {
+      serverConfiguration.setProxyInaccessible(false);
+    }
   }
 
   public void setProxyUri(@NotNull URI serverUri, @Nullable URI proxyUri) {
@@ -147,6 +158,40 @@ public class TFSConfigurationManager implements PersistentStateComponent<TFSConf
     serverConfiguration.setAuthCanceledNotification(null);
   }
 
+  /**
+   * @return service locations persisted for the server, or null if they are not known, expired or invalidated
+   */
+  @Nullable
+  public synchronized ServiceLocations getServiceLocations(@NotNull URI serverUri) {
+    final ServerConfiguration serverConfiguration = getConfiguration(serverUri);
+    ServiceLocations locations = serverConfiguration != null ? serverConfiguration.getServiceLocations() : null;
+    if (locations == null || locations.isInvalidated() || !locations.isComplete()) {
+      return null;
+    }
+    long age = System.currentTimeMillis() - locations.getTimestamp();
+    return age >= 0 && age < SERVICE_LOCATIONS_TTL ? locations : null;
+  }
+
+  public synchronized void storeServiceLocations(@NotNull URI serverUri, @NotNull ServiceLocations locations) {
+    getOrCreateServerConfiguration(serverUri).setServiceLocations(locations);
+  }
+
+  /**
+   * Called when server does not recognize a service at persisted location, e.g. after server upgrade or collection move.
+   *
+   * @return true if locations were restored from previous session, so the failed request may succeed with re-queried ones
+   */
+  public synchronized boolean invalidateServiceLocations(@NotNull URI serverUri) {
+    final ServerConfiguration serverConfiguration = getConfiguration(serverUri);
+    ServiceLocations locations = serverConfiguration != null ? serverConfiguration.getServiceLocations() : null;
+    if (locations == null || !locations.isRestored() || locations.isInvalidated()) {
+      return false;
+    }
+    locations.invalidate();
+    serverConfiguration.setServiceLocations(null);
+    return true;
+  }
+
   public synchronized void resetStoredPasswords() {
     for (ServerConfiguration serverConfiguration : myServersConfig.values()) {
       final Credentials credentials = serverConfiguration.getCredentials();
@@ -240,7 +240,8 @@ public abstract class TFSContentRevision implements ByteBackedContentRevision {
         @Override
         public void write(final OutputStream outputStream) {
           try {
-            myServer.getVCS().downloadItem(myProject, downloadUrl, outputStream, TFSBundle.message("downloading.0", getFile().getName()));
+            myServer.getVCS()
+              .downloadItem(myProject, downloadUrl, outputStream, TFSBundle.message("downloading.0", getFile().getName()), true);
           }
           catch (TfsException e) {
             exception.set(e);
@@ -0,0 +1,216 @@
+package org.jetbrains.tfsIntegration.core.tfs;
+
+import com.intellij.openapi.util.SystemInfo;
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.openapi.vcs.FilePath;
+import com.intellij.util.ArrayUtilRt;
+import com.intellij.util.ConcurrencyUtil;
+import com.intellij.util.containers.ContainerUtil;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Server or local path normalized once: separators are '/', trailing separator is dropped (except for roots like "$/", "/" or "C:/").
+ * Case-folded form and path components are computed once and cached, instances are shared for equal paths while they are in use,
+ * so that hot paths can compare and combine paths without re-parsing strings every time.
+ * <p/>
+ * Server paths are compared case-insensitively, local paths according to file system case sensitivity.
+ * Note that {@link #equals} compares paths as given, use {@link #isEquivalent} to compare regarding case sensitivity.
+ */
+public final class CanonicalPath {
+  private static final char SEPARATOR = '/';
+
+  private static final ConcurrentMap<String, CanonicalPath> ourServerPaths = ContainerUtil.createConcurrentWeakValueMap();
+  private static final ConcurrentMap<String, CanonicalPath> ourLocalPaths = ContainerUtil.createConcurrentWeakValueMap();
+
+  private final boolean myServer;
+  @NotNull private final String myPath;
+  @NotNull private final String myFolded;
+  private volatile String[] myComponents;
+  private volatile String[] myFoldedComponents;
+
+  private CanonicalPath(boolean server, @NotNull String path, boolean ignoreCase) {
+    myServer = server;
+    myPath = path;
+    myFolded = ignoreCase ? StringUtil.toLowerCase(path) : path;
+  }
+
+  @NotNull
+  public static CanonicalPath server(@NotNull String serverPath) {
+    CanonicalPath result = ourServerPaths.get(serverPath);
+    if (result == null) {
+      result = ConcurrencyUtil.cacheOrGet(ourServerPaths, serverPath, new CanonicalPath(true, trimSeparator(serverPath), true));
+    }
+    return result;
+  }
+
+  /**
+   * @param localPath local path with either separators, not in TFS representation
+   */
+  @NotNull
+  public static CanonicalPath local(@NotNull String localPath) {
+    CanonicalPath result = ourLocalPaths.get(localPath);
+    if (result == null) {
+      result = ConcurrencyUtil.cacheOrGet(ourLocalPaths, localPath,
+                                          new CanonicalPath(false, trimSeparator(FileUtil.toSystemIndependentName(localPath)),
+                                                            !SystemInfo.isFileSystemCaseSensitive));
+    }
+    return result;
+  }
+
+  @NotNull
+  public static CanonicalPath local(@NotNull FilePath localPath) {
+    return local(localPath.getPath());
+  }
+
+  @Contract("null -> null; !null -> !null")
+  public static CanonicalPath localFromTfsRepresentation(@Nullable String localPath) {
+    return localPath != null ? local(VersionControlPath.localPathFromTfsRepresentation(localPath)) : null;
+  }
+
+  private static String trimSeparator(@NotNull String path) {
+    int length = path.length();
+    // keep the separator of a root: "$/", "/", "C:/"
+    if (length > 1 && path.charAt(length - 1) == SEPARATOR && path.indexOf(SEPARATOR) != length - 1) {
+      return path.substring(0, length - 1);
+    }
+    return path;
+  }
+
+  public boolean isServer() {
+    return myServer;
+  }
+
+  @NotNull
+  public String getPath() {
+    return myPath;
+  }
+
+  /**
+   * @return path in lower case if it is case-insensitive, path itself otherwise
+   */
+  @NotNull
+  public String getFolded() {
+    return myFolded;
+  }
+
+  /**
+   * @return non-empty path components in original case
+   */
+  @NotNull
+  public String[] getComponents() {
+    String[] result = myComponents;
+    if (result == null) {
+      myComponents = result = split(myPath);
+    }
+    return result;
+  }
+
+  /**
+   * @return non-empty path components in folded case
+   * @see #getFolded()
+   */
+  @NotNull
+  public String[] getFoldedComponents() {
+    String[] result = myFoldedComponents;
+    if (result == null) {
+      //noinspection StringEquality
+      myFoldedComponents = result = myFolded == myPath ? getComponents() : split(myFolded);
+    }
+    return result;
+  }
+
+  private static String[] split(@NotNull String path) {
+    List<String> components = StringUtil.split(path, String.valueOf(SEPARATOR));
+    String[] result = ArrayUtilRt.toStringArray(components);
+    for (int i = 0; i < result.length; i++) {
+      result[i] = VersionControlPath.intern(result[i]);
+    }
+    return result;
+  }
+
+  @NotNull
+  public String getName() {
+    String[] components = getComponents();
+    return components.length > 0 ? components[components.length - 1] : myPath;
+  }
+
+  public boolean isRoot() {
+    return myPath.isEmpty() || myPath.charAt(myPath.length() - 1) == SEPARATOR;
+  }
+
+  @Nullable
+  public CanonicalPath getParent() {
+    if (isRoot()) {
+      return null;
+    }
+    int index = myPath.lastIndexOf(SEPARATOR);
+    if (index < 0) {
+      return null;
+    }
+    // parent of the first level item is a root and keeps its separator
+    String parent = myPath.substring(0, myPath.indexOf(SEPARATOR) == index ? index + 1 : index);
+    return myServer ? server(parent) : local(parent);
+  }
+
+  @NotNull
+  public CanonicalPath getChild(@NotNull String name) {
+    String child = isRoot() ? myPath + name : myPath + SEPARATOR + name;
+    return myServer ? server(child) : local(child);
+  }
+
+  /**
+   * @return true if given path is under (or, if not {@code strict}, equivalent to) this path
+   */
+  public boolean isAncestorOf(@NotNull CanonicalPath path, boolean strict) {
+    if (myServer != path.myServer || !path.myFolded.startsWith(myFolded)) {
+      return false;
+    }
+    if (path.myFolded.length() == myFolded.length()) {
+      return !strict;
+    }
+    return isRoot() || path.myFolded.charAt(myFolded.length()) == SEPARATOR;
+  }
+
+  public boolean isEquivalent(@Nullable CanonicalPath path) {
+    return path != null && myServer == path.myServer && myFolded.equals(path.myFolded);
+  }
+
+  /**
+   * @return part of given path below this one ("" for equivalent path), or null if given path is not under this one
+   */
+  @Nullable
+  public String getRelativePath(@NotNull CanonicalPath descendant) {
+    if (!isAncestorOf(descendant, false)) {
+      return null;
+    }
+    if (descendant.myPath.length() == myPath.length()) {
+      return "";
+    }
+    return descendant.myPath.substring(isRoot() ? myPath.length() : myPath.length() + 1);
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) return true;
+    if (o == null || getClass() != o.getClass()) return false;
+
+    CanonicalPath path = (CanonicalPath)o;
+    return myServer == path.myServer && myPath.equals(path.myPath);
+  }
+
+  @Override
+  public int hashCode() {
+    return 31 * myPath.hashCode() + (myServer ? 1 : 0);
+  }
+
+  @Override
+  public String toString() {
+    return myPath;
+  }
+}
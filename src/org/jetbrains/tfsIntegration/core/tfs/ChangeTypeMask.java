@@ -1,70 +1,93 @@
 package org.jetbrains.tfsIntegration.core.tfs;
 
-import com.intellij.openapi.util.text.StringUtil;
-import com.intellij.util.ArrayUtil;
 import com.microsoft.schemas.teamfoundation._2005._06.versioncontrol.clientservices._03.ChangeType;
 import com.microsoft.schemas.teamfoundation._2005._06.versioncontrol.clientservices._03.ChangeType_type0;
 import org.jetbrains.annotations.Nullable;
 
 public class ChangeTypeMask {
-  @Nullable
-  private ChangeType_type0[] myValues;
+  // bit index of a value is its index in this array
+  private static final ChangeType_type0[] ALL_VALUES = {
+    ChangeType_type0.None, ChangeType_type0.Add, ChangeType_type0.Edit, ChangeType_type0.Encoding, ChangeType_type0.Rename,
+    ChangeType_type0.Delete, ChangeType_type0.Undelete, ChangeType_type0.Branch, ChangeType_type0.Merge, ChangeType_type0.Lock,
+    ChangeType_type0.Rollback, ChangeType_type0.SourceRename, ChangeType_type0.Property};
 
-  public ChangeTypeMask(ChangeType changeType) {
-    myValues = changeType != null ? changeType.getChangeType_type0() : null;
+  // no change type reported at all: nothing is contained, not even an empty set
+  static final int UNDEFINED = -1;
+
+  private int myBits;
+
+  public ChangeTypeMask(@Nullable ChangeType changeType) {
+    this(toBits(changeType));
   }
 
-  public boolean containsAll(final ChangeType_type0... values) {
-    if (myValues == null) {
-      return false;
-    }
+  ChangeTypeMask(int bits) {
+    myBits = bits;
+  }
+
+  static int toBits(@Nullable ChangeType changeType) {
+    ChangeType_type0[] values = changeType != null ? changeType.getChangeType_type0() : null;
+    return values != null ? toBits(values) : UNDEFINED;
+  }
 
+  private static int toBits(ChangeType_type0... values) {
+    int result = 0;
     for (ChangeType_type0 value : values) {
-      if (!ArrayUtil.contains(value, myValues)) {
-        return false;
-      }
+      result |= bit(value);
     }
-    return true;
+    return result;
   }
 
-  public boolean contains(final ChangeType_type0 value) {
-    return containsAny(value);
+  private static int bit(ChangeType_type0 value) {
+    for (int i = 0; i < ALL_VALUES.length; i++) {
+      if (ALL_VALUES[i] == value) {
+        return 1 << i;
+      }
+    }
+    // not a canonical instance, should not happen for parsed values
+    for (int i = 0; i < ALL_VALUES.length; i++) {
+      if (ALL_VALUES[i].equals(value)) {
+        return 1 << i;
+      }
+    }
+    return 0;
   }
 
-  public boolean containsAny(final ChangeType_type0... values) {
-    if (myValues == null) {
+  public boolean containsAll(final ChangeType_type0... values) {
+    if (myBits == UNDEFINED) {
       return false;
     }
 
-    for (ChangeType_type0 value : values) {
-      if (ArrayUtil.contains(value, myValues)) {
-        return true;
-      }
-    }
-    return false;
+    int bits = toBits(values);
+    return (myBits & bits) == bits;
+  }
+
+  public boolean contains(final ChangeType_type0 value) {
+    return myBits != UNDEFINED && (myBits & bit(value)) != 0;
+  }
+
+  public boolean containsAny(final ChangeType_type0... values) {
+    return myBits != UNDEFINED && (myBits & toBits(values)) != 0;
   }
 
   public boolean containsOnly(final ChangeType_type0... values) {
-    return myValues != null && myValues.length == values.length && containsAll(values);
+    return myBits != UNDEFINED && myBits == toBits(values);
   }
 
 
   public void remove(ChangeType_type0... values) {
-    if (myValues == null) {
+    if (myBits == UNDEFINED) {
       return;
     }
 
-    for (ChangeType_type0 value : values) {
-      myValues = ArrayUtil.remove(myValues, value);
-    }
+    myBits &= ~toBits(values);
   }
 
   public boolean isEmpty() {
-    return myValues == null || myValues.length == 0;
+    return myBits == UNDEFINED || myBits == 0;
   }
 
   public int size() {
-    return myValues != null ? myValues.length : 0;
+    return isEmpty() ? 0 : Integer.bitCount(myBits);
   }
 
   @Override
@@ -73,8 +96,16 @@ public class ChangeTypeMask {
       return "(empty)";
     }
     else {
-      //noinspection ConstantConditions
-      return StringUtil.join(myValues, changeType_type0 -> changeType_type0.getValue(), ",");
+      StringBuilder result = new StringBuilder();
+      for (int i = 0; i < ALL_VALUES.length; i++) {
+        if ((myBits & (1 << i)) != 0) {
+          if (result.length() > 0) {
+            result.append(",");
+          }
+          result.append(ALL_VALUES[i].getValue());
+        }
+      }
+      return result.toString();
     }
   }
 }
@@ -0,0 +1,94 @@
+package org.jetbrains.tfsIntegration.core.tfs;
+
+import com.microsoft.schemas.teamfoundation._2005._06.versioncontrol.clientservices._03.ExtendedItem;
+import com.microsoft.schemas.teamfoundation._2005._06.versioncontrol.clientservices._03.ItemType;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Immutable snapshot of the {@link ExtendedItem} fields needed to determine item status.
+ * Created right after the response is parsed so that the bean (with its calendars, properties, encodings etc.) can be released.
+ */
+public final class ExtendedItemInfo {
+  private final int myItemId;
+  private final boolean myFolder;
+  private final int myLocalVersion;
+  private final int myLatestVersion;
+  @Nullable private final CanonicalPath myLocal;
+  @Nullable private final String mySourceItem;
+  @Nullable private final String myTargetItem;
+  private final int myChange;
+
+  private ExtendedItemInfo(int itemId,
+                           boolean folder,
+                           int localVersion,
+                           int latestVersion,
+                           @Nullable CanonicalPath local,
+                           @Nullable String sourceItem,
+                           @Nullable String targetItem,
+                           int change) {
+    myItemId = itemId;
+    myFolder = folder;
+    myLocalVersion = localVersion;
+    myLatestVersion = latestVersion;
+    myLocal = local;
+    mySourceItem = sourceItem;
+    myTargetItem = targetItem;
+    myChange = change;
+  }
+
+  @NotNull
+  public static ExtendedItemInfo from(@NotNull ExtendedItem item) {
+    return new ExtendedItemInfo(item.getItemid(), item.getType() == ItemType.Folder, item.getLver(), item.getLatest(),
+                                CanonicalPath.localFromTfsRepresentation(item.getLocal()),
+                                VersionControlPath.intern(item.getSitem()), VersionControlPath.intern(item.getTitem()),
+                                ChangeTypeMask.toBits(item.getChg()));
+  }
+
+  public int getItemId() {
+    return myItemId;
+  }
+
+  public boolean isFolder() {
+    return myFolder;
+  }
+
+  /**
+   * @return local version, {@link Integer#MIN_VALUE} if item is not downloaded
+   */
+  public int getLocalVersion() {
+    return myLocalVersion;
+  }
+
+  /**
+   * @return latest version, {@link Integer#MIN_VALUE} if item does not exist on server yet
+   */
+  public int getLatestVersion() {
+    return myLatestVersion;
+  }
+
+  @Nullable
+  public CanonicalPath getLocal() {
+    return myLocal;
+  }
+
+  @Nullable
+  public String getSourceItem() {
+    return mySourceItem;
+  }
+
+  @Nullable
+  public String getTargetItem() {
+    return myTargetItem;
+  }
+
+  @NotNull
+  public ChangeTypeMask getChange() {
+    return new ChangeTypeMask(myChange);
+  }
+
+  @Override
+  public String toString() {
+    return "ExtendedItemInfo[" + myItemId + ", " + myTargetItem + "]";
+  }
+}
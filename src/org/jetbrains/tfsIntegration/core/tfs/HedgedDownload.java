@@ -0,0 +1,181 @@
+package org.jetbrains.tfsIntegration.core.tfs;
+
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.progress.ProcessCanceledException;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.util.ExceptionUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.tfsIntegration.core.TfsTrace;
+import org.jetbrains.tfsIntegration.core.configuration.ProxyMonitor;
+import org.jetbrains.tfsIntegration.webservice.AbortableRequest;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.LongConsumer;
+
+/**
+ * Download of a single file someone is waiting for (diff, annotation or merge content) hedged between the TFS proxy and the server:
+ * if the primary endpoint has not responded within {@code org.jetbrains.tfsIntegration.hedgePercentile} percentile of its time to
+ * response headers, the file is requested from the other endpoint as well. A primary download that has responded and is
+ * still transferring is not hedged. The first complete download wins, the other one is aborted.
+ * <p/>
+ * Since it adds load to both endpoints, hedging is off unless {@code -Dorg.jetbrains.tfsIntegration.hedgedDownloads=true} is set.
+ */
+final class HedgedDownload {
+  private static final Logger LOG = Logger.getInstance(HedgedDownload.class.getName());
+
+  private static final boolean ENABLED = Boolean.getBoolean("org.jetbrains.tfsIntegration.hedgedDownloads");
+  private static final int PERCENTILE = Integer.getInteger("org.jetbrains.tfsIntegration.hedgePercentile", 95);
+  private static final long POLL_INTERVAL_MS = 50;
+
+  interface Download {
+    /**
+     * @param responseTimeConsumer to be called when response headers are received
+     */
+    void execute(boolean viaProxy, @NotNull OutputStream outputStream, @NotNull LongConsumer responseTimeConsumer) throws Exception;
+  }
+
+  private HedgedDownload() {
+  }
+
+  /**
+   * @return time to wait for the primary endpoint before requesting the other one, or -1 if the download should not be hedged
+   */
+  static long getDelayMs(@NotNull ProxyMonitor proxyMonitor, boolean primaryViaProxy) {
+    if (!ENABLED || !proxyMonitor.isProxyAvailable()) {
+      return -1;
+    }
+    return proxyMonitor.getResponseTimePercentileMs(primaryViaProxy, PERCENTILE);
+  }
+
+  /**
+   * @throws Exception failure of the primary download if both failed
+   */
+  static void execute(@NotNull OutputStream outputStream, boolean primaryViaProxy, long delayMs, @NotNull Download download)
+    throws Exception {
+    long hedgeTime = System.currentTimeMillis() + delayMs;
+    Attempt primary = new Attempt(primaryViaProxy, download);
+    Attempt alternate = null;
+    try {
+      Attempt winner;
+      while (true) {
+        if (primary.isSucceeded()) {
+          winner = primary;
+          break;
+        }
+        if (alternate != null && alternate.isSucceeded()) {
+          winner = alternate;
+          break;
+        }
+        if (primary.isFailed() && (alternate == null || alternate.isFailed())) {
+          Throwable failure = primary.getFailure();
+          ExceptionUtil.rethrowUnchecked(failure);
+          throw (Exception)failure;
+        }
+        if (alternate == null && !primary.hasResponded() && System.currentTimeMillis() >= hedgeTime) {
+          LOG.debug("No response " + (primaryViaProxy ? "via proxy" : "from server") + " within " + delayMs + " ms, hedging");
+          alternate = new Attempt(!primaryViaProxy, download);
+        }
+        ProgressManager.checkCanceled();
+        primary.await(alternate);
+      }
+      outputStream.write(winner.getContent());
+    }
+    finally {
+      primary.abort();
+      if (alternate != null) {
+        alternate.abort();
+      }
+    }
+  }
+
+  private static class Attempt {
+    private final AbortableRequest myRequest = new AbortableRequest();
+    private final CompletableFuture<byte[]> myResult = new CompletableFuture<>();
+    private final CompletableFuture<Void> myResponded = new CompletableFuture<>();
+
+    Attempt(final boolean viaProxy, @NotNull final Download download) {
+      final long correlationId = TfsTrace.getCorrelationId();
+      ApplicationManager.getApplication().executeOnPooledThread(() -> {
+        try {
+          ByteArrayOutputStream content = new ByteArrayOutputStream();
+          AbortableRequest.computeWith(myRequest, () -> TfsTrace.computeWithCorrelationId(correlationId, () -> {
+            download.execute(viaProxy, content, responseMs -> myResponded.complete(null));
+            return null;
+          }));
+          myResult.complete(content.toByteArray());
+        }
+        catch (Throwable e) {
+          myResult.completeExceptionally(e);
+        }
+      });
+    }
+
+    /**
+     * @return true if response headers were received or the download failed before that
+     */
+    boolean hasResponded() {
+      return myResponded.isDone() || myResult.isDone();
+    }
+
+    boolean isSucceeded() {
+      return myResult.isDone() && !myResult.isCompletedExceptionally();
+    }
+
+    boolean isFailed() {
+      return myResult.isCompletedExceptionally();
+    }
+
+    @NotNull
+    byte[] getContent() {
+      return myResult.join();
+    }
+
+    @NotNull
+    Throwable getFailure() {
+      try {
+        myResult.join();
+        throw new IllegalStateException("Download did not fail");
+      }
+      catch (CompletionException e) {
+        return e.getCause();
+      }
+    }
+
+    /**
+     * Waits a bit for this or the other attempt, whichever is still running, to complete.
+     */
+    void await(@Nullable Attempt other) {
+      CompletableFuture<?> any;
+      if (other == null || other.myResult.isDone()) {
+        any = myResult;
+      }
+      else if (myResult.isDone()) {
+        any = other.myResult;
+      }
+      else {
+        any = CompletableFuture.anyOf(myResult, other.myResult);
+      }
+      try {
+        any.get(POLL_INTERVAL_MS, TimeUnit.MILLISECONDS);
+      }
+      catch (InterruptedException e) {
+        throw new ProcessCanceledException(e);
+      }
+      catch (ExecutionException | TimeoutException e) {
+        // checked by the caller
+      }
+    }
+
+    void abort() {
+      myRequest.abort();
+    }
+  }
+}
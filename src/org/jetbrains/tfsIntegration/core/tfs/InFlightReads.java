@@ -0,0 +1,108 @@
+package org.jetbrains.tfsIntegration.core.tfs;
+
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.progress.ProcessCanceledException;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.util.Pair;
+import com.intellij.openapi.util.ThrowableComputable;
+import com.intellij.util.ExceptionUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.tfsIntegration.exceptions.TfsException;
+import org.jetbrains.tfsIntegration.exceptions.UserCancelledException;
+import org.jetbrains.tfsIntegration.webservice.RequestPriority;
+import org.jetbrains.tfsIntegration.webservice.TfsRequestMetrics;
+
+import java.net.URI;
+import java.util.concurrent.*;
+
+/**
+ * Read-only requests to a server that are being executed right now. A caller issuing the same request (equal key) while it is
+ * in flight waits for the result of the first caller instead of making a duplicate SOAP call: change provider, diff provider,
+ * annotations and file status refresh often ask for the same item at the same time.
+ * <p/>
+ * The result is shared by all the callers, so it must not be modified. Requests made in the dispatch thread are never coalesced
+ * since waiting there would block UI. Requests of different {@link RequestPriority} are not coalesced either, so that an interactive
+ * caller does not wait for a request queued for the server at background priority. Set
+ * {@code org.jetbrains.tfsIntegration.disableReadCoalescing} to turn coalescing off.
+ */
+class InFlightReads {
+  private static final Logger LOG = Logger.getInstance(InFlightReads.class.getName());
+
+  private static final boolean ENABLED = !Boolean.getBoolean("org.jetbrains.tfsIntegration.disableReadCoalescing");
+
+  static final Object FIRST_CALLER_CANCELLED = new Object();
+
+  private final URI myServerUri;
+  private final ConcurrentMap<Object, CompletableFuture<Object>> myInFlight = new ConcurrentHashMap<>();
+
+  InFlightReads(@NotNull URI serverUri) {
+    myServerUri = serverUri;
+  }
+
+  /**
+   * @param key identifies the request, equal keys must mean the same request and the same result
+   */
+  <T> T execute(@NotNull Object key, @NotNull ThrowableComputable<T, TfsException> request) throws TfsException {
+    if (!ENABLED || ApplicationManager.getApplication().isDispatchThread()) {
+      return request.compute();
+    }
+
+    Object priorityKey = Pair.create(key, RequestPriority.getCurrent());
+    CompletableFuture<Object> future = new CompletableFuture<>();
+    CompletableFuture<Object> inFlight = myInFlight.putIfAbsent(priorityKey, future);
+    TfsRequestMetrics.getInstance().getServer(myServerUri).readRequested(inFlight != null);
+    if (inFlight == null) {
+      try {
+        T result = request.compute();
+        future.complete(result);
+        return result;
+      }
+      catch (TfsException | RuntimeException | Error e) {
+        future.completeExceptionally(e);
+        throw e;
+      }
+      finally {
+        myInFlight.remove(priorityKey, future);
+      }
+    }
+
+    Object result = await(inFlight);
+    if (result == FIRST_CALLER_CANCELLED) {
+      return request.compute();
+    }
+    //noinspection unchecked
+    return (T)result;
+  }
+
+  /**
+   * @return result of the request executed by another caller, or {@link #FIRST_CALLER_CANCELLED} if that caller was cancelled
+   */
+  static Object await(@NotNull Future<Object> future) throws TfsException {
+    while (true) {
+      ProgressManager.checkCanceled();
+      try {
+        return future.get(50, TimeUnit.MILLISECONDS);
+      }
+      catch (TimeoutException e) {
+        // check cancellation and wait again
+      }
+      catch (InterruptedException e) {
+        throw new ProcessCanceledException(e);
+      }
+      catch (ExecutionException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof ProcessCanceledException || cause instanceof UserCancelledException) {
+          // it's the first caller who was cancelled, not us
+          return FIRST_CALLER_CANCELLED;
+        }
+        if (cause instanceof TfsException) {
+          throw (TfsException)cause;
+        }
+        ExceptionUtil.rethrowUnchecked(cause);
+        LOG.error(cause);
+        throw new TfsException(cause);
+      }
+    }
+  }
+}
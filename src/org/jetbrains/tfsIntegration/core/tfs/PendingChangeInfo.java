@@ -0,0 +1,81 @@
+package org.jetbrains.tfsIntegration.core.tfs;
+
+import com.microsoft.schemas.teamfoundation._2005._06.versioncontrol.clientservices._03.ItemType;
+import com.microsoft.schemas.teamfoundation._2005._06.versioncontrol.clientservices._03.PendingChange;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Immutable snapshot of the {@link PendingChange} fields needed to determine item status.
+ * Created right after the response is parsed so that the bean (with its dates, download urls, properties etc.) can be released.
+ */
+public final class PendingChangeInfo {
+  private final int myItemId;
+  private final boolean myFolder;
+  private final int myVersion;
+  @Nullable private final CanonicalPath myLocal;
+  @Nullable private final String mySourceItem;
+  @Nullable private final String myItem;
+  private final int myChange;
+
+  private PendingChangeInfo(int itemId,
+                            boolean folder,
+                            int version,
+                            @Nullable CanonicalPath local,
+                            @Nullable String sourceItem,
+                            @Nullable String item,
+                            int change) {
+    myItemId = itemId;
+    myFolder = folder;
+    myVersion = version;
+    myLocal = local;
+    mySourceItem = sourceItem;
+    myItem = item;
+    myChange = change;
+  }
+
+  @NotNull
+  public static PendingChangeInfo from(@NotNull PendingChange pendingChange) {
+    return new PendingChangeInfo(pendingChange.getItemid(), pendingChange.getType() == ItemType.Folder, pendingChange.getVer(),
+                                 CanonicalPath.localFromTfsRepresentation(pendingChange.getLocal()),
+                                 VersionControlPath.intern(pendingChange.getSrcitem()), VersionControlPath.intern(pendingChange.getItem()),
+                                 ChangeTypeMask.toBits(pendingChange.getChg()));
+  }
+
+  public int getItemId() {
+    return myItemId;
+  }
+
+  public boolean isFolder() {
+    return myFolder;
+  }
+
+  public int getVersion() {
+    return myVersion;
+  }
+
+  @Nullable
+  public CanonicalPath getLocal() {
+    return myLocal;
+  }
+
+  @Nullable
+  public String getSourceItem() {
+    return mySourceItem;
+  }
+
+  @Nullable
+  public String getItem() {
+    return myItem;
+  }
+
+  @NotNull
+  public ChangeTypeMask getChange() {
+    return new ChangeTypeMask(myChange);
+  }
+
+  @Override
+  public String toString() {
+    return "PendingChangeInfo[" + myItemId + ", " + myItem + "]";
+  }
+}
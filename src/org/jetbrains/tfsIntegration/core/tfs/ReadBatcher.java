@@ -0,0 +1,186 @@
+package org.jetbrains.tfsIntegration.core.tfs;
+
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.progress.ProcessCanceledException;
+import com.intellij.openapi.util.Pair;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.tfsIntegration.exceptions.TfsException;
+import org.jetbrains.tfsIntegration.exceptions.UserCancelledException;
+import org.jetbrains.tfsIntegration.webservice.RequestPriority;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Merges single-item read requests to a server that arrive within a short window into one multi-item request. The first caller
+ * opens a batch, waits for {@code org.jetbrains.tfsIntegration.readBatchWindowMs} (or until the batch is full), executes the request
+ * for all the items collected meanwhile and hands the results out to the callers waiting for them.
+ * <p/>
+ * Only requests that differ in item alone may be merged, so callers pass a batch key built from the rest of request parameters.
+ * Batching is off by default (window of 0 ms) since it delays every single request by the window. Requests made in the dispatch
+ * thread are never batched, and requests of different {@link RequestPriority} are batched separately.
+ * <p/>
+ * If the merged request fails, one bad item must not fail the others: every caller then executes the request for its own item.
+ */
+class ReadBatcher {
+  private static final int WINDOW_MS = Integer.getInteger("org.jetbrains.tfsIntegration.readBatchWindowMs", 0);
+  private static final int MAX_BATCH_SIZE = Integer.getInteger("org.jetbrains.tfsIntegration.requestGroupSize", 200);
+
+  interface BatchRequest<S, R> {
+    /**
+     * @return results in the same order as items
+     */
+    List<R> execute(List<S> items) throws TfsException;
+  }
+
+  // waiters of a failed batch request their items themselves
+  private static final Object EXECUTE_SEPARATELY = new Object();
+
+  private final int myWindowMs;
+  private final int myMaxBatchSize;
+  private final ConcurrentMap<Object, Batch<?>> myOpenBatches = new ConcurrentHashMap<>();
+
+  ReadBatcher() {
+    this(WINDOW_MS, MAX_BATCH_SIZE);
+  }
+
+  ReadBatcher(int windowMs, int maxBatchSize) {
+    myWindowMs = windowMs;
+    myMaxBatchSize = maxBatchSize;
+  }
+
+  /**
+   * @param batchKey identifies the request except for the item, requests with equal keys are merged
+   */
+  <S, R> R execute(@NotNull Object batchKey, @NotNull S item, @NotNull BatchRequest<S, R> request) throws TfsException {
+    if (myWindowMs <= 0 || ApplicationManager.getApplication().isDispatchThread()) {
+      return request.execute(Collections.singletonList(item)).get(0);
+    }
+
+    Object priorityKey = Pair.create(batchKey, RequestPriority.getCurrent());
+    while (true) {
+      //noinspection unchecked
+      Batch<S> batch = (Batch<S>)myOpenBatches.computeIfAbsent(priorityKey, key -> new Batch<S>(myWindowMs, myMaxBatchSize));
+      CompletableFuture<Object> future = batch.add(item);
+      if (future == null) {
+        // batch is full or being executed already, open another one
+        myOpenBatches.remove(priorityKey, batch);
+        continue;
+      }
+
+      if (!batch.isFirst(future)) {
+        Object result = InFlightReads.await(future);
+        if (result == InFlightReads.FIRST_CALLER_CANCELLED || result == EXECUTE_SEPARATELY) {
+          return request.execute(Collections.singletonList(item)).get(0);
+        }
+        //noinspection unchecked
+        return (R)result;
+      }
+
+      // first caller executes the batch
+      List<S> items;
+      try {
+        items = batch.awaitAndClose();
+      }
+      finally {
+        myOpenBatches.remove(priorityKey, batch);
+      }
+      List<R> results;
+      try {
+        results = request.execute(items);
+      }
+      catch (ProcessCanceledException | UserCancelledException e) {
+        // let the ones who joined execute their requests themselves
+        batch.complete(null, e);
+        throw e;
+      }
+      catch (TfsException | RuntimeException e) {
+        if (items.size() == 1) {
+          throw e;
+        }
+        batch.complete(null, null);
+        return request.execute(Collections.singletonList(item)).get(0);
+      }
+      catch (Error e) {
+        batch.complete(null, e);
+        throw e;
+      }
+      batch.complete(results, null);
+      return results.get(0);
+    }
+  }
+
+  private static class Batch<S> {
+    private final long myStart = System.currentTimeMillis();
+    private final int myWindowMs;
+    private final int myMaxBatchSize;
+    private final List<S> myItems = new ArrayList<>();
+    private final List<CompletableFuture<Object>> myFutures = new ArrayList<>();
+    private boolean myClosed;
+
+    Batch(int windowMs, int maxBatchSize) {
+      myWindowMs = windowMs;
+      myMaxBatchSize = maxBatchSize;
+    }
+
+    @Nullable
+    synchronized CompletableFuture<Object> add(@NotNull S item) {
+      if (myClosed || myItems.size() >= myMaxBatchSize) {
+        return null;
+      }
+      CompletableFuture<Object> result = new CompletableFuture<>();
+      myItems.add(item);
+      myFutures.add(result);
+      if (myItems.size() >= myMaxBatchSize) {
+        notifyAll();
+      }
+      return result;
+    }
+
+    synchronized boolean isFirst(@NotNull CompletableFuture<Object> future) {
+      return myFutures.get(0) == future;
+    }
+
+    synchronized List<S> awaitAndClose() {
+      try {
+        long remaining;
+        while (myItems.size() < myMaxBatchSize && (remaining = myStart + myWindowMs - System.currentTimeMillis()) > 0) {
+          wait(remaining);
+        }
+      }
+      catch (InterruptedException e) {
+        // let the ones who joined execute their requests themselves
+        complete(null, new ProcessCanceledException(e));
+        throw new ProcessCanceledException(e);
+      }
+      finally {
+        myClosed = true;
+      }
+      return new ArrayList<>(myItems);
+    }
+
+    /**
+     * Hands results out to the callers waiting for them. If neither results nor error is given, the callers are told to execute
+     * their requests themselves.
+     */
+    synchronized void complete(@Nullable List<?> results, @Nullable Throwable error) {
+      myClosed = true;
+      for (int i = 1; i < myFutures.size(); i++) {
+        if (results != null) {
+          myFutures.get(i).complete(results.get(i));
+        }
+        else if (error != null) {
+          myFutures.get(i).completeExceptionally(error);
+        }
+        else {
+          myFutures.get(i).complete(EXECUTE_SEPARATELY);
+        }
+      }
+    }
+  }
+}
@@ -119,6 +119,13 @@ public class ServerInfo {
 
   public void refreshWorkspacesForCurrentOwnerAndComputer(Object projectOrComponent, boolean force) throws TfsException {
     Workspace[] newWorkspaces = getVCS().queryWorkspaces(Workstation.getComputerName(), projectOrComponent, force);
+    setWorkspacesForCurrentOwnerAndComputer(newWorkspaces);
+  }
+
+  /**
+   * Replaces workspaces of current owner with the given ones, e.g. queried from server in background
+   */
+  public void setWorkspacesForCurrentOwnerAndComputer(@NotNull Workspace[] newWorkspaces) {
     String owner = getQualifiedUsername();
     LOG.assertTrue(owner != null);
 
@@ -17,9 +17,6 @@
 package org.jetbrains.tfsIntegration.core.tfs;
 
 import com.intellij.openapi.vcs.FilePath;
-import com.microsoft.schemas.teamfoundation._2005._06.versioncontrol.clientservices._03.ExtendedItem;
-import com.microsoft.schemas.teamfoundation._2005._06.versioncontrol.clientservices._03.ItemType;
-import com.microsoft.schemas.teamfoundation._2005._06.versioncontrol.clientservices._03.PendingChange;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.jetbrains.tfsIntegration.exceptions.TfsException;
@@ -43,14 +40,14 @@ public abstract class ServerStatus {
     this.targetItem = targetItem;
   }
 
-  protected ServerStatus(final @NotNull PendingChange pendingChange) {
-    this(pendingChange.getVer(), pendingChange.getItemid(), pendingChange.getType() == ItemType.Folder, pendingChange.getSrcitem(),
+  protected ServerStatus(final @NotNull PendingChangeInfo pendingChange) {
+    this(pendingChange.getVersion(), pendingChange.getItemId(), pendingChange.isFolder(), pendingChange.getSourceItem(),
          pendingChange.getItem());
   }
 
-  protected ServerStatus(final @NotNull ExtendedItem extendedItem) {
-    this(extendedItem.getLver(), extendedItem.getItemid(), extendedItem.getType() == ItemType.Folder, extendedItem.getSitem(),
-         extendedItem.getTitem());
+  protected ServerStatus(final @NotNull ExtendedItemInfo extendedItem) {
+    this(extendedItem.getLocalVersion(), extendedItem.getItemId(), extendedItem.isFolder(), extendedItem.getSourceItem(),
+         extendedItem.getTargetItem());
   }
 
   public abstract void visitBy(final @NotNull FilePath localPath, final boolean localItemExists, final @NotNull StatusVisitor statusVisitor)
@@ -87,11 +84,11 @@ public abstract class ServerStatus {
   }*/
 
   public static class CheckedOutForEdit extends ServerStatus {
-    protected CheckedOutForEdit(final @NotNull PendingChange pendingChange) {
+    protected CheckedOutForEdit(final @NotNull PendingChangeInfo pendingChange) {
       super(pendingChange);
     }
 
-    public CheckedOutForEdit(final @NotNull ExtendedItem item) {
+    public CheckedOutForEdit(final @NotNull ExtendedItemInfo item) {
       super(item);
     }
 
@@ -103,11 +100,11 @@ public abstract class ServerStatus {
   }
 
   public static class ScheduledForAddition extends ServerStatus {
-    protected ScheduledForAddition(final @NotNull PendingChange pendingChange) {
+    protected ScheduledForAddition(final @NotNull PendingChangeInfo pendingChange) {
       super(pendingChange);
     }
 
-    protected ScheduledForAddition(final @NotNull ExtendedItem extendedItem) {
+    protected ScheduledForAddition(final @NotNull ExtendedItemInfo extendedItem) {
       super(extendedItem);
     }
 
@@ -119,11 +116,11 @@ public abstract class ServerStatus {
   }
 
   public static class ScheduledForDeletion extends ServerStatus {
-    protected ScheduledForDeletion(final @NotNull PendingChange pendingChange) {
+    protected ScheduledForDeletion(final @NotNull PendingChangeInfo pendingChange) {
       super(pendingChange);
     }
 
-    public ScheduledForDeletion(final @NotNull ExtendedItem item) {
+    public ScheduledForDeletion(final @NotNull ExtendedItemInfo item) {
       super(item);
     }
 
@@ -135,7 +132,7 @@ public abstract class ServerStatus {
   }
 
   public static class OutOfDate extends ServerStatus {
-    protected OutOfDate(final @NotNull ExtendedItem extendedItem) {
+    protected OutOfDate(final @NotNull ExtendedItemInfo extendedItem) {
       super(extendedItem);
     }
 
@@ -147,7 +144,7 @@ public abstract class ServerStatus {
   }
 
   public static class UpToDate extends ServerStatus {
-    protected UpToDate(final @NotNull ExtendedItem extendedItem) {
+    protected UpToDate(final @NotNull ExtendedItemInfo extendedItem) {
       super(extendedItem);
     }
 
@@ -159,11 +156,11 @@ public abstract class ServerStatus {
   }
 
   public static class Renamed extends ServerStatus {
-    protected Renamed(final @NotNull PendingChange pendingChange) {
+    protected Renamed(final @NotNull PendingChangeInfo pendingChange) {
       super(pendingChange);
     }
 
-    public Renamed(final @NotNull ExtendedItem item) {
+    public Renamed(final @NotNull ExtendedItemInfo item) {
       super(item);
     }
 
@@ -175,11 +172,11 @@ public abstract class ServerStatus {
   }
 
   public static class RenamedCheckedOut extends ServerStatus {
-    protected RenamedCheckedOut(final @NotNull PendingChange pendingChange) {
+    protected RenamedCheckedOut(final @NotNull PendingChangeInfo pendingChange) {
       super(pendingChange);
     }
 
-    public RenamedCheckedOut(final @NotNull ExtendedItem item) {
+    public RenamedCheckedOut(final @NotNull ExtendedItemInfo item) {
       super(item);
     }
 
@@ -191,11 +188,11 @@ public abstract class ServerStatus {
   }
 
   public static class Undeleted extends ServerStatus {
-    protected Undeleted(final @NotNull PendingChange pendingChange) {
+    protected Undeleted(final @NotNull PendingChangeInfo pendingChange) {
       super(pendingChange);
     }
 
-    public Undeleted(final @NotNull ExtendedItem item) {
+    public Undeleted(final @NotNull ExtendedItemInfo item) {
       super(item);
     }
 
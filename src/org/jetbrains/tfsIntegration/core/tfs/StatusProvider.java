@@ -28,9 +28,9 @@ import org.jetbrains.annotations.Nullable;
 import org.jetbrains.tfsIntegration.core.TFSBundle;
 import org.jetbrains.tfsIntegration.core.TFSProgressUtil;
 import org.jetbrains.tfsIntegration.core.TFSVcs;
+import org.jetbrains.tfsIntegration.core.TfsTrace;
 import org.jetbrains.tfsIntegration.exceptions.TfsException;
 
-import java.io.File;
 import java.util.*;
 
 // Note: if item is renamed (moved), same local item and pending change reported by server for source and target names
@@ -47,6 +47,21 @@ public class StatusProvider {
       return;
     }
 
+    VersionControlServer.ExtendedItemsAndPendingChanges extendedItemsAndPendingChanges =
+      queryStatus(workspace, roots, recursive, projectOrComponent);
+    visitByStatus(roots, recursive, extendedItemsAndPendingChanges, progress, statusVisitor);
+  }
+
+  /**
+   * Queries server state of given roots. Does not touch anything but the server, so can be called for several workspaces concurrently,
+   * and the result is then passed to {@link #visitByStatus(List, boolean, VersionControlServer.ExtendedItemsAndPendingChanges, ProgressIndicator, StatusVisitor)}
+   */
+  public static VersionControlServer.ExtendedItemsAndPendingChanges queryStatus(final @NotNull WorkspaceInfo workspace,
+                                                                               final List<? extends ItemPath> roots,
+                                                                               boolean recursive,
+                                                                               Object projectOrComponent) throws TfsException {
+    TfsTrace.StatusEvent event = new TfsTrace.StatusEvent();
+    event.begin();
     List<ItemSpec> itemSpecs = new ArrayList<>(roots.size());
     for (ItemPath root : roots) {
       final VirtualFile file = root.getLocalPath().getVirtualFile();
@@ -55,18 +70,55 @@ public class StatusProvider {
       itemSpecs.add(VersionControlServer.createItemSpec(root.getLocalPath(), recursionType));
     }
 
-    VersionControlServer.ExtendedItemsAndPendingChanges extendedItemsAndPendingChanges = workspace.getServer().getVCS()
-      .getExtendedItemsAndPendingChanges(workspace.getName(), workspace.getOwnerName(), itemSpecs, ItemType.Any, projectOrComponent,
-                                         TFSBundle.message("loading.changes"));
+    try {
+      return workspace.getServer().getVCS()
+        .getExtendedItemsAndPendingChanges(workspace.getName(), workspace.getOwnerName(), itemSpecs, ItemType.Any, projectOrComponent,
+                                           TFSBundle.message("loading.changes"));
+    }
+    finally {
+      commitStatusEvent(event, "query", roots, recursive);
+    }
+  }
 
-    Map<Integer, PendingChange> pendingChanges = new HashMap<>(extendedItemsAndPendingChanges.pendingChanges.size());
-    for (PendingChange pendingChange : extendedItemsAndPendingChanges.pendingChanges) {
-      pendingChanges.put(pendingChange.getItemid(), pendingChange);
+  private static void commitStatusEvent(@NotNull TfsTrace.StatusEvent event, @NotNull String phase, List<?> roots, boolean recursive) {
+    event.end();
+    if (event.shouldCommit()) {
+      event.correlationId = TfsTrace.getCorrelationId();
+      event.phase = phase;
+      event.roots = roots.size();
+      event.recursive = recursive;
+      event.commit();
     }
+  }
 
-    Map<Integer, ExtendedItem> extendedItems = new HashMap<>();
-    for (ExtendedItem extendedItem : extendedItemsAndPendingChanges.extendedItems) {
-      extendedItems.put(extendedItem.getItemid(), extendedItem);
+  public static void visitByStatus(final List<? extends ItemPath> roots,
+                                   boolean recursive,
+                                   final @NotNull VersionControlServer.ExtendedItemsAndPendingChanges extendedItemsAndPendingChanges,
+                                   final @Nullable ProgressIndicator progress,
+                                   final @NotNull StatusVisitor statusVisitor) throws TfsException {
+    TfsTrace.StatusEvent event = new TfsTrace.StatusEvent();
+    event.begin();
+    try {
+      doVisitByStatus(roots, recursive, extendedItemsAndPendingChanges, progress, statusVisitor);
+    }
+    finally {
+      commitStatusEvent(event, "visit", roots, recursive);
+    }
+  }
+
+  private static void doVisitByStatus(final List<? extends ItemPath> roots,
+                                      boolean recursive,
+                                      final @NotNull VersionControlServer.ExtendedItemsAndPendingChanges extendedItemsAndPendingChanges,
+                                      final @Nullable ProgressIndicator progress,
+                                      final @NotNull StatusVisitor statusVisitor) throws TfsException {
+    Map<Integer, PendingChangeInfo> pendingChanges = new HashMap<>(extendedItemsAndPendingChanges.pendingChanges.size());
+    for (PendingChangeInfo pendingChange : extendedItemsAndPendingChanges.pendingChanges) {
+      pendingChanges.put(pendingChange.getItemId(), pendingChange);
+    }
+
+    Map<Integer, ExtendedItemInfo> extendedItems = new HashMap<>();
+    for (ExtendedItemInfo extendedItem : extendedItemsAndPendingChanges.extendedItems) {
+      extendedItems.put(extendedItem.getItemId(), extendedItem);
     }
 
     TFSProgressUtil.checkCanceled(progress);
@@ -80,15 +132,16 @@ public class StatusProvider {
 
       // first process all local items given
       for (FilePath localItem : localItems) {
+        final CanonicalPath localItemPath = CanonicalPath.local(localItem);
 
-        ExtendedItem extendedItem = null;
-        PendingChange pendingChange = null;
+        ExtendedItemInfo extendedItem = null;
+        PendingChangeInfo pendingChange = null;
 
         // TODO: what is faster: to search throughout pending changes or extended items?
 
-        for (PendingChange candidate : pendingChanges.values()) {
-          if (equals(localItem, VersionControlPath.localPathFromTfsRepresentation(candidate.getLocal()))) {
-            extendedItem = extendedItems.remove(candidate.getItemid());
+        for (PendingChangeInfo candidate : pendingChanges.values()) {
+          if (localItemPath.isEquivalent(candidate.getLocal())) {
+            extendedItem = extendedItems.remove(candidate.getItemId());
             //TFSVcs.assertTrue(extendedItem != null, "pending change without extended item for " +
             //                                        VersionControlPath.localPathFromTfsRepresentation(candidate.getLocal()));
             // don't assert: if there's no item, we will get 'unversioned' status as a result
@@ -98,9 +151,9 @@ public class StatusProvider {
         }
 
         if (extendedItem == null) {
-          for (ExtendedItem candidate : extendedItems.values()) {
-            if (equals(localItem, VersionControlPath.localPathFromTfsRepresentation(candidate.getLocal()))) {
-              extendedItem = extendedItems.remove(candidate.getItemid());
+          for (ExtendedItemInfo candidate : extendedItems.values()) {
+            if (localItemPath.isEquivalent(candidate.getLocal())) {
+              extendedItem = extendedItems.remove(candidate.getItemId());
               break;
             }
           }
@@ -109,7 +162,7 @@ public class StatusProvider {
         final boolean localItemExists = TfsFileUtil.localItemExists(localItem);
         if (!localItemExists && extendedItem != null) {
           // if path is the original one from dirtyScope, it may have invalid 'isDirectory' status
-          localItem = VcsUtil.getFilePath(localItem.getPath(), extendedItem.getType() == ItemType.Folder);
+          localItem = VcsUtil.getFilePath(localItem.getPath(), extendedItem.isFolder());
         }
         determineServerStatus(pendingChange, extendedItem).visitBy(localItem, localItemExists, statusVisitor);
       }
@@ -118,11 +171,11 @@ public class StatusProvider {
 
     if (recursive) {
       // then care about locally deleted
-      for (ExtendedItem extendedItem : extendedItems.values()) {
-        PendingChange pendingChange = pendingChanges.get(extendedItem.getItemid());
-        if (pendingChange != null || extendedItem.getLocal() != null) {
-          FilePath localPath = VersionControlPath.getFilePath(pendingChange != null ? pendingChange.getLocal() : extendedItem.getLocal(),
-                                                              extendedItem.getType() == ItemType.Folder);
+      for (ExtendedItemInfo extendedItem : extendedItems.values()) {
+        PendingChangeInfo pendingChange = pendingChanges.get(extendedItem.getItemId());
+        CanonicalPath local = pendingChange != null ? pendingChange.getLocal() : extendedItem.getLocal();
+        if (local != null) {
+          FilePath localPath = VcsUtil.getFilePath(local.getPath(), extendedItem.isFolder());
           determineServerStatus(pendingChange, extendedItem).visitBy(localPath, false, statusVisitor);
         }
       }
@@ -141,12 +194,12 @@ public class StatusProvider {
     }
   }
 
-  private static ServerStatus determineServerStatus(final @Nullable PendingChange pendingChange, final @Nullable ExtendedItem item) {
+  private static ServerStatus determineServerStatus(final @Nullable PendingChangeInfo pendingChange, final @Nullable ExtendedItemInfo item) {
     if (item == null) {
       return ServerStatus.Unversioned.INSTANCE;
     }
 
-    ChangeTypeMask change = new ChangeTypeMask(item.getChg());
+    ChangeTypeMask change = item.getChange();
     change.remove(ChangeType_type0.None, ChangeType_type0.Lock);
 
     if (item.getLocal() == null && change.isEmpty()) {
@@ -155,8 +208,8 @@ public class StatusProvider {
     }
 
     if (change.isEmpty()) {
-      TFSVcs.assertTrue(item.getLver() != Integer.MIN_VALUE);
-      if (item.getLver() < item.getLatest()) {
+      TFSVcs.assertTrue(item.getLocalVersion() != Integer.MIN_VALUE);
+      if (item.getLocalVersion() < item.getLatestVersion()) {
         return new ServerStatus.OutOfDate(item);
       }
       else {
@@ -165,11 +218,11 @@ public class StatusProvider {
     }
 
     if (change.containsAny(ChangeType_type0.Add) ||
-        (change.containsAny(ChangeType_type0.Merge, ChangeType_type0.Branch) && item.getLatest() == Integer.MIN_VALUE)) {
+        (change.containsAny(ChangeType_type0.Merge, ChangeType_type0.Branch) && item.getLatestVersion() == Integer.MIN_VALUE)) {
       //TFSVcs.assertTrue(change.contains(ChangeType.Edit) || item.getType() == ItemType.Folder);
       TFSVcs.assertTrue(change.containsAny(ChangeType_type0.Encoding));
-      TFSVcs.assertTrue(item.getLatest() == Integer.MIN_VALUE);
-      TFSVcs.assertTrue(item.getLver() == Integer.MIN_VALUE);
+      TFSVcs.assertTrue(item.getLatestVersion() == Integer.MIN_VALUE);
+      TFSVcs.assertTrue(item.getLocalVersion() == Integer.MIN_VALUE);
       if (pendingChange != null) {
         return new ServerStatus.ScheduledForAddition(pendingChange);
       }
@@ -179,8 +232,8 @@ public class StatusProvider {
     }
     else if (change.contains(ChangeType_type0.Delete)) {
 //          TFSVcs.assertTrue(change.containsOnly(ChangeType.Value.Delete)); // NOTE: may come with "Lock" change 
-      //TFSVcs.assertTrue(item.getLatest() != Integer.MIN_VALUE);
-      //TFSVcs.assertTrue(item.getLver() == Integer.MIN_VALUE);
+      //TFSVcs.assertTrue(item.getLatestVersion() != Integer.MIN_VALUE);
+      //TFSVcs.assertTrue(item.getLocalVersion() == Integer.MIN_VALUE);
       //TFSVcs.assertTrue(item.getLocal() == null);
       if (pendingChange != null) {
         return new ServerStatus.ScheduledForDeletion(pendingChange);
@@ -190,8 +243,8 @@ public class StatusProvider {
       }
     }
     else if (change.containsAny(ChangeType_type0.Edit, ChangeType_type0.Merge) && !change.contains(ChangeType_type0.Rename)) {
-      TFSVcs.assertTrue(item.getLatest() != Integer.MIN_VALUE);
-      if (item.getLver() != Integer.MIN_VALUE) {
+      TFSVcs.assertTrue(item.getLatestVersion() != Integer.MIN_VALUE);
+      if (item.getLocalVersion() != Integer.MIN_VALUE) {
         TFSVcs.assertTrue(item.getLocal() != null);
         if (pendingChange != null) {
           return new ServerStatus.CheckedOutForEdit(pendingChange);
@@ -213,8 +266,8 @@ public class StatusProvider {
       }
     }
     else if (change.containsAll(ChangeType_type0.Rename, ChangeType_type0.Edit)) {
-      TFSVcs.assertTrue(item.getLatest() != Integer.MIN_VALUE);
-      TFSVcs.assertTrue(item.getLver() != Integer.MIN_VALUE);
+      TFSVcs.assertTrue(item.getLatestVersion() != Integer.MIN_VALUE);
+      TFSVcs.assertTrue(item.getLocalVersion() != Integer.MIN_VALUE);
       TFSVcs.assertTrue(item.getLocal() != null);
       if (pendingChange != null) {
         return new ServerStatus.RenamedCheckedOut(pendingChange);
@@ -233,16 +286,8 @@ public class StatusProvider {
     }
 
     TFSVcs.LOG.error("Uncovered case for item " +
-                     (item.getLocal() != null ? VersionControlPath.localPathFromTfsRepresentation(item.getLocal()) : item.getTitem()));
+                     (item.getLocal() != null ? item.getLocal().getPath() : item.getTargetItem()));
     return null;
   }
 
-  private static boolean equals(FilePath path1, String path2) {
-    if (path2 == null) {
-      return path1 == null;
-    }
-    // compare regarding file system case sensitivity
-    return path1.getIOFile().equals(new File(path2));
-  }
-
 }
@@ -21,7 +21,10 @@ import com.intellij.openapi.util.io.FileUtil;
 import com.intellij.openapi.util.text.StringUtil;
 import com.intellij.openapi.vcs.FilePath;
 import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.util.containers.Interner;
+import com.intellij.util.containers.WeakInterner;
 import com.intellij.vcsUtil.VcsUtil;
+import org.jetbrains.annotations.Contract;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
@@ -37,6 +40,17 @@ public class VersionControlPath {
   @SuppressWarnings({"HardCodedStringLiteral"})
   private static final String FAKE_DRIVE_PREFIX = "U:";
 
+  private static final Interner<String> ourInterner = new WeakInterner<>();
+
+  /**
+   * Paths reported by server repeat a lot (same local path for pending change and item, same source and target item etc.),
+   * so keep only one copy of each in memory
+   */
+  @Contract("null -> null; !null -> !null")
+  public static String intern(@Nullable String path) {
+    return path != null ? ourInterner.intern(path) : null;
+  }
+
   public static String toTfsRepresentation(@Nullable String localPath) {
     if (localPath == null) {
       return null;
@@ -89,8 +103,7 @@ public class VersionControlPath {
   }
 
   public static boolean isUnder(String parent, String child) {
-    parent = StringUtil.toLowerCase(parent);
-    return parent.equals(getCommonAncestor(parent, StringUtil.toLowerCase(child)));
+    return CanonicalPath.server(parent).isAncestorOf(CanonicalPath.server(child), false);
   }
 
   /**
@@ -106,8 +119,8 @@ public class VersionControlPath {
    * At the same level files go before subfolders regardless of the names.
    */
   public static int compareParentToChild(@NotNull String path1, boolean isDirectory1, @NotNull String path2, boolean isDrectory2) {
-    String[] pathComponents1 = getPathComponents(path1);
-    String[] pathComponents2 = getPathComponents(path2);
+    String[] pathComponents1 = CanonicalPath.server(path1).getComponents();
+    String[] pathComponents2 = CanonicalPath.server(path2).getComponents();
 
     final int minLength = Math.min(pathComponents1.length, pathComponents2.length);
 
@@ -16,16 +16,25 @@
 
 package org.jetbrains.tfsIntegration.core.tfs;
 
-import com.intellij.openapi.application.ApplicationNamesInfo;
+import com.intellij.concurrency.SensitiveProgressWrapper;
+import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.progress.EmptyProgressIndicator;
+import com.intellij.openapi.progress.ProcessCanceledException;
 import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.ProgressManager;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.ui.MessageType;
+import com.intellij.openapi.util.ClassLoaderUtil;
 import com.intellij.openapi.util.Pair;
 import com.intellij.openapi.util.Ref;
+import com.intellij.openapi.util.ThrowableComputable;
 import com.intellij.openapi.util.text.StringUtil;
 import com.intellij.openapi.vcs.FilePath;
+import com.intellij.util.ArrayUtil;
 import com.intellij.util.ArrayUtilRt;
+import com.intellij.util.ExceptionUtil;
+import com.intellij.util.concurrency.AppExecutorUtil;
 import com.intellij.util.containers.ContainerUtil;
 import com.microsoft.schemas.teamfoundation._2005._06.services.authorization._03.Identity;
 import com.microsoft.schemas.teamfoundation._2005._06.services.authorization._03.QueryMembership;
@@ -42,13 +51,17 @@ import org.apache.commons.httpclient.methods.multipart.StringPart;
 import org.jetbrains.annotations.NonNls;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
+import org.jetbrains.tfsIntegration.core.StubPool;
 import org.jetbrains.tfsIntegration.core.TFSBundle;
 import org.jetbrains.tfsIntegration.core.TFSConstants;
 import org.jetbrains.tfsIntegration.core.TFSVcs;
 import org.jetbrains.tfsIntegration.core.TfsBeansHolder;
+import org.jetbrains.tfsIntegration.core.TfsTrace;
 import org.jetbrains.tfsIntegration.core.configuration.Credentials;
+import org.jetbrains.tfsIntegration.core.configuration.ProxyMonitor;
 import org.jetbrains.tfsIntegration.core.configuration.TFSConfigurationManager;
 import org.jetbrains.tfsIntegration.core.tfs.version.ChangesetVersionSpec;
+import org.jetbrains.tfsIntegration.core.tfs.version.DateVersionSpec;
 import org.jetbrains.tfsIntegration.core.tfs.version.LatestVersionSpec;
 import org.jetbrains.tfsIntegration.core.tfs.version.VersionSpecBase;
 import org.jetbrains.tfsIntegration.core.tfs.workitems.WorkItem;
@@ -56,7 +69,10 @@ import org.jetbrains.tfsIntegration.core.tfs.workitems.WorkItemField;
 import org.jetbrains.tfsIntegration.core.tfs.workitems.WorkItemSerialize;
 import org.jetbrains.tfsIntegration.exceptions.HostNotApplicableException;
 import org.jetbrains.tfsIntegration.exceptions.TfsException;
+import org.jetbrains.tfsIntegration.webservice.AbortableRequest;
+import org.jetbrains.tfsIntegration.webservice.RequestPriority;
 import org.jetbrains.tfsIntegration.webservice.TfsRequestManager;
+import org.jetbrains.tfsIntegration.webservice.TfsRequestMetrics;
 import org.jetbrains.tfsIntegration.webservice.WebServiceHelper;
 
 import java.io.File;
@@ -65,6 +81,11 @@ import java.io.OutputStream;
 import java.net.URI;
 import java.rmi.RemoteException;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.LongConsumer;
 
 public class VersionControlServer {
   @NonNls public static final String WORKSPACE_NAME_FIELD = "wsname";
@@ -80,10 +101,15 @@ public class VersionControlServer {
 
   private static final int ITEMS_IN_GROUP = Integer.getInteger("org.jetbrains.tfsIntegration.requestGroupSize", 200);
 
+  private static final ExecutorService ourAsyncExecutor = AppExecutorUtil.createBoundedApplicationPoolExecutor(
+    "TFS Async Requests", Math.max(1, Integer.getInteger("org.jetbrains.tfsIntegration.asyncThreads", 4)));
+
   private final URI myServerUri;
   private final String myInstanceId;
 
   @NotNull private final TfsBeansHolder myBeans;
+  private final InFlightReads myInFlightReads;
+  private final ReadBatcher myReadBatcher = new ReadBatcher();
   private static final Logger LOG = Logger.getInstance(VersionControlServer.class.getName());
 
   private interface OperationOnCollection<T, U> {
@@ -125,22 +151,118 @@ public class VersionControlServer {
     }
 
     final Collection<U> results = new ArrayList<>();
-    TfsUtil.consumeInParts(items, ITEMS_IN_GROUP, ts -> {
-      U result = TfsRequestManager.executeRequest(myServerUri, projectOrComponent, new TfsRequestManager.Request<U>(progressTitle) {
-        @Override
-        public U execute(Credentials credentials, URI serverUri, @Nullable ProgressIndicator pi) throws Exception {
-          return operation.execute(ts, credentials, pi);
+    // all the parts are traced as one operation
+    TfsTrace.computeInScope(() -> {
+      TfsUtil.consumeInParts(items, ITEMS_IN_GROUP, ts -> {
+        TfsRequestMetrics.getInstance().getServer(myServerUri).chunkExecuted();
+        int index = results.size();
+        TfsTrace.ChunkEvent event = new TfsTrace.ChunkEvent();
+        event.begin();
+        try {
+          U result = TfsRequestManager.executeRequest(myServerUri, projectOrComponent, new TfsRequestManager.Request<U>(progressTitle) {
+            @Override
+            public U execute(Credentials credentials, URI serverUri, @Nullable ProgressIndicator pi) throws Exception {
+              return operation.execute(ts, credentials, pi);
+            }
+          });
+          results.add(result);
+        }
+        finally {
+          event.end();
+          if (event.shouldCommit()) {
+            event.correlationId = TfsTrace.getCorrelationId();
+            event.server = myServerUri.toString();
+            event.title = progressTitle;
+            event.index = index;
+            event.items = ts.size();
+            event.commit();
+          }
         }
       });
-      results.add(result);
+      return null;
     });
     return operation.merge(results);
   }
 
+  /**
+   * Runs a call on a pooled thread, to be joined by {@link #await(Future)} within the same request. A stub must not be used by several
+   * threads at a time, so the call should take stubs from {@link TfsBeansHolder} itself: the pooled thread borrows its own ones.
+   */
+  private static <T> Future<T> executeOnPooledThread(final ThrowableComputable<T, Exception> computable) {
+    final ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+    final long correlationId = TfsTrace.getCorrelationId();
+    final RequestPriority priority = RequestPriority.getCurrent();
+    final AbortableRequest request = AbortableRequest.getCurrent();
+    return ApplicationManager.getApplication().executeOnPooledThread(
+      () -> ClassLoaderUtil.computeWithClassLoader(classLoader, () -> RequestPriority.computeWithPriority(
+        priority, () -> AbortableRequest.computeWith(request, () -> TfsTrace.computeWithCorrelationId(
+          correlationId, () -> StubPool.computeWithBorrowedStubs(computable))))));
+  }
+
+  /**
+   * Runs a blocking method of this class on {@code org.jetbrains.tfsIntegration.asyncThreads} pooled threads, so that callers can
+   * issue independent requests at once and do local work meanwhile. Cancelling the returned future or the progress indicator of the
+   * calling thread cancels the call. Requests to the same server are still serialized by {@link TfsRequestManager}.
+   */
+  static <T> CompletableFuture<T> executeAsync(final ThrowableComputable<T, TfsException> computable) {
+    final ProgressIndicator parent = ProgressManager.getInstance().getProgressIndicator();
+    final ProgressIndicator indicator = parent != null ? new SensitiveProgressWrapper(parent) : new EmptyProgressIndicator();
+    final long correlationId = TfsTrace.getCorrelationId();
+    final RequestPriority priority = RequestPriority.getCurrent();
+    final CompletableFuture<T> result = new CompletableFuture<>();
+    ourAsyncExecutor.execute(() -> {
+      if (result.isDone()) {
+        return; // cancelled before started
+      }
+      try {
+        ProgressManager.getInstance().runProcess(() -> {
+          try {
+            result.complete(RequestPriority.computeWithPriority(
+              priority, () -> TfsTrace.computeWithCorrelationId(correlationId, computable)));
+          }
+          catch (Throwable e) {
+            result.completeExceptionally(e);
+          }
+        }, indicator);
+      }
+      catch (Throwable e) {
+        result.completeExceptionally(e);
+      }
+    });
+    result.whenComplete((t, e) -> {
+      if (result.isCancelled()) {
+        indicator.cancel();
+      }
+    });
+    return result;
+  }
+
+  private static <T> T await(Future<T> future) throws RemoteException, HostNotApplicableException {
+    try {
+      return future.get();
+    }
+    catch (InterruptedException e) {
+      future.cancel(true);
+      throw new ProcessCanceledException(e);
+    }
+    catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof RemoteException) {
+        throw (RemoteException)cause;
+      }
+      if (cause instanceof HostNotApplicableException) {
+        throw (HostNotApplicableException)cause;
+      }
+      ExceptionUtil.rethrowUnchecked(cause);
+      throw new RemoteException(cause.getMessage(), cause);
+    }
+  }
+
   public VersionControlServer(URI uri, @NotNull TfsBeansHolder beans, String instanceId) {
     myServerUri = uri;
     myBeans = beans;
     myInstanceId = instanceId;
+    myInFlightReads = new InFlightReads(uri);
   }
 
   /**
@@ -195,12 +317,20 @@ public class VersionControlServer {
                             final boolean generateDownloadUrl,
                             Object projectOrComponent,
                             String progressTitle) throws TfsException {
-    List<Item> items = queryItemsById(new int[]{itemId}, changeSet, generateDownloadUrl, projectOrComponent, progressTitle);
-    if (items.isEmpty()) {
-      return null;
-    }
-    TFSVcs.assertTrue(items.size() == 1);
-    return items.get(0);
+    return myInFlightReads.execute(
+      Arrays.asList("queryItemById", itemId, changeSet, generateDownloadUrl),
+      () -> myReadBatcher.execute(Arrays.asList("queryItemsById", changeSet, generateDownloadUrl), itemId, itemIds -> {
+        // the same id may be batched by several callers (e.g. if reads are not coalesced), query it once
+        Set<Integer> uniqueIds = new LinkedHashSet<>(itemIds);
+        List<Item> items =
+          queryItemsById(ArrayUtil.toIntArray(uniqueIds), changeSet, generateDownloadUrl, projectOrComponent, progressTitle);
+        // items not found are not reported, so match results by id
+        Map<Integer, Item> id2item = new HashMap<>(items.size());
+        for (Item item : items) {
+          TFSVcs.assertTrue(id2item.put(item.getItemid(), item) == null);
+        }
+        return ContainerUtil.map(itemIds, id2item::get);
+      }));
   }
 
   public static class GetRequestParams {
@@ -251,6 +381,14 @@ public class VersionControlServer {
     }, projectOrComponent, progressTitle);
   }
 
+  public CompletableFuture<ResultWithFailures<GetOperation>> checkoutForEditAsync(final String workspaceName,
+                                                                                 final String workspaceOwner,
+                                                                                 List<ItemPath> paths,
+                                                                                 Object projectOrComponent,
+                                                                                 String progressTitle) {
+    return executeAsync(() -> checkoutForEdit(workspaceName, workspaceOwner, paths, projectOrComponent, progressTitle));
+  }
+
   public ResultWithFailures<GetOperation> createBranch(final String workspaceName,
                                                        final String workspaceOwner,
                                                        final String sourceServerPath,
@@ -295,6 +433,14 @@ public class VersionControlServer {
     }, projectOrComponent, progressTitle);
   }
 
+  public CompletableFuture<ResultWithFailures<GetOperation>> scheduleForAdditionAsync(final String workspaceName,
+                                                                                     final String workspaceOwner,
+                                                                                     List<ItemPath> paths,
+                                                                                     Object projectOrComponent,
+                                                                                     String progressTitle) {
+    return executeAsync(() -> scheduleForAddition(workspaceName, workspaceOwner, paths, projectOrComponent, progressTitle));
+  }
+
   public ResultWithFailures<GetOperation> scheduleForDeletionAndUpateLocalVersion(final String workspaceName,
                                                                                   final String workspaceOwner,
                                                                                   final Collection<FilePath> localPaths,
@@ -504,11 +650,14 @@ public class VersionControlServer {
     }
   }
 
+  /**
+   * Holds compact copies of server beans, see {@link ExtendedItemInfo} and {@link PendingChangeInfo}
+   */
   public static class ExtendedItemsAndPendingChanges {
-    public final List<ExtendedItem> extendedItems;
-    public final Collection<PendingChange> pendingChanges;
+    public final List<ExtendedItemInfo> extendedItems;
+    public final Collection<PendingChangeInfo> pendingChanges;
 
-    public ExtendedItemsAndPendingChanges(final Collection<PendingChange> pendingChanges, final List<ExtendedItem> extendedItems) {
+    public ExtendedItemsAndPendingChanges(final Collection<PendingChangeInfo> pendingChanges, final List<ExtendedItemInfo> extendedItems) {
       this.pendingChanges = pendingChanges;
       this.extendedItems = extendedItems;
     }
@@ -529,40 +678,59 @@ public class VersionControlServer {
           throws RemoteException, HostNotApplicableException {
           final ArrayOfItemSpec arrayOfItemSpec = new ArrayOfItemSpec();
           arrayOfItemSpec.setItemSpec(items.toArray(new ItemSpec[0]));
+          final RepositoryStub repository = myBeans.getRepositoryStub(credentials, pi);
+
+          // queries are independent, so don't pay for two round trips in a row
+          QueryPendingSets param2 = new QueryPendingSets();
+          param2.setLocalWorkspaceName(workspaceName);
+          param2.setLocalWorkspaceOwner(ownerName);
+          param2.setQueryWorkspaceName(workspaceName);
+          param2.setOwnerName(ownerName);
+          param2.setItemSpecs(arrayOfItemSpec);
+          param2.setGenerateDownloadUrls(false);
+          Future<PendingSet[]> pendingSetsFuture = executeOnPooledThread(
+            () -> myBeans.getRepositoryStub(credentials, pi).queryPendingSets(param2).getQueryPendingSetsResult().getPendingSet());
+
           QueryItemsExtended param = new QueryItemsExtended();
           param.setWorkspaceName(workspaceName);
           param.setWorkspaceOwner(ownerName);
           param.setItems(arrayOfItemSpec);
           param.setDeletedState(DeletedState.NonDeleted);
           param.setItemType(itemType);
-          ArrayOfExtendedItem[] extendedItemsArray =
-            myBeans.getRepositoryStub(credentials, pi).queryItemsExtended(param).getQueryItemsExtendedResult().getArrayOfExtendedItem();
+          ArrayOfExtendedItem[] extendedItemsArray;
+          try {
+            extendedItemsArray = repository.queryItemsExtended(param).getQueryItemsExtendedResult().getArrayOfExtendedItem();
+          }
+          catch (RemoteException | RuntimeException e) {
+            pendingSetsFuture.cancel(true);
+            throw e;
+          }
+          final PendingSet[] pendingSets = await(pendingSetsFuture);
 
           TFSVcs.assertTrue(extendedItemsArray != null && extendedItemsArray.length == items.size());
 
-          List<ExtendedItem> extendedItems = new ArrayList<>();
+          // convert beans right away so that they are not retained while other chunks are being queried
+          List<ExtendedItemInfo> extendedItems = new ArrayList<>();
           //noinspection ConstantConditions
           for (ArrayOfExtendedItem extendedItem : extendedItemsArray) {
             if (extendedItem.getExtendedItem() != null) {
               // no need to chooseExtendedItem() since DeletedState.NonDeleted specified
-              ContainerUtil.addAll(extendedItems, extendedItem.getExtendedItem());
+              for (ExtendedItem item : extendedItem.getExtendedItem()) {
+                extendedItems.add(ExtendedItemInfo.from(item));
+              }
             }
           }
 
-          QueryPendingSets param2 = new QueryPendingSets();
-          param2.setLocalWorkspaceName(workspaceName);
-          param2.setLocalWorkspaceOwner(ownerName);
-          param2.setQueryWorkspaceName(workspaceName);
-          param2.setOwnerName(ownerName);
-          param2.setItemSpecs(arrayOfItemSpec);
-          param2.setGenerateDownloadUrls(false);
-          final PendingSet[] pendingSets =
-            myBeans.getRepositoryStub(credentials, pi).queryPendingSets(param2).getQueryPendingSetsResult().getPendingSet();
-
-          final Collection<PendingChange> pendingChanges;
+          final Collection<PendingChangeInfo> pendingChanges;
           if (pendingSets != null) {
             TFSVcs.assertTrue(pendingSets.length == 1);
-            pendingChanges = Arrays.asList(pendingSets[0].getPendingChanges().getPendingChange());
+            PendingChange[] beans = pendingSets[0].getPendingChanges().getPendingChange();
+            pendingChanges = new ArrayList<>(beans != null ? beans.length : 0);
+            if (beans != null) {
+              for (PendingChange pendingChange : beans) {
+                pendingChanges.add(PendingChangeInfo.from(pendingChange));
+              }
+            }
           }
           else {
             pendingChanges = Collections.emptyList();
@@ -572,8 +740,8 @@ public class VersionControlServer {
 
         @Override
         public ExtendedItemsAndPendingChanges merge(Collection<ExtendedItemsAndPendingChanges> results) {
-          List<ExtendedItem> mergedItems = new ArrayList<>();
-          List<PendingChange> mergedPendingChanges = new ArrayList<>();
+          List<ExtendedItemInfo> mergedItems = new ArrayList<>();
+          List<PendingChangeInfo> mergedPendingChanges = new ArrayList<>();
           for (ExtendedItemsAndPendingChanges r : results) {
             mergedItems.addAll(r.extendedItems);
             mergedPendingChanges.addAll(r.pendingChanges);
@@ -585,6 +753,16 @@ public class VersionControlServer {
     return execute(operation, projectOrComponent, itemsSpecs, progressTitle);
   }
 
+  public CompletableFuture<ExtendedItemsAndPendingChanges> getExtendedItemsAndPendingChangesAsync(final String workspaceName,
+                                                                                                  final String ownerName,
+                                                                                                  List<ItemSpec> itemsSpecs,
+                                                                                                  final ItemType itemType,
+                                                                                                  Object projectOrComponent,
+                                                                                                  String progressTitle) {
+    return executeAsync(
+      () -> getExtendedItemsAndPendingChanges(workspaceName, ownerName, itemsSpecs, itemType, projectOrComponent, progressTitle));
+  }
+
   @Nullable
   public ExtendedItem getExtendedItem(final String workspaceName,
                                       final String ownerName,
@@ -592,28 +770,57 @@ public class VersionControlServer {
                                       final RecursionType recursionType,
                                       final DeletedState deletedState,
                                       Object projectOrComponent, String progressTitle) throws TfsException {
-    final ArrayOfItemSpec arrayOfItemSpec = new ArrayOfItemSpec();
-    arrayOfItemSpec.setItemSpec(new ItemSpec[]{createItemSpec(localPath, recursionType)});
+    return myInFlightReads.execute(
+      Arrays.asList("getExtendedItem", workspaceName, ownerName, localPath, recursionType.getValue(), deletedState.getValue()),
+      () -> doGetExtendedItem(workspaceName, ownerName, localPath, recursionType, deletedState, projectOrComponent, progressTitle));
+  }
 
-    ArrayOfExtendedItem[] extendedItems =
-      TfsRequestManager
-        .executeRequest(myServerUri, projectOrComponent, new TfsRequestManager.Request<ArrayOfExtendedItem[]>(progressTitle) {
-          @Override
-          public ArrayOfExtendedItem[] execute(Credentials credentials, URI serverUri, @Nullable ProgressIndicator pi) throws Exception {
-            final QueryItemsExtended param = new QueryItemsExtended();
-            param.setDeletedState(deletedState);
-            param.setItems(arrayOfItemSpec);
-            param.setItemType(ItemType.Any);
-            param.setWorkspaceName(workspaceName);
-            param.setWorkspaceOwner(ownerName);
-            return myBeans.getRepositoryStub(credentials, pi).queryItemsExtended(param).getQueryItemsExtendedResult()
-              .getArrayOfExtendedItem();
-          }
-        });
+  public CompletableFuture<ExtendedItem> getExtendedItemAsync(final String workspaceName,
+                                                              final String ownerName,
+                                                              final FilePath localPath,
+                                                              final RecursionType recursionType,
+                                                              final DeletedState deletedState,
+                                                              Object projectOrComponent, String progressTitle) {
+    return executeAsync(
+      () -> getExtendedItem(workspaceName, ownerName, localPath, recursionType, deletedState, projectOrComponent, progressTitle));
+  }
+
+  @Nullable
+  private ExtendedItem doGetExtendedItem(final String workspaceName,
+                                         final String ownerName,
+                                         final FilePath localPath,
+                                         final RecursionType recursionType,
+                                         final DeletedState deletedState,
+                                         Object projectOrComponent, String progressTitle) throws TfsException {
+    ArrayOfExtendedItem extendedItem = myReadBatcher.execute(
+      Arrays.asList("queryItemsExtended", workspaceName, ownerName, deletedState.getValue()),
+      createItemSpec(localPath, recursionType), itemSpecs -> {
+        final ArrayOfItemSpec arrayOfItemSpec = new ArrayOfItemSpec();
+        arrayOfItemSpec.setItemSpec(itemSpecs.toArray(new ItemSpec[0]));
 
-    TFSVcs.assertTrue(extendedItems != null && extendedItems.length == 1);
-    //noinspection ConstantConditions
-    ExtendedItem[] resultItems = extendedItems[0].getExtendedItem();
+        ArrayOfExtendedItem[] extendedItems =
+          TfsRequestManager
+            .executeRequest(myServerUri, projectOrComponent, new TfsRequestManager.Request<ArrayOfExtendedItem[]>(progressTitle) {
+              @Override
+              public ArrayOfExtendedItem[] execute(Credentials credentials, URI serverUri, @Nullable ProgressIndicator pi)
+                throws Exception {
+                final QueryItemsExtended param = new QueryItemsExtended();
+                param.setDeletedState(deletedState);
+                param.setItems(arrayOfItemSpec);
+                param.setItemType(ItemType.Any);
+                param.setWorkspaceName(workspaceName);
+                param.setWorkspaceOwner(ownerName);
+                return myBeans.getRepositoryStub(credentials, pi).queryItemsExtended(param).getQueryItemsExtendedResult()
+                  .getArrayOfExtendedItem();
+              }
+            });
+
+        TFSVcs.assertTrue(extendedItems != null && extendedItems.length == itemSpecs.size());
+        //noinspection ConstantConditions
+        return Arrays.asList(extendedItems);
+      });
+
+    ExtendedItem[] resultItems = extendedItem.getExtendedItem();
     if (resultItems != null) {
       return chooseExtendedItem(resultItems);
     }
@@ -701,15 +908,55 @@ public class VersionControlServer {
     return execute(operation, projectOrComponent, paths, progressTitle);
   }
 
+  public CompletableFuture<Map<FilePath, ExtendedItem>> getExtendedItemsAsync(final String workspaceName,
+                                                                              final String ownerName,
+                                                                              List<FilePath> paths,
+                                                                              final DeletedState deletedState,
+                                                                              Object projectOrComponent, String progressTitle) {
+    return executeAsync(() -> getExtendedItems(workspaceName, ownerName, paths, deletedState, projectOrComponent, progressTitle));
+  }
+
   public void downloadItem(Project project, final String downloadKey, final OutputStream outputStream, String progressTitle)
     throws TfsException {
-    final boolean tryProxy = TFSConfigurationManager.getInstance().shouldTryProxy(myServerUri);
+    downloadItem(project, downloadKey, outputStream, progressTitle, false);
+  }
+
+  /**
+   * @param latencySensitive true if someone is waiting for this very file (e.g. diff base or annotated revision), so that it may be
+   *                         requested from both the TFS proxy and the server, see {@link HedgedDownload}
+   */
+  public void downloadItem(Project project,
+                           final String downloadKey,
+                           final OutputStream outputStream,
+                           String progressTitle,
+                           boolean latencySensitive) throws TfsException {
+    final ProxyMonitor proxyMonitor = ProxyMonitor.getInstance(myServerUri);
+    final boolean tryProxy = proxyMonitor.shouldUseProxy();
+    final long hedgeDelay = latencySensitive ? HedgedDownload.getDelayMs(proxyMonitor, tryProxy) : -1;
     try {
       TfsRequestManager.executeRequest(myServerUri, project, new TfsRequestManager.Request<Void>(progressTitle) {
         @Override
         public Void execute(Credentials credentials, URI serverUri, @Nullable ProgressIndicator pi) throws Exception {
+          if (hedgeDelay < 0) {
+            download(tryProxy, credentials, serverUri, pi, outputStream, null);
+            return null;
+          }
+          // query download URL here, since the request may not be executed in other threads
+          myBeans.getDownloadUrl(credentials, pi);
+          HedgedDownload.execute(outputStream, tryProxy, hedgeDelay,
+                                 (viaProxy, stream, responseTimeConsumer) -> download(viaProxy, credentials, serverUri, pi, stream,
+                                                                                       responseTimeConsumer));
+          return null;
+        }
+
+        private void download(boolean viaProxy,
+                              Credentials credentials,
+                              URI serverUri,
+                              @Nullable ProgressIndicator pi,
+                              OutputStream stream,
+                              @Nullable LongConsumer responseTimeConsumer) throws Exception {
           String downloadUrl;
-          if (tryProxy) {
+          if (viaProxy) {
             downloadUrl = TfsUtil.appendPath(TFSConfigurationManager.getInstance().getProxyUri(myServerUri),
                                              TFSConstants.PROXY_DOWNLOAD_ASMX +
                                              "?" +
@@ -720,9 +967,14 @@ public class VersionControlServer {
           else {
             downloadUrl = TfsUtil.appendPath(serverUri, myBeans.getDownloadUrl(credentials, pi) + "?" + downloadKey);
           }
-          LOG.debug((tryProxy ? "Downloading via proxy: " : "Downloading: ") + downloadUrl);
-          WebServiceHelper.httpGet(myServerUri, downloadUrl, outputStream, credentials, myBeans.getUploadDownloadClient(tryProxy));
-          return null;
+          LOG.debug((viaProxy ? "Downloading via proxy: " : "Downloading: ") + downloadUrl);
+          WebServiceHelper.httpGet(myServerUri, downloadUrl, stream, credentials, myBeans.getUploadDownloadClient(viaProxy),
+                                   responseMs -> {
+                                     proxyMonitor.responseReceived(viaProxy, responseMs);
+                                     if (responseTimeConsumer != null) {
+                                       responseTimeConsumer.accept(responseMs);
+                                     }
+                                   });
         }
       });
     }
@@ -732,10 +984,9 @@ public class VersionControlServer {
         TFSVcs.LOG.warn("Disabling proxy");
         String messageHtml = TFSBundle
           .message("proxy.failed", TfsUtil.getPresentableUri(myServerUri), TFSConfigurationManager.getInstance().getProxyUri(myServerUri),
-                   StringUtil.trimEnd(e.getMessage(), "."),
-                   ApplicationNamesInfo.getInstance().getFullProductName());
+                   StringUtil.trimEnd(e.getMessage(), "."));
         TfsUtil.showBalloon(project, MessageType.WARNING, messageHtml);
-        TFSConfigurationManager.getInstance().setProxyInaccessible(myServerUri);
+        proxyMonitor.proxyFailed();
         downloadItem(project, downloadKey, outputStream, progressTitle);
       }
       else {
@@ -744,6 +995,19 @@ public class VersionControlServer {
     }
   }
 
+  /**
+   * @param outputStream written to in a pooled thread, and not closed
+   */
+  public CompletableFuture<Void> downloadItemAsync(Project project,
+                                                   final String downloadKey,
+                                                   final OutputStream outputStream,
+                                                   String progressTitle) {
+    return executeAsync(() -> {
+      downloadItem(project, downloadKey, outputStream, progressTitle);
+      return null;
+    });
+  }
+
   public List<Changeset> queryHistory(final WorkspaceInfo workspace,
                                       final String serverPath,
                                       final boolean recursive,
@@ -757,6 +1021,17 @@ public class VersionControlServer {
                         maxCount, projectOrComponent, progressTitle);
   }
 
+  public CompletableFuture<List<Changeset>> queryHistoryAsync(final WorkspaceInfo workspace,
+                                                              final String serverPath,
+                                                              final boolean recursive,
+                                                              final String user,
+                                                              final VersionSpec versionFrom,
+                                                              final VersionSpec versionTo,
+                                                              Object projectOrComponent, String progressTitle, int maxCount) {
+    return executeAsync(
+      () -> queryHistory(workspace, serverPath, recursive, user, versionFrom, versionTo, projectOrComponent, progressTitle, maxCount));
+  }
+
   public List<Changeset> queryHistory(final String workspaceName,
                                       final String workspaceOwner,
                                       final ItemSpec itemSpec,
@@ -812,6 +1087,21 @@ public class VersionControlServer {
     return allChangeSets;
   }
 
+  /**
+   * Resolves service locations and creates web service stubs, which is otherwise done by the first request to the server
+   */
+  public void prepareServices(Object projectOrComponent) throws TfsException {
+    TfsRequestManager.executeRequest(myServerUri, projectOrComponent, new TfsRequestManager.Request<Void>(
+      TFSBundle.message("loading.services")) {
+      @Override
+      public Void execute(Credentials credentials, URI serverUri, @Nullable ProgressIndicator pi) throws Exception {
+        myBeans.getRepositoryStub(credentials, pi);
+        myBeans.getRepository4Stub(credentials, pi);
+        return null;
+      }
+    });
+  }
+
   public Workspace[] queryWorkspaces(final String computer, Object projectOrComponent, boolean force) throws TfsException {
     Workspace[] workspaces =
       TfsRequestManager.executeRequest(myServerUri, projectOrComponent, force, new TfsRequestManager.Request<Workspace[]>(
@@ -1397,28 +1687,73 @@ public class VersionControlServer {
                         final DeletedState deletedState,
                         final boolean generateDownloadUrl,
                         Object projectOrComponent, String progressTitle) throws TfsException {
-    final ArrayOfItemSpec arrayOfItemSpec = new ArrayOfItemSpec();
-    arrayOfItemSpec.setItemSpec(new ItemSpec[]{createItemSpec(itemServerPath, RecursionType.None)});
+    return myInFlightReads.execute(
+      Arrays.asList("queryItem", workspaceName, ownerName, itemServerPath, getVersionKey(versionSpec), deletedState.getValue(),
+                    generateDownloadUrl),
+      () -> doQueryItem(workspaceName, ownerName, itemServerPath, versionSpec, deletedState, generateDownloadUrl, projectOrComponent,
+                        progressTitle));
+  }
 
-    ItemSet[] items =
-      TfsRequestManager.executeRequest(myServerUri, projectOrComponent, new TfsRequestManager.Request<ItemSet[]>(progressTitle) {
-        @Override
-        public ItemSet[] execute(Credentials credentials, URI serverUri, @Nullable ProgressIndicator pi) throws Exception {
-          QueryItems param = new QueryItems();
-          param.setWorkspaceName(workspaceName);
-          param.setWorkspaceOwner(ownerName);
-          param.setItems(arrayOfItemSpec);
-          param.setVersion(versionSpec);
-          param.setItemType(ItemType.Any);
-          param.setDeletedState(deletedState);
-          param.setGenerateDownloadUrls(generateDownloadUrl);
-          return myBeans.getRepositoryStub(credentials, pi).queryItems(param).getQueryItemsResult().getItemSet();
-        }
+  public CompletableFuture<Item> queryItemAsync(final String workspaceName,
+                                                final String ownerName,
+                                                final String itemServerPath,
+                                                final VersionSpec versionSpec,
+                                                final DeletedState deletedState,
+                                                final boolean generateDownloadUrl,
+                                                Object projectOrComponent, String progressTitle) {
+    return executeAsync(() -> queryItem(workspaceName, ownerName, itemServerPath, versionSpec, deletedState, generateDownloadUrl,
+                                        projectOrComponent, progressTitle));
+  }
+
+  /**
+   * @return object to compare version specs by, since ADB beans don't implement {@code equals()}
+   */
+  private static Object getVersionKey(VersionSpec version) {
+    if (version instanceof DateVersionSpec) {
+      return "date:" + ((DateVersionSpec)version).getDate().getTime();
+    }
+    if (version instanceof VersionSpecBase) {
+      return version.getClass().getSimpleName() + ":" + ((VersionSpecBase)version).getPresentableString();
+    }
+    return version;
+  }
+
+  @Nullable
+  private Item doQueryItem(final String workspaceName,
+                           final String ownerName,
+                           final String itemServerPath,
+                           final VersionSpec versionSpec,
+                           final DeletedState deletedState,
+                           final boolean generateDownloadUrl,
+                           Object projectOrComponent, String progressTitle) throws TfsException {
+    ItemSet itemSet = myReadBatcher.execute(
+      Arrays.asList("queryItems", workspaceName, ownerName, getVersionKey(versionSpec), deletedState.getValue(), generateDownloadUrl),
+      createItemSpec(itemServerPath, RecursionType.None), itemSpecs -> {
+        final ArrayOfItemSpec arrayOfItemSpec = new ArrayOfItemSpec();
+        arrayOfItemSpec.setItemSpec(itemSpecs.toArray(new ItemSpec[0]));
+
+        ItemSet[] items =
+          TfsRequestManager.executeRequest(myServerUri, projectOrComponent, new TfsRequestManager.Request<ItemSet[]>(progressTitle) {
+            @Override
+            public ItemSet[] execute(Credentials credentials, URI serverUri, @Nullable ProgressIndicator pi) throws Exception {
+              QueryItems param = new QueryItems();
+              param.setWorkspaceName(workspaceName);
+              param.setWorkspaceOwner(ownerName);
+              param.setItems(arrayOfItemSpec);
+              param.setVersion(versionSpec);
+              param.setItemType(ItemType.Any);
+              param.setDeletedState(deletedState);
+              param.setGenerateDownloadUrls(generateDownloadUrl);
+              return myBeans.getRepositoryStub(credentials, pi).queryItems(param).getQueryItemsResult().getItemSet();
+            }
+          });
+
+        TFSVcs.assertTrue(items != null && items.length == itemSpecs.size());
+        //noinspection ConstantConditions
+        return Arrays.asList(items);
       });
 
-    TFSVcs.assertTrue(items != null && items.length == 1);
-    //noinspection ConstantConditions
-    Item[] resultItems = items[0].getItems().getItem();
+    Item[] resultItems = itemSet.getItems().getItem();
     if (resultItems != null) {
       TFSVcs.assertTrue(resultItems.length == 1);
       return resultItems[0];
@@ -1460,6 +1795,13 @@ public class VersionControlServer {
     }
   }
 
+  public CompletableFuture<List<Item>> queryItemsAsync(final ItemSpec itemSpec,
+                                                       final VersionSpec version,
+                                                       Object projectOrComponent,
+                                                       String progressTitle) {
+    return executeAsync(() -> queryItems(itemSpec, version, projectOrComponent, progressTitle));
+  }
+
 
   public Changeset queryChangeset(final int changesetId, Object projectOrComponent, String progressTitle) throws TfsException {
     return TfsRequestManager.executeRequest(myServerUri, projectOrComponent, new TfsRequestManager.Request<Changeset>(progressTitle) {
@@ -0,0 +1,173 @@
+package org.jetbrains.tfsIntegration.core.tfs;
+
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.openapi.vcs.FilePath;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+
+/**
+ * Immutable prefix tree over workspace mappings, keyed by local and server path components.
+ * Lookups take time proportional to the depth of the queried path rather than to the number of mappings.
+ * <p/>
+ * Server paths are matched case-insensitively, local paths according to file system case sensitivity
+ * (same as {@link FilePath#isUnder(FilePath, boolean)}).
+ * When several mappings share the same path, the last one wins, as it did with linear search.
+ */
+final class WorkingFolderIndex {
+
+  private static final class Node {
+    private final Map<String, Node> myChildren = new HashMap<>(2);
+    private final List<WorkingFolderInfo> myMappings = new ArrayList<>(1);
+
+    @NotNull
+    Node getOrCreateChild(@NotNull String key) {
+      Node child = myChildren.get(key);
+      if (child == null) {
+        child = new Node();
+        myChildren.put(key, child);
+      }
+      return child;
+    }
+
+    @Nullable
+    WorkingFolderInfo getLastMapping(boolean withServerPath) {
+      for (int i = myMappings.size() - 1; i >= 0; i--) {
+        WorkingFolderInfo mapping = myMappings.get(i);
+        if (!withServerPath || !StringUtil.isEmpty(mapping.getServerPath())) {
+          return mapping;
+        }
+      }
+      return null;
+    }
+
+    void collectSubtree(@NotNull Collection<? super WorkingFolderInfo> result) {
+      result.addAll(myMappings);
+      for (Node child : myChildren.values()) {
+        child.collectSubtree(result);
+      }
+    }
+  }
+
+  private final List<WorkingFolderInfo> myMappings;
+  private final Node myLocalRoot = new Node();
+  private final Node myServerRoot = new Node();
+
+  WorkingFolderIndex(@NotNull List<WorkingFolderInfo> mappings) {
+    myMappings = new ArrayList<>(mappings);
+    for (WorkingFolderInfo mapping : myMappings) {
+      Node localNode = myLocalRoot;
+      for (String component : getLocalPathComponents(mapping.getLocalPath())) {
+        localNode = localNode.getOrCreateChild(component);
+      }
+      localNode.myMappings.add(mapping);
+
+      if (!StringUtil.isEmpty(mapping.getServerPath())) {
+        Node serverNode = myServerRoot;
+        for (String component : getServerPathComponents(mapping.getServerPath())) {
+          serverNode = serverNode.getOrCreateChild(component);
+        }
+        serverNode.myMappings.add(mapping);
+      }
+    }
+  }
+
+  /**
+   * @return mapping with non-empty server path whose local path is the nearest parent of (or equal to) given path
+   */
+  @Nullable
+  WorkingFolderInfo findNearestMapping(@NotNull FilePath localPath) {
+    Node node = myLocalRoot;
+    WorkingFolderInfo result = node.getLastMapping(true);
+    for (String component : getLocalPathComponents(localPath)) {
+      node = node.myChildren.get(component);
+      if (node == null) {
+        break;
+      }
+      WorkingFolderInfo mapping = node.getLastMapping(true);
+      if (mapping != null) {
+        result = mapping;
+      }
+    }
+    return result;
+  }
+
+  /**
+   * @return mapping whose server path is the nearest parent of (or equal to) given server path
+   */
+  @Nullable
+  WorkingFolderInfo findNearestMapping(@NotNull String serverPath) {
+    Node node = myServerRoot;
+    WorkingFolderInfo result = null;
+    for (String component : getServerPathComponents(serverPath)) {
+      node = node.myChildren.get(component);
+      if (node == null) {
+        break;
+      }
+      WorkingFolderInfo mapping = node.getLastMapping(true);
+      if (mapping != null) {
+        result = mapping;
+      }
+    }
+    return result;
+  }
+
+  boolean isCloaked(@NotNull String serverPath) {
+    WorkingFolderInfo mapping = findNearestMapping(serverPath);
+    return mapping != null && mapping.getStatus() == WorkingFolderInfo.Status.Cloaked;
+  }
+
+  /**
+   * @return true if given path is under some mapping or (if {@code considerChildMappings} is set) some mapping is under given path
+   */
+  boolean hasMapping(@NotNull FilePath localPath, boolean considerChildMappings) {
+    Node node = myLocalRoot;
+    if (!node.myMappings.isEmpty()) {
+      return true;
+    }
+    for (String component : getLocalPathComponents(localPath)) {
+      node = node.myChildren.get(component);
+      if (node == null) {
+        return false;
+      }
+      if (!node.myMappings.isEmpty()) {
+        return true;
+      }
+    }
+    return considerChildMappings && !node.myChildren.isEmpty();
+  }
+
+  /**
+   * @return mappings whose local paths are under (or equal to) given path, in the order of workspace mappings
+   */
+  @NotNull
+  List<WorkingFolderInfo> findChildMappings(@NotNull FilePath localPath) {
+    Node node = myLocalRoot;
+    for (String component : getLocalPathComponents(localPath)) {
+      node = node.myChildren.get(component);
+      if (node == null) {
+        return Collections.emptyList();
+      }
+    }
+    Set<WorkingFolderInfo> subtree = Collections.newSetFromMap(new IdentityHashMap<>());
+    node.collectSubtree(subtree);
+    List<WorkingFolderInfo> result = new ArrayList<>(subtree.size());
+    for (WorkingFolderInfo mapping : myMappings) {
+      if (subtree.contains(mapping)) {
+        result.add(mapping);
+      }
+    }
+    return result;
+  }
+
+  @NotNull
+  private static String[] getLocalPathComponents(@NotNull FilePath localPath) {
+    return CanonicalPath.local(localPath).getFoldedComponents();
+  }
+
+  @NotNull
+  private static String[] getServerPathComponents(@NotNull String serverPath) {
+    return CanonicalPath.server(serverPath).getFoldedComponents();
+  }
+}
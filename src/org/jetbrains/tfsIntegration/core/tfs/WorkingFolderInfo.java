@@ -75,10 +75,14 @@ public class WorkingFolderInfo {
 
   @Nullable
   String getServerPathByLocalPath(final @NotNull FilePath localPath) {
-    if (!StringUtil.isEmpty(getServerPath()) && localPath.isUnder(getLocalPath(), false)) {
-      return VersionControlPath.getCombinedServerPath(getLocalPath(), getServerPath(), localPath);
+    if (StringUtil.isEmpty(getServerPath())) {
+      return null;
     }
-    return null;
+    String relativePath = CanonicalPath.local(getLocalPath()).getRelativePath(CanonicalPath.local(localPath));
+    if (relativePath == null) {
+      return null;
+    }
+    return relativePath.isEmpty() ? getServerPath() : VersionControlPath.getCombinedServerPath(getServerPath(), relativePath);
   }
 
   @Nullable
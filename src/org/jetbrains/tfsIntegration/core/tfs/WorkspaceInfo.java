@@ -16,6 +16,7 @@
 
 package org.jetbrains.tfsIntegration.core.tfs;
 
+import com.intellij.openapi.util.Pair;
 import com.intellij.openapi.vcs.FilePath;
 import com.intellij.util.containers.ContainerUtil;
 import com.intellij.vcsUtil.VcsUtil;
@@ -51,6 +52,9 @@ public class WorkspaceInfo {
   private int myOptions;
 
   private List<WorkingFolderInfo> myWorkingFoldersInfos = new ArrayList<>();
+  // rebuilt lazily after mappings change
+  private int myWorkingFoldersModificationCount;
+  @Nullable private volatile Pair<Integer, WorkingFolderIndex> myWorkingFolderIndex;
 
   public WorkspaceInfo(final @NotNull ServerInfo serverInfo, final @NotNull String owner, final @NotNull String computer) {
     myServerInfo = serverInfo;
@@ -163,6 +167,26 @@ public class WorkspaceInfo {
     return Collections.unmodifiableList(myWorkingFoldersInfos);
   }
 
+  @NotNull
+  private WorkingFolderIndex getWorkingFolderIndex(Object projectOrComponent) throws TfsException {
+    loadFromServer(projectOrComponent, false);
+    return getWorkingFolderIndexCached();
+  }
+
+  @NotNull
+  private synchronized WorkingFolderIndex getWorkingFolderIndexCached() {
+    Pair<Integer, WorkingFolderIndex> index = myWorkingFolderIndex;
+    if (index == null || index.first != myWorkingFoldersModificationCount) {
+      index = Pair.create(myWorkingFoldersModificationCount, new WorkingFolderIndex(myWorkingFoldersInfos));
+      myWorkingFolderIndex = index;
+    }
+    return index.second;
+  }
+
+  private synchronized void workingFoldersChanged() {
+    myWorkingFoldersModificationCount++;
+  }
+
   public void loadFromServer(Object projectOrComponent, boolean force) throws TfsException {
     if (myOriginalName == null || myLoaded || !hasCurrentOwnerAndComputer()) {
       return;
@@ -178,12 +202,12 @@ public class WorkspaceInfo {
   }
 
   boolean hasMappingCached(FilePath localPath, boolean considerChildMappings) {
-    return hasMapping(getWorkingFoldersCached(), localPath, considerChildMappings);
+    return getWorkingFolderIndexCached().hasMapping(localPath, considerChildMappings);
   }
 
   boolean hasMapping(FilePath localPath, boolean considerChildMappings, Object projectOrComponent) throws TfsException {
     // post-check current owner since it might have just been changed dirung getWorkingFolders() call
-    return hasMapping(getWorkingFolders(projectOrComponent), localPath, considerChildMappings) && hasCurrentOwnerAndComputer();
+    return getWorkingFolderIndex(projectOrComponent).hasMapping(localPath, considerChildMappings) && hasCurrentOwnerAndComputer();
   }
 
   boolean hasCurrentOwnerAndComputer() {
@@ -220,10 +244,8 @@ public class WorkspaceInfo {
 
     if (considerChildMappings) {
       Collection<String> childMappings = new ArrayList<>();
-      for (WorkingFolderInfo workingFolder : getWorkingFolders(projectOrComponent)) {
-        if (workingFolder.getLocalPath().isUnder(localPathOnLocalFileSystem, false)) {
-          childMappings.add(workingFolder.getServerPath());
-        }
+      for (WorkingFolderInfo workingFolder : getWorkingFolderIndex(projectOrComponent).findChildMappings(localPathOnLocalFileSystem)) {
+        childMappings.add(workingFolder.getServerPath());
       }
       return childMappings;
     }
@@ -243,36 +265,30 @@ public class WorkspaceInfo {
     return findLocalPathByServerPath(serverPath, false, projectOrComponent) != null;
   }
 
+  /**
+   * @return true if nearest mapping of given server path is a cloak
+   */
+  public boolean isCloaked(final @NotNull String serverPath, Object projectOrComponent) throws TfsException {
+    return getWorkingFolderIndex(projectOrComponent).isCloaked(serverPath);
+  }
+
   // TODO inline?
 
   @Nullable
   private WorkingFolderInfo findNearestParentMapping(final @NotNull FilePath localPath, Object projectOrComponent) throws TfsException {
-    WorkingFolderInfo mapping = null;
-    for (WorkingFolderInfo folderInfo : getWorkingFolders(projectOrComponent)) {
-      if (folderInfo.getServerPathByLocalPath(localPath) != null &&
-          (mapping == null || folderInfo.getLocalPath().isUnder(mapping.getLocalPath(), false))) {
-        mapping = folderInfo;
-      }
-    }
-    return mapping;
+    return getWorkingFolderIndex(projectOrComponent).findNearestMapping(localPath);
   }
 
   @Nullable
   private WorkingFolderInfo findNearestParentMapping(final @NotNull String serverPath, boolean isDirectory, Object projectOrComponent)
     throws TfsException {
-    WorkingFolderInfo mapping = null;
-    for (WorkingFolderInfo folderInfo : getWorkingFolders(projectOrComponent)) {
-      if (folderInfo.getLocalPathByServerPath(serverPath, isDirectory) != null &&
-          (mapping == null || VersionControlPath.isUnder(mapping.getServerPath(), folderInfo.getServerPath()))) {
-        mapping = folderInfo;
-      }
-    }
-    return mapping;
+    return getWorkingFolderIndex(projectOrComponent).findNearestMapping(serverPath);
   }
 
 
   public void addWorkingFolderInfo(final WorkingFolderInfo workingFolderInfo) {
     myWorkingFoldersInfos.add(workingFolderInfo);
+    workingFoldersChanged();
   }
 
   public void addOwnerAlias(@NotNull String alias) {
@@ -282,12 +298,14 @@ public class WorkspaceInfo {
   public void removeWorkingFolderInfo(final WorkingFolderInfo folderInfo) {
     checkCurrentOwnerAndComputer();
     myWorkingFoldersInfos.remove(folderInfo);
+    workingFoldersChanged();
   }
 
   public void setWorkingFolders(final List<WorkingFolderInfo> workingFolders) {
     checkCurrentOwnerAndComputer();
     myWorkingFoldersInfos.clear();
     myWorkingFoldersInfos.addAll(workingFolders);
+    workingFoldersChanged();
   }
 
   public void saveToServer(Object projectOrComponent, WorkspaceInfo originalWorkspace) throws TfsException {
@@ -378,6 +396,7 @@ public class WorkspaceInfo {
       }
     }
     workspace.myWorkingFoldersInfos = workingFoldersInfos;
+    workspace.workingFoldersChanged();
   }
 
   public WorkspaceInfo getCopy() {
@@ -424,17 +443,6 @@ public class WorkspaceInfo {
     return true;
   }
 
-  private static boolean hasMapping(Collection<WorkingFolderInfo> mappings, FilePath localPath, boolean considerChildMappings) {
-    final FilePath localPathOnLocalFileSystem = VcsUtil.getFilePath(localPath.getPath(), localPath.isDirectory());
-    for (WorkingFolderInfo mapping : mappings) {
-      if (localPathOnLocalFileSystem.isUnder(mapping.getLocalPath(), false) ||
-          (considerChildMappings && mapping.getLocalPath().isUnder(localPathOnLocalFileSystem, false))) {
-        return true;
-      }
-    }
-    return false;
-  }
-
   @SuppressWarnings({"HardCodedStringLiteral"})
   public String toString() {
     return "WorkspaceInfo[server=" +
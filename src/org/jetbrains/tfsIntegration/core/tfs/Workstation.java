@@ -16,13 +16,19 @@
 
 package org.jetbrains.tfsIntegration.core.tfs;
 
+import com.intellij.openapi.application.Application;
+import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.util.Couple;
+import com.intellij.openapi.util.Disposer;
 import com.intellij.openapi.util.Ref;
+import com.intellij.openapi.util.io.FileUtil;
 import com.intellij.openapi.util.text.StringUtil;
 import com.intellij.openapi.vcs.FilePath;
 import com.intellij.util.Function;
 import com.intellij.util.Functions;
 import com.intellij.util.JdomKt;
+import com.intellij.util.concurrency.AppExecutorUtil;
 import com.intellij.util.containers.ContainerUtil;
 import org.apache.axis2.databinding.utils.ConverterUtil;
 import org.jdom.Element;
@@ -42,12 +48,12 @@ import java.io.IOException;
 import java.net.InetAddress;
 import java.net.URI;
 import java.net.UnknownHostException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.util.ArrayList;
-import java.util.Collection;
-import java.util.Collections;
-import java.util.List;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static org.jetbrains.tfsIntegration.core.tfs.TfsUtil.forcePluginClassLoader;
 import static org.jetbrains.tfsIntegration.core.tfs.XmlConstants.*;
@@ -63,10 +69,20 @@ public class Workstation {
 
   private @Nullable Ref<FilePath> myDuplicateMappedPath;
 
+  private static final int SAVE_DELAY_MS = Integer.getInteger("org.jetbrains.tfsIntegration.cacheSaveDelay", 300);
+
+  // snapshot of the cache taken by the last update() and not written yet
+  private final AtomicReference<Element> myPendingCache = new AtomicReference<>();
+  private final Object mySaveLock = new Object();
+
   private static String ourComputerName;
 
   private Workstation() {
     myServerInfos = loadCache();
+    Application application = ApplicationManager.getApplication();
+    if (application != null) {
+      Disposer.register(application, this::flush);
+    }
   }
 
   private static class WorkstationHolder {
@@ -90,17 +106,24 @@ public class Workstation {
 
   @NotNull
   private List<WorkspaceInfo> getAllWorkspacesForCurrentOwnerAndComputer(boolean showLoginIfNoCredentials) {
+    List<ServerInfo> servers = getServers();
+    Collection<ServerInfo> notAuthenticated = Collections.emptySet();
+    if (showLoginIfNoCredentials) {
+      // authenticate against different servers at once, login dialogs are still shown one at a time
+      List<ServerInfo> withoutCredentials = ContainerUtil.filter(servers, server -> server.getQualifiedUsername() == null);
+      Set<ServerInfo> authenticated = WorkstationHelper.processServersConcurrently(withoutCredentials, server -> {
+        TfsServerConnectionHelper.ensureAuthenticated(null, server.getUri(), false);
+        return Boolean.TRUE;
+      }, null).keySet();
+      notAuthenticated = new HashSet<>(withoutCredentials);
+      notAuthenticated.removeAll(authenticated);
+    }
+
     List<WorkspaceInfo> result = new ArrayList<>();
-    for (final ServerInfo server : getServers()) {
-      if (showLoginIfNoCredentials && server.getQualifiedUsername() == null) {
-        try {
-          TfsServerConnectionHelper.ensureAuthenticated(null, server.getUri(), false);
-        }
-        catch (TfsException e) {
-          continue;
-        }
+    for (final ServerInfo server : servers) {
+      if (!notAuthenticated.contains(server)) {
+        result.addAll(server.getWorkspacesForCurrentOwnerAndComputer());
       }
-      result.addAll(server.getWorkspacesForCurrentOwnerAndComputer());
     }
     return result;
   }
@@ -112,7 +135,9 @@ public class Workstation {
     if (cacheFile != null) {
       try {
         WorkstationCacheReader reader = new WorkstationCacheReader();
-        try (BufferedReader stream = Files.newBufferedReader(cacheFile)) {
+        // wait for a writer in another IDE instance to finish
+        try (FileChannel ignored = lockForReading(cacheFile);
+             BufferedReader stream = Files.newBufferedReader(cacheFile)) {
           forcePluginClassLoader(() -> SAXParserFactory.newInstance().newSAXParser().parse(new InputSource(stream), reader));
         }
         return reader.getServers();
@@ -124,6 +149,28 @@ public class Workstation {
     return new ArrayList<>();
   }
 
+  /**
+   * @return channel of the held lock file, or null if the lock cannot be taken (e.g. temp directory is not writable): readers
+   * don't need it to see a consistent file, only to wait for a writer in progress
+   */
+  @Nullable
+  private static FileChannel lockForReading(@NotNull Path cacheFile) {
+    try {
+      FileChannel lockChannel = FileChannel.open(getLockFile(cacheFile), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+      try {
+        lockChannel.lock();
+        return lockChannel;
+      }
+      catch (IOException | RuntimeException e) {
+        lockChannel.close();
+        throw e;
+      }
+    }
+    catch (IOException e) {
+      LOG.info("Cannot lock workspace cache, reading it without the lock", e);
+      return null;
+    }
+  }
 
   @Nullable
   private static Path getCacheFile(boolean existingOnly) {
@@ -135,45 +182,39 @@ public class Workstation {
     return (Files.exists(cacheFile) || !existingOnly) ? cacheFile : null;
   }
 
+  /**
+   * Schedules saving of the cache: changes coming in a row (e.g. while reloading workspaces of several servers) are written once,
+   * not on the caller's thread. Use {@link #flush()} to write pending changes immediately.
+   */
   void update() {
     invalidateDuplicateMappedPath();
 
-    Path cacheFile = getCacheFile(false);
-    if (cacheFile != null) {
-      try {
-        Element serversElement = new Element(SERVERS);
-
-        for (ServerInfo serverInfo : getServers()) {
-          Element serverInfoElement = new Element(SERVER_INFO)
-            .setAttribute(URI_ATTR, serverInfo.getUri().toString())
-            .setAttribute(GUID_ATTR, serverInfo.getGuid());
-
-          serversElement.addContent(serverInfoElement);
-
-          for (WorkspaceInfo workspaceInfo : serverInfo.getWorkspaces()) {
-            Element workspaceInfoElement = new Element(WORKSPACE_INFO)
-              .setAttribute(COMPUTER_ATTR, workspaceInfo.getComputer())
-              .setAttribute(OWNER_NAME_ATTR, workspaceInfo.getOwnerName())
-              .setAttribute(TIMESTAMP_ATTR, ConverterUtil.convertToString(workspaceInfo.getTimestamp()))
-              .setAttribute(NAME_ATTR, workspaceInfo.getName())
-              .setAttribute(IS_LOCAL_WORKSPACE_ATTR, String.valueOf(workspaceInfo.isLocal()))
-              .setAttribute(OPTIONS_ATTR, String.valueOf(workspaceInfo.getOptions()))
-              // "comment" and "ownerDisplayName" attributes are required (otherwise Eclipse TFS plug-in fails to read cache)
-              .setAttribute(COMMENT_ATTR, StringUtil.notNullize(workspaceInfo.getComment()))
-              .setAttribute(OWNER_DISPLAY_NAME_ATTR, StringUtil.notNullize(workspaceInfo.getOwnerDisplayName()));
-            setIfNotNull(workspaceInfoElement, SECURITY_TOKEN_ATTR, workspaceInfo.getSecurityToken());
-
-            addItems(workspaceInfoElement, MAPPED_PATHS, MAPPED_PATH, PATH_ATTR, workspaceInfo.getWorkingFoldersCached(),
-                     folderInfo -> folderInfo.getLocalPath().getPresentableUrl());
-
-            addItems(workspaceInfoElement, OWNER_ALIASES, OWNER_ALIAS, OWNER_ALIAS_ATTR,
-                     workspaceInfo.getOwnerAliases(), Functions.TO_STRING());
-
-            serverInfoElement.addContent(workspaceInfoElement);
-          }
-        }
+    if (PRESERVE_CONFIG_FILE) {
+      return;
+    }
+    // take the snapshot on the thread that changed workspaces, only writing it is deferred
+    if (myPendingCache.getAndSet(createCacheElement()) == null) {
+      AppExecutorUtil.getAppScheduledExecutorService().schedule(this::flush, SAVE_DELAY_MS, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  /**
+   * Writes pending changes of the cache, if any. Called on application shutdown.
+   */
+  public void flush() {
+    synchronized (mySaveLock) {
+      Element root = myPendingCache.getAndSet(null);
+      if (root == null) {
+        return;
+      }
 
-        JdomKt.write(new Element(ROOT).addContent(serversElement), cacheFile);
+      Path cacheFile = getCacheFile(false);
+      if (cacheFile == null) {
+        return;
+      }
+
+      try {
+        writeAtomically(root, cacheFile);
       }
       catch (IOException e) {
         LOG.info("Cannot update workspace cache", e);
@@ -181,6 +222,78 @@ public class Workstation {
     }
   }
 
+  @NotNull
+  private Element createCacheElement() {
+    Element serversElement = new Element(SERVERS);
+
+    for (ServerInfo serverInfo : getServers()) {
+      Element serverInfoElement = new Element(SERVER_INFO)
+        .setAttribute(URI_ATTR, serverInfo.getUri().toString())
+        .setAttribute(GUID_ATTR, serverInfo.getGuid());
+
+      serversElement.addContent(serverInfoElement);
+
+      for (WorkspaceInfo workspaceInfo : serverInfo.getWorkspaces()) {
+        Element workspaceInfoElement = new Element(WORKSPACE_INFO)
+          .setAttribute(COMPUTER_ATTR, workspaceInfo.getComputer())
+          .setAttribute(OWNER_NAME_ATTR, workspaceInfo.getOwnerName())
+          .setAttribute(TIMESTAMP_ATTR, ConverterUtil.convertToString(workspaceInfo.getTimestamp()))
+          .setAttribute(NAME_ATTR, workspaceInfo.getName())
+          .setAttribute(IS_LOCAL_WORKSPACE_ATTR, String.valueOf(workspaceInfo.isLocal()))
+          .setAttribute(OPTIONS_ATTR, String.valueOf(workspaceInfo.getOptions()))
+          // "comment" and "ownerDisplayName" attributes are required (otherwise Eclipse TFS plug-in fails to read cache)
+          .setAttribute(COMMENT_ATTR, StringUtil.notNullize(workspaceInfo.getComment()))
+          .setAttribute(OWNER_DISPLAY_NAME_ATTR, StringUtil.notNullize(workspaceInfo.getOwnerDisplayName()));
+        setIfNotNull(workspaceInfoElement, SECURITY_TOKEN_ATTR, workspaceInfo.getSecurityToken());
+
+        addItems(workspaceInfoElement, MAPPED_PATHS, MAPPED_PATH, PATH_ATTR, workspaceInfo.getWorkingFoldersCached(),
+                 folderInfo -> folderInfo.getLocalPath().getPresentableUrl());
+
+        addItems(workspaceInfoElement, OWNER_ALIASES, OWNER_ALIAS, OWNER_ALIAS_ATTR,
+                 workspaceInfo.getOwnerAliases(), Functions.TO_STRING());
+
+        serverInfoElement.addContent(workspaceInfoElement);
+      }
+    }
+
+    return new Element(ROOT).addContent(serversElement);
+  }
+
+  /**
+   * The cache is shared with other TFS clients, so replace it with rename: they never see a partially written file. Other IDE instances
+   * also honor the lock, so that concurrent writes of them don't overwrite each other's temp file or rename.
+   */
+  private static void writeAtomically(@NotNull Element root, @NotNull Path cacheFile) throws IOException {
+    Path directory = cacheFile.toAbsolutePath().getParent();
+    Files.createDirectories(directory);
+    try (FileChannel lockChannel = FileChannel.open(getLockFile(cacheFile), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+         FileLock ignored = lockChannel.lock()) {
+      Path tempFile = Files.createTempFile(directory, cacheFile.getFileName().toString(), ".tmp");
+      try {
+        JdomKt.write(root, tempFile);
+        try {
+          Files.move(tempFile, cacheFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        catch (AtomicMoveNotSupportedException e) {
+          Files.move(tempFile, cacheFile, StandardCopyOption.REPLACE_EXISTING);
+        }
+      }
+      finally {
+        Files.deleteIfExists(tempFile);
+      }
+    }
+  }
+
+  /**
+   * Lock file is only known to IDE instances, so it is kept in the temp directory rather than in the cache directory of TFS clients.
+   * Unlike the IDE system directory, the temp directory is the same for different IDEs and their versions sharing the cache.
+   */
+  @NotNull
+  private static Path getLockFile(@NotNull Path cacheFile) {
+    String name = cacheFile.getFileName() + "." + Integer.toHexString(cacheFile.toAbsolutePath().toString().hashCode()) + ".lock";
+    return Paths.get(FileUtil.getTempDirectory(), name);
+  }
+
   private static <T> void addItems(@NotNull Element parentElement,
                                    @NotNull String elementName,
                                    @NotNull String itemElementName,
@@ -259,30 +372,106 @@ public class Workstation {
                                                   boolean considerChildMappings,
                                                   Object projectOrComponent) throws TfsException {
     checkDuplicateMappings();
-    final Collection<WorkspaceInfo> resultCached = findWorkspacesCached(localPath, considerChildMappings);
-    if (!resultCached.isEmpty()) {
+    return new WorkspacesResolver(considerChildMappings, projectOrComponent).resolve(localPath);
+  }
+
+  /**
+   * Bulk version of {@link #findWorkspaces(FilePath, boolean, Object)}: workspaces are enumerated, reloaded and checked for
+   * duplicate mappings once for the whole set, and paths whose parent folder has already been resolved are not looked up again.
+   *
+   * @return workspaces for every given path in iteration order, empty collection for orphan paths
+   */
+  @NotNull
+  public Map<FilePath, Collection<WorkspaceInfo>> findWorkspaces(final @NotNull Collection<? extends FilePath> localPaths,
+                                                                 boolean considerChildMappings,
+                                                                 Object projectOrComponent) throws TfsException {
+    checkDuplicateMappings();
+    WorkspacesResolver resolver = new WorkspacesResolver(considerChildMappings, projectOrComponent);
+    Map<FilePath, Collection<WorkspaceInfo>> result = new LinkedHashMap<>(localPaths.size());
+    for (FilePath localPath : localPaths) {
+      result.put(localPath, resolver.resolve(localPath));
+    }
+    return result;
+  }
+
+  private class WorkspacesResolver {
+    private final boolean myConsiderChildMappings;
+    private final Object myProjectOrComponent;
+    @NotNull private final List<WorkspaceInfo> myCachedWorkspaces;
+    @Nullable private List<WorkspaceInfo> myReloadedWorkspaces;
+    // if server is somehow unavailable, don't try every workspace on it
+    private final Collection<ServerInfo> myServersToSkip = new HashSet<>();
+    // folder -> workspace whose mapping covers it (and therefore every child of it)
+    private final Map<FilePath, Collection<WorkspaceInfo>> myResolvedParents = new HashMap<>();
+
+    WorkspacesResolver(boolean considerChildMappings, Object projectOrComponent) {
+      myConsiderChildMappings = considerChildMappings;
+      myProjectOrComponent = projectOrComponent;
+      myCachedWorkspaces = getAllWorkspacesForCurrentOwnerAndComputer(false);
+    }
+
+    @NotNull
+    Collection<WorkspaceInfo> resolve(@NotNull FilePath localPath) throws TfsException {
+      // child mappings of a path are not shared with its parent, so memoizing is only valid when they are not considered
+      FilePath parent = myConsiderChildMappings ? null : localPath.getParentPath();
+      if (parent != null) {
+        Collection<WorkspaceInfo> resolved = myResolvedParents.get(parent);
+        if (resolved != null) {
+          return resolved;
+        }
+      }
+
+      Collection<WorkspaceInfo> result = resolveCached(localPath);
+      if (result.isEmpty()) {
+        result = resolveReloaded(localPath);
+      }
+
+      if (parent != null && !result.isEmpty() && result.iterator().next().hasMappingCached(parent, false)) {
+        myResolvedParents.put(parent, result);
+      }
+      return result;
+    }
+
+    @NotNull
+    private Collection<WorkspaceInfo> resolveCached(@NotNull FilePath localPath) throws TfsException {
+      // try cached working folders first
+      Collection<WorkspaceInfo> result = new ArrayList<>();
+      for (WorkspaceInfo workspace : myCachedWorkspaces) {
+        if (workspace.hasMappingCached(localPath, myConsiderChildMappings)) {
+          result.add(workspace);
+          if (!myConsiderChildMappings) {
+            // optimization: same local path can't be mapped in different workspaces, so don't process other workspaces
+            break;
+          }
+        }
+      }
+
       // given path is mapped according to cached mapping info -> reload and check with server info
-      for (WorkspaceInfo workspace : resultCached) {
-        if (!workspace.hasMapping(localPath, considerChildMappings, projectOrComponent)) {
+      for (WorkspaceInfo workspace : result) {
+        if (!workspace.hasMapping(localPath, myConsiderChildMappings, myProjectOrComponent)) {
           throw new WorkspaceHasNoMappingException(workspace);
         }
       }
-      return resultCached;
+      return result;
     }
-    else {
+
+    @NotNull
+    private Collection<WorkspaceInfo> resolveReloaded(@NotNull FilePath localPath) {
       // TODO: exclude servers that are unavailable during current application run
       // not found in cached info, but workspaces may be out of date -> try to search all the workspaces reloaded
+      if (myReloadedWorkspaces == null) {
+        myReloadedWorkspaces = getAllWorkspacesForCurrentOwnerAndComputer(true);
+        preloadWorkspaces();
+      }
       Collection<WorkspaceInfo> result = new ArrayList<>();
-      Collection<ServerInfo> serversToSkip = new ArrayList<>();
-      for (WorkspaceInfo workspace : getAllWorkspacesForCurrentOwnerAndComputer(true)) {
-        if (serversToSkip.contains(workspace.getServer())) {
-          // if server is somehow unavailable, don't try every workspace on it
+      for (WorkspaceInfo workspace : myReloadedWorkspaces) {
+        if (myServersToSkip.contains(workspace.getServer())) {
           continue;
         }
         try {
-          if (workspace.hasMapping(localPath, considerChildMappings, projectOrComponent)) {
+          if (workspace.hasMapping(localPath, myConsiderChildMappings, myProjectOrComponent)) {
             result.add(workspace);
-            if (!considerChildMappings) {
+            if (!myConsiderChildMappings) {
               // optmimization: same local path can't be mapped in different workspaces, so don't process other workspaces
               return result;
             }
@@ -290,11 +479,40 @@ public class Workstation {
         }
         catch (TfsException e) {
           // if some server failed, try next one, otherwise user will get strange error messages
-          serversToSkip.add(workspace.getServer());
+          myServersToSkip.add(workspace.getServer());
         }
       }
       return result;
     }
+
+    /**
+     * Loads working folders of all the reloaded workspaces, concurrently for different servers, instead of loading them one by one
+     * while looking for a mapping. Workspaces of one server are loaded in turn since requests to a server are serialized anyway.
+     */
+    private void preloadWorkspaces() {
+      //noinspection ConstantConditions
+      Map<ServerInfo, List<WorkspaceInfo>> server2workspaces = new LinkedHashMap<>();
+      for (WorkspaceInfo workspace : myReloadedWorkspaces) {
+        server2workspaces.computeIfAbsent(workspace.getServer(), server -> new ArrayList<>()).add(workspace);
+      }
+      if (server2workspaces.size() < 2 || ApplicationManager.getApplication().isDispatchThread()) {
+        // nothing to win, keep loading lazily
+        return;
+      }
+
+      Set<ServerInfo> loaded = WorkstationHelper.processServersConcurrently(server2workspaces.keySet(), server -> {
+        for (WorkspaceInfo workspace : server2workspaces.get(server)) {
+          workspace.loadFromServer(myProjectOrComponent, false);
+        }
+        return Boolean.TRUE;
+      }, null).keySet();
+      for (ServerInfo server : server2workspaces.keySet()) {
+        if (!loaded.contains(server)) {
+          // same as failure while looking for a mapping: don't try this server again
+          myServersToSkip.add(server);
+        }
+      }
+    }
   }
 
   public void checkDuplicateMappings() throws DuplicateMappingException {
@@ -312,27 +530,89 @@ public class Workstation {
 
   @Nullable
   private FilePath findDuplicateMappedPath() {
-    // don't check duplicate mappings within the same server, server side should take care about this
-    Collection<FilePath> otherServersPaths = new ArrayList<>();
+    List<Couple<FilePath>> overlappingMappings = findOverlappingMappings();
+    return overlappingMappings.isEmpty() ? null : overlappingMappings.get(0).second;
+  }
+
+  /**
+   * Finds local paths mapped in workspaces of different servers that are equal or nested.
+   * Duplicate mappings within the same server are not reported, server side should take care about this.
+   *
+   * @return pairs of (ancestor, descendant) local paths, one pair for every descendant mapping
+   */
+  @NotNull
+  public List<Couple<FilePath>> findOverlappingMappings() {
+    Map<ServerInfo, List<FilePath>> mappings = new LinkedHashMap<>();
     for (ServerInfo server : getServers()) {
-      Collection<FilePath> currentServerPaths = new ArrayList<>();
+      List<FilePath> localPaths = new ArrayList<>();
       for (WorkspaceInfo workspace : server.getWorkspacesForCurrentOwnerAndComputer()) {
         for (WorkingFolderInfo workingFolder : workspace.getWorkingFoldersCached()) {
-          final FilePath currentServerPath = workingFolder.getLocalPath();
-          for (FilePath otherServerPath : otherServersPaths) {
-            if (currentServerPath.isUnder(otherServerPath, false)) {
-              return currentServerPath;
-            }
-            if (otherServerPath.isUnder(currentServerPath, false)) {
-              return otherServerPath;
-            }
-          }
-          currentServerPaths.add(currentServerPath);
+          localPaths.add(workingFolder.getLocalPath());
         }
       }
-      otherServersPaths.addAll(currentServerPaths);
+      mappings.put(server, localPaths);
+    }
+    return findOverlappingMappings(mappings);
+  }
+
+  /**
+   * Mappings are sorted so that every path directly follows its ancestors, and then checked in one pass against the chain of
+   * ancestors, so it takes O(n log n) rather than comparing every mapping to every other one.
+   *
+   * @param mappings local paths mapped by every server
+   */
+  @NotNull
+  static List<Couple<FilePath>> findOverlappingMappings(@NotNull Map<?, ? extends Collection<FilePath>> mappings) {
+    List<MappingEntry> entries = new ArrayList<>();
+    for (Map.Entry<?, ? extends Collection<FilePath>> serverMappings : mappings.entrySet()) {
+      for (FilePath localPath : serverMappings.getValue()) {
+        entries.add(new MappingEntry(serverMappings.getKey(), localPath));
+      }
+    }
+    entries.sort(MappingEntry.ANCESTORS_FIRST);
+
+    List<Couple<FilePath>> result = new ArrayList<>();
+    Deque<MappingEntry> ancestors = new ArrayDeque<>();
+    for (MappingEntry entry : entries) {
+      while (!ancestors.isEmpty() && !ancestors.peek().myPath.isAncestorOf(entry.myPath, false)) {
+        ancestors.pop();
+      }
+      for (MappingEntry ancestor : ancestors) {
+        if (ancestor.myServer != entry.myServer) {
+          result.add(Couple.of(ancestor.myLocalPath, entry.myLocalPath));
+          break;
+        }
+      }
+      ancestors.push(entry);
+    }
+    return result;
+  }
+
+  private static final class MappingEntry {
+    // '/' goes before any other character, so that "a/b" precedes "a-b" and descendants of "a" follow it without gaps
+    private static final Comparator<MappingEntry> ANCESTORS_FIRST = (o1, o2) -> {
+      String path1 = o1.myPath.getFolded();
+      String path2 = o2.myPath.getFolded();
+      int length = Math.min(path1.length(), path2.length());
+      for (int i = 0; i < length; i++) {
+        char c1 = path1.charAt(i);
+        char c2 = path2.charAt(i);
+        if (c1 != c2) {
+          return c1 == '/' ? -1 : c2 == '/' ? 1 : Character.compare(c1, c2);
+        }
+      }
+      return Integer.compare(path1.length(), path2.length());
+    };
+
+    private final Object myServer;
+    private final FilePath myLocalPath;
+    private final CanonicalPath myPath;
+
+    private MappingEntry(Object server, FilePath localPath) {
+      myServer = server;
+      myLocalPath = localPath;
+      myPath = CanonicalPath.local(localPath);
     }
-    return null;
   }
 
 }
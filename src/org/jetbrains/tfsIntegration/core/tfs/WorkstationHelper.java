@@ -16,14 +16,41 @@
 
 package org.jetbrains.tfsIntegration.core.tfs;
 
+import com.intellij.concurrency.SensitiveProgressWrapper;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.progress.ProcessCanceledException;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.util.Ref;
+import com.intellij.openapi.util.ThrowableComputable;
 import com.intellij.openapi.vcs.FilePath;
+import com.intellij.util.ExceptionUtil;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.tfsIntegration.core.TFSProgressUtil;
+import org.jetbrains.tfsIntegration.core.TfsTrace;
 import org.jetbrains.tfsIntegration.exceptions.TfsException;
+import org.jetbrains.tfsIntegration.webservice.RequestPriority;
 
 import java.util.*;
+import java.util.concurrent.*;
 
 // TODO: rename this class
 public class WorkstationHelper {
 
+  private static final Logger LOG = Logger.getInstance(WorkstationHelper.class.getName());
+
+  private static final int MAX_CONCURRENT_WORKSPACES = Integer.getInteger("org.jetbrains.tfsIntegration.concurrentWorkspaces", 4);
+
+  private static final ExecutorService ourWorkspacesExecutor =
+    AppExecutorUtil.createBoundedApplicationPoolExecutor("TFS Workspaces", Math.max(1, MAX_CONCURRENT_WORKSPACES));
+
+  private static final int MAX_CONCURRENT_SERVERS = Integer.getInteger("org.jetbrains.tfsIntegration.concurrentServers", 4);
+
+  private static final ExecutorService ourServersExecutor =
+    AppExecutorUtil.createBoundedApplicationPoolExecutor("TFS Servers", Math.max(1, MAX_CONCURRENT_SERVERS));
+
   private WorkstationHelper() {
   }
 
@@ -31,6 +58,119 @@ public class WorkstationHelper {
     void executeRequest(WorkspaceInfo workspace, List<ItemPath> paths) throws TfsException;
   }
 
+  public interface ProcessDelegate<T> {
+    /**
+     * Called concurrently for different workspaces, so must not touch any state shared between them.
+     */
+    T executeRequest(WorkspaceInfo workspace, List<ItemPath> paths) throws TfsException;
+  }
+
+  public interface ResultConsumer<T> {
+    /**
+     * Called on the calling thread, one workspace at a time, in the order workspaces are processed sequentially.
+     */
+    void consume(WorkspaceInfo workspace, List<ItemPath> paths, T result) throws TfsException;
+
+    /**
+     * Called instead of {@link #consume} for the workspace whose request failed. Rethrows by default, which stops processing
+     * of remaining workspaces just as sequential processing does.
+     */
+    default void consumeError(WorkspaceInfo workspace, List<ItemPath> paths, TfsException error) throws TfsException {
+      throw error;
+    }
+  }
+
+  public interface ServerDelegate<T> {
+    /**
+     * Called concurrently for different servers, so must not touch any state shared between them.
+     */
+    T execute(ServerInfo server) throws TfsException;
+  }
+
+  public interface ServerListener<T> {
+    /**
+     * Called as soon as the server is processed, on the thread that processed it, so servers are reported in order of completion.
+     *
+     * @param result result of the delegate or null if it failed
+     * @param error  error thrown by the delegate or null if it succeeded
+     */
+    void serverProcessed(ServerInfo server, @Nullable T result, @Nullable TfsException error);
+  }
+
+  /**
+   * Executes the delegate for every server, concurrently for different servers (at most
+   * {@code org.jetbrains.tfsIntegration.concurrentServers} at a time), so that a slow or unavailable server does not delay others.
+   * If called on the dispatch thread, servers are processed one after another since requests executed there show modal progress.
+   *
+   * @param listener notified about every server as soon as it is processed, may be used to show partial results
+   * @return results of servers processed successfully, in order of given servers
+   */
+  public static <T> Map<ServerInfo, T> processServersConcurrently(Collection<ServerInfo> servers,
+                                                                 ServerDelegate<T> delegate,
+                                                                 @Nullable ServerListener<? super T> listener) {
+    Map<ServerInfo, T> result = new LinkedHashMap<>();
+    if (servers.size() < 2 || MAX_CONCURRENT_SERVERS < 2 || ApplicationManager.getApplication().isDispatchThread()) {
+      for (ServerInfo server : servers) {
+        T serverResult = processServer(server, delegate, listener);
+        if (serverResult != null) {
+          result.put(server, serverResult);
+        }
+      }
+      return result;
+    }
+
+    final ProgressIndicator pi = ProgressManager.getInstance().getProgressIndicator();
+    final long correlationId = TfsTrace.getCorrelationId();
+    final RequestPriority priority = RequestPriority.getCurrent();
+    List<Future<T>> futures = new ArrayList<>(servers.size());
+    for (ServerInfo server : servers) {
+      futures.add(ourServersExecutor.submit(
+        () -> executeUnderProgress(pi, correlationId, priority, () -> processServer(server, delegate, listener))));
+    }
+
+    try {
+      int i = 0;
+      for (ServerInfo server : servers) {
+        T serverResult;
+        try {
+          serverResult = await(futures.get(i++), pi);
+        }
+        catch (TfsException e) {
+          // already reported to listener
+          continue;
+        }
+        if (serverResult != null) {
+          result.put(server, serverResult);
+        }
+      }
+    }
+    finally {
+      for (Future<T> future : futures) {
+        future.cancel(true);
+      }
+    }
+    return result;
+  }
+
+  @Nullable
+  private static <T> T processServer(ServerInfo server, ServerDelegate<T> delegate, @Nullable ServerListener<? super T> listener) {
+    T result;
+    try {
+      result = delegate.execute(server);
+    }
+    catch (TfsException e) {
+      LOG.info("Failed to process server " + server.getPresentableUri(), e);
+      if (listener != null) {
+        listener.serverProcessed(server, null, e);
+      }
+      return null;
+    }
+    if (listener != null) {
+      listener.serverProcessed(server, result, null);
+    }
+    return result;
+  }
+
   /**
    * @param localPaths paths of local items
    * @param processor  operation processor
@@ -43,9 +183,101 @@ public class WorkstationHelper {
                                                    Object projectOrComponent,
                                                    VoidProcessDelegate processor) throws TfsException {
     List<FilePath> orphanPaths = new ArrayList<>();
-    Map<WorkspaceInfo, List<FilePath>> workspace2localPaths = new HashMap<>();
-    for (FilePath localPath : localPaths) {
-      Collection<WorkspaceInfo> workspaces = Workstation.getInstance().findWorkspaces(localPath, considerChildMappings, projectOrComponent);
+    Map<WorkspaceInfo, List<ItemPath>> workspace2itemPaths =
+      groupByWorkspaces(localPaths, considerChildMappings, projectOrComponent, orphanPaths);
+    for (Map.Entry<WorkspaceInfo, List<ItemPath>> entry : workspace2itemPaths.entrySet()) {
+      processor.executeRequest(entry.getKey(), entry.getValue());
+    }
+    return orphanPaths;
+  }
+
+  /**
+   * Same as {@link #processByWorkspaces(Collection, boolean, Object, VoidProcessDelegate)}, but requests for different workspaces
+   * are executed concurrently (at most {@code org.jetbrains.tfsIntegration.concurrentWorkspaces} at a time). Requests to the same
+   * server are still serialized by {@link org.jetbrains.tfsIntegration.webservice.TfsRequestManager}, so the gain comes from
+   * workspaces on different servers or collections.
+   *
+   * @param processor executes requests for a workspace, concurrently with other workspaces
+   * @param consumer  handles results (or errors) of every workspace on the calling thread in deterministic order
+   * @return local paths for which workspace was not found (orphan paths)
+   * @throws TfsException in case error occurs while resolving workspaces or if rethrown by consumer
+   */
+  public static <T> List<FilePath> processByWorkspacesConcurrently(Collection<? extends FilePath> localPaths,
+                                                                   boolean considerChildMappings,
+                                                                   Object projectOrComponent,
+                                                                   ProcessDelegate<T> processor,
+                                                                   ResultConsumer<? super T> consumer) throws TfsException {
+    // requests and result processing of all the workspaces make one traced operation
+    return TfsTrace.computeInScope(
+      () -> doProcessByWorkspacesConcurrently(localPaths, considerChildMappings, projectOrComponent, processor, consumer));
+  }
+
+  private static <T> List<FilePath> doProcessByWorkspacesConcurrently(Collection<? extends FilePath> localPaths,
+                                                                      boolean considerChildMappings,
+                                                                      Object projectOrComponent,
+                                                                      ProcessDelegate<T> processor,
+                                                                      ResultConsumer<? super T> consumer) throws TfsException {
+    List<FilePath> orphanPaths = new ArrayList<>();
+    Map<WorkspaceInfo, List<ItemPath>> workspace2itemPaths =
+      groupByWorkspaces(localPaths, considerChildMappings, projectOrComponent, orphanPaths);
+
+    if (workspace2itemPaths.size() < 2 || MAX_CONCURRENT_WORKSPACES < 2) {
+      for (Map.Entry<WorkspaceInfo, List<ItemPath>> entry : workspace2itemPaths.entrySet()) {
+        T result;
+        try {
+          result = processor.executeRequest(entry.getKey(), entry.getValue());
+        }
+        catch (TfsException e) {
+          consumer.consumeError(entry.getKey(), entry.getValue(), e);
+          continue;
+        }
+        consumer.consume(entry.getKey(), entry.getValue(), result);
+      }
+      return orphanPaths;
+    }
+
+    final ProgressIndicator pi = ProgressManager.getInstance().getProgressIndicator();
+    final long correlationId = TfsTrace.getCorrelationId();
+    final RequestPriority priority = RequestPriority.getCurrent();
+    List<Future<T>> futures = new ArrayList<>(workspace2itemPaths.size());
+    for (Map.Entry<WorkspaceInfo, List<ItemPath>> entry : workspace2itemPaths.entrySet()) {
+      futures.add(ourWorkspacesExecutor.submit(
+        () -> executeUnderProgress(pi, correlationId, priority, () -> processor.executeRequest(entry.getKey(), entry.getValue()))));
+    }
+
+    try {
+      int i = 0;
+      for (Map.Entry<WorkspaceInfo, List<ItemPath>> entry : workspace2itemPaths.entrySet()) {
+        T result;
+        try {
+          result = await(futures.get(i++), pi);
+        }
+        catch (TfsException e) {
+          consumer.consumeError(entry.getKey(), entry.getValue(), e);
+          continue;
+        }
+        consumer.consume(entry.getKey(), entry.getValue(), result);
+      }
+    }
+    finally {
+      for (Future<T> future : futures) {
+        future.cancel(true);
+      }
+    }
+    return orphanPaths;
+  }
+
+  private static Map<WorkspaceInfo, List<ItemPath>> groupByWorkspaces(Collection<? extends FilePath> localPaths,
+                                                                      boolean considerChildMappings,
+                                                                      Object projectOrComponent,
+                                                                      List<? super FilePath> orphanPaths) throws TfsException {
+    // keep workspaces in order of appearance so that processing order is deterministic
+    Map<WorkspaceInfo, List<FilePath>> workspace2localPaths = new LinkedHashMap<>();
+    Map<FilePath, Collection<WorkspaceInfo>> path2workspaces =
+      Workstation.getInstance().findWorkspaces(localPaths, considerChildMappings, projectOrComponent);
+    for (Map.Entry<FilePath, Collection<WorkspaceInfo>> entry : path2workspaces.entrySet()) {
+      FilePath localPath = entry.getKey();
+      Collection<WorkspaceInfo> workspaces = entry.getValue();
       if (!workspaces.isEmpty()) {
         for (WorkspaceInfo workspace : workspaces) {
           List<FilePath> workspaceLocalPaths = workspace2localPaths.get(workspace);
@@ -61,6 +293,7 @@ public class WorkstationHelper {
       }
     }
 
+    Map<WorkspaceInfo, List<ItemPath>> result = new LinkedHashMap<>();
     for (WorkspaceInfo workspace : workspace2localPaths.keySet()) {
       List<FilePath> currentLocalPaths = workspace2localPaths.get(workspace);
       List<ItemPath> currentItemPaths = new ArrayList<>(currentLocalPaths.size());
@@ -77,9 +310,65 @@ public class WorkstationHelper {
           }
         }
       }
-      processor.executeRequest(workspace, currentItemPaths);
+      result.put(workspace, currentItemPaths);
+    }
+    return result;
+  }
+
+  private static <T> T executeUnderProgress(@Nullable ProgressIndicator pi,
+                                            long correlationId,
+                                            @Nullable RequestPriority priority,
+                                            ThrowableComputable<T, TfsException> computable)
+    throws TfsException {
+    if (correlationId != 0) {
+      // pooled thread does a part of the operation started by the caller
+      return TfsTrace.computeWithCorrelationId(correlationId, () -> executeUnderProgress(pi, 0, priority, computable));
+    }
+    if (priority != null) {
+      return RequestPriority.computeWithPriority(priority, () -> executeUnderProgress(pi, 0, null, computable));
+    }
+    if (pi == null) {
+      return computable.compute();
+    }
+    Ref<T> result = new Ref<>();
+    Ref<TfsException> error = new Ref<>();
+    // runProcess() starts and stops the indicator, so give every worker its own one that is cancelled along with the caller's
+    ProgressManager.getInstance().runProcess(() -> {
+      try {
+        result.set(computable.compute());
+      }
+      catch (TfsException e) {
+        error.set(e);
+      }
+    }, new SensitiveProgressWrapper(pi));
+    if (!error.isNull()) {
+      throw error.get();
+    }
+    return result.get();
+  }
+
+  private static <T> T await(Future<T> future, @Nullable ProgressIndicator pi) throws TfsException {
+    while (true) {
+      TFSProgressUtil.checkCanceled(pi);
+      try {
+        return future.get(50, TimeUnit.MILLISECONDS);
+      }
+      catch (TimeoutException e) {
+        // check cancellation and wait again
+      }
+      catch (InterruptedException e) {
+        throw new ProcessCanceledException(e);
+      }
+      catch (ExecutionException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof TfsException) {
+          throw (TfsException)cause;
+        }
+        LOG.warn(cause);
+        ExceptionUtil.rethrowUnchecked(cause);
+        throw new TfsException(cause);
+      }
     }
-    return orphanPaths;
   }
 
 }
@@ -34,6 +34,7 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.jetbrains.tfsIntegration.core.TFSBundle;
 import org.jetbrains.tfsIntegration.core.TFSVcs;
+import org.jetbrains.tfsIntegration.core.TfsTrace;
 import org.jetbrains.tfsIntegration.core.tfs.*;
 import org.jetbrains.tfsIntegration.exceptions.OperationFailedException;
 import org.jetbrains.tfsIntegration.exceptions.TfsException;
@@ -103,7 +104,10 @@ public class ApplyGetOperations {
                                                  final @Nullable UpdatedFiles updatedFiles,
                                                  DownloadMode downloadMode) {
     ApplyGetOperations session = new ApplyGetOperations(project, workspace, operations, progress, updatedFiles, downloadMode);
-    session.execute();
+    TfsTrace.computeInScope(() -> {
+      session.execute();
+      return null;
+    });
     return session.myErrors;
   }
 
@@ -134,39 +138,57 @@ public class ApplyGetOperations {
         myProgress.setFraction(i / sortedOperations.size());
         myProgress.setText(currentPath);
 
+        TfsTrace.FileStepEvent event = new TfsTrace.FileStepEvent();
+        event.begin();
+        String step;
         if (operationToExecute.getCnflct()) {
           // TODO can be confict on undo?
           // conflict will be resolved later
+          step = "conflict";
           processConflict(operationToExecute);
         }
         else if (operationToExecute.getSlocal() == null && operationToExecute.getTlocal() == null) {
+          step = "updateLocalVersion";
           updateLocalVersion(operationToExecute);
         }
         else if (operationToExecute.getTlocal() == null) {
           if (operationToExecute.getType() == ItemType.File) {
+            step = "deleteFile";
             processDeleteFile(operationToExecute);
           }
           else {
+            step = "deleteFolder";
             processDeleteFolder(operationToExecute);
           }
         }
         else if (operationToExecute.getSlocal() == null) {
           if (operationToExecute.getType() == ItemType.File) {
+            step = "createFile";
             processCreateFile(operationToExecute);
           }
           else {
+            step = "createFolder";
             processCreateFolder(operationToExecute);
           }
         }
         else if (operationToExecute.getType() == ItemType.File) {
+          step = "fileChange";
           processFileChange(operationToExecute);
         }
         else {
+          step = "folderChange";
           processFolderChange(operationToExecute);
           if (!operationToExecute.getSlocal().equals(operationToExecute.getTlocal())) {
             GetOperationsUtil.updateSourcePaths(sortedOperations, i, operationToExecute);
           }
         }
+        event.end();
+        if (event.shouldCommit()) {
+          event.correlationId = TfsTrace.getCorrelationId();
+          event.step = step;
+          event.path = currentPath;
+          event.commit();
+        }
       }
 
       myWorkspace.getServer().getVCS()
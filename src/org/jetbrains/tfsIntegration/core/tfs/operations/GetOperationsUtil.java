@@ -16,12 +16,11 @@
 
 package org.jetbrains.tfsIntegration.core.tfs.operations;
 
-import com.intellij.openapi.util.io.FileUtil;
 import com.microsoft.schemas.teamfoundation._2005._06.versioncontrol.clientservices._03.GetOperation;
 import org.jetbrains.tfsIntegration.core.TFSVcs;
+import org.jetbrains.tfsIntegration.core.tfs.CanonicalPath;
 import org.jetbrains.tfsIntegration.core.tfs.VersionControlPath;
 
-import java.io.File;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
@@ -29,21 +28,24 @@ import java.util.List;
 public class GetOperationsUtil {
   static List<GetOperation> sortGetOperations(Collection<? extends GetOperation> getOperations) {
     List<GetOperation> result = new ArrayList<>(getOperations.size());
+    // parse every path once rather than for every comparison
+    List<CanonicalPath> resultPaths = new ArrayList<>(getOperations.size());
     for (GetOperation newOperation : getOperations) {
       TFSVcs.assertTrue(newOperation.getSlocal() != null || newOperation.getTlocal() != null);
       int positionToInsert = result.size();
+      CanonicalPath newOpPath = null;
       if (newOperation.getSlocal() != null) {
-        final File newOpPath = VersionControlPath.getFile(newOperation.getSlocal());
+        newOpPath = CanonicalPath.local(VersionControlPath.localPathFromTfsRepresentation(newOperation.getSlocal()));
         for (int i = 0; i < result.size(); i++) {
-          final GetOperation existingOperation = result.get(i);
-          if (existingOperation.getSlocal() == null ||
-              FileUtil.isAncestor(newOpPath, VersionControlPath.getFile(existingOperation.getSlocal()), false)) {
+          final CanonicalPath existingPath = resultPaths.get(i);
+          if (existingPath == null || newOpPath.isAncestorOf(existingPath, false)) {
             positionToInsert = i;
             break;
           }
         }
       }
       result.add(positionToInsert, newOperation);
+      resultPaths.add(positionToInsert, newOpPath);
     }
     return result;
   }
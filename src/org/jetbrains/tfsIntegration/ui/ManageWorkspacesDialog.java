@@ -48,6 +48,7 @@ public class ManageWorkspacesDialog extends DialogWrapper {
   protected JComponent createCenterPanel() {
     ManageWorkspacesForm f = new ManageWorkspacesForm(myProject, true);
     f.setShowWorkspaces(true);
+    f.reloadWorkspacesInBackground(getDisposable());
     return f.getContentPane();
   }
 
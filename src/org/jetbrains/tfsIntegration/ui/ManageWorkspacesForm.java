@@ -16,14 +16,25 @@
 
 package org.jetbrains.tfsIntegration.ui;
 
+import com.intellij.concurrency.SensitiveProgressWrapper;
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.ModalityState;
+import com.intellij.openapi.progress.EmptyProgressIndicator;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.ProgressManager;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.ui.Messages;
 import com.intellij.openapi.util.Comparing;
+import com.intellij.openapi.util.Disposer;
 import com.intellij.openapi.vcs.VcsException;
 import com.intellij.ui.DoubleClickListener;
 import com.intellij.util.EventDispatcher;
+import com.intellij.util.containers.ContainerUtil;
+import com.intellij.util.ui.update.UiNotifyConnector;
 import com.microsoft.schemas.teamfoundation._2005._06.versioncontrol.clientservices._03.Annotation;
 import com.microsoft.schemas.teamfoundation._2005._06.versioncontrol.clientservices._03.Item;
+import com.microsoft.schemas.teamfoundation._2005._06.versioncontrol.clientservices._03.Workspace;
 import org.jdom.JDOMException;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -241,6 +252,42 @@ public class ManageWorkspacesForm {
     }
   }
 
+  /**
+   * Once the form is shown, refreshes workspaces of the servers that don't need login, concurrently for different servers.
+   * Every server is updated in the table as soon as its workspaces arrive, so that a slow server doesn't hold up the others.
+   */
+  public void reloadWorkspacesInBackground(@NotNull Disposable parentDisposable) {
+    UiNotifyConnector.doWhenFirstShown(myContentPane, () -> {
+      List<ServerInfo> servers = ContainerUtil.filter(Workstation.getInstance().getServers(),
+                                                      server -> !TfsRequestManager.shouldShowLoginDialog(server.getUri()));
+      if (servers.isEmpty()) {
+        return;
+      }
+
+      ModalityState modalityState = ModalityState.stateForComponent(myContentPane);
+      ProgressIndicator indicator = new EmptyProgressIndicator(modalityState);
+      Disposer.register(parentDisposable, () -> indicator.cancel());
+      WorkstationHelper.ServerListener<Workspace[]> listener = (server, workspaces, error) -> {
+        if (workspaces == null) {
+          // keep cached workspaces, the error is logged
+          return;
+        }
+        ApplicationManager.getApplication().invokeLater(() -> {
+          if (Workstation.getInstance().getServers().contains(server)) {
+            Object selection = getSelectedObject();
+            server.setWorkspacesForCurrentOwnerAndComputer(workspaces);
+            updateControls(selection);
+          }
+        }, modalityState, o -> indicator.isCanceled());
+      };
+      // run under a wrapper: runProcess() starts and stops the indicator, which would reset its cancelled state
+      ApplicationManager.getApplication().executeOnPooledThread(() -> ProgressManager.getInstance().runProcess(
+        () -> WorkstationHelper.processServersConcurrently(
+          servers, server -> server.getVCS().queryWorkspaces(Workstation.getComputerName(), myContentPane, false), listener),
+        new SensitiveProgressWrapper(indicator)));
+    });
+  }
+
   private void createUIComponents() {
     myTable = new CustomTreeTable<>(new CellRendererImpl(), false, true);
     myTable.getSelectionModel().setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
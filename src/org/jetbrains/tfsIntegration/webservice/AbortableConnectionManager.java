@@ -0,0 +1,23 @@
+package org.jetbrains.tfsIntegration.webservice;
+
+import org.apache.commons.httpclient.ConnectionPoolTimeoutException;
+import org.apache.commons.httpclient.HostConfiguration;
+import org.apache.commons.httpclient.HttpConnection;
+import org.apache.commons.httpclient.MultiThreadedHttpConnectionManager;
+
+/**
+ * Connection manager that lets {@link AbortableRequest} close connections taken by the request being cancelled.
+ */
+class AbortableConnectionManager extends MultiThreadedHttpConnectionManager {
+
+  @Override
+  public HttpConnection getConnectionWithTimeout(HostConfiguration hostConfiguration, long timeout)
+    throws ConnectionPoolTimeoutException {
+    HttpConnection result = super.getConnectionWithTimeout(hostConfiguration, timeout);
+    AbortableRequest request = AbortableRequest.getCurrent();
+    if (request != null) {
+      request.connectionTaken(result);
+    }
+    return result;
+  }
+}
@@ -0,0 +1,94 @@
+package org.jetbrains.tfsIntegration.webservice;
+
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.util.ThrowableComputable;
+import org.apache.commons.httpclient.HttpConnection;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * HTTP connections taken by a request executed by {@link TfsRequestManager}, to be closed when the request is cancelled. Closing
+ * the socket makes a call blocked on it (Axis2 stub call, upload or download) fail at once instead of waiting for the response
+ * or socket timeout, so the request gives the server lock up and the next request may go.
+ * <p/>
+ * Connections are registered by the connection manager of HTTP clients created by {@link WebServiceHelper#createHttpClient()}
+ * in the thread executing the request. Code that makes a part of the request in a pooled thread should pass it along,
+ * see {@link #computeWith}.
+ */
+public final class AbortableRequest {
+  private static final Logger LOG = Logger.getInstance(AbortableRequest.class.getName());
+
+  private static final ThreadLocal<AbortableRequest> ourCurrent = new ThreadLocal<>();
+
+  private final List<HttpConnection> myConnections = new ArrayList<>();
+  private boolean myAborted;
+
+  @Nullable
+  public static AbortableRequest getCurrent() {
+    return ourCurrent.get();
+  }
+
+  public static <T, E extends Throwable> T computeWith(@Nullable AbortableRequest request, @NotNull ThrowableComputable<T, E> computable)
+    throws E {
+    AbortableRequest previous = ourCurrent.get();
+    ourCurrent.set(request);
+    try {
+      return computable.compute();
+    }
+    finally {
+      if (previous != null) {
+        ourCurrent.set(previous);
+      }
+      else {
+        ourCurrent.remove();
+      }
+    }
+  }
+
+  void connectionTaken(@NotNull HttpConnection connection) {
+    synchronized (myConnections) {
+      if (!myAborted) {
+        myConnections.add(connection);
+        return;
+      }
+    }
+    close(connection);
+  }
+
+  /**
+   * Closes connections used by the request. Connections already released to the pool are not affected.
+   */
+  public void abort() {
+    List<HttpConnection> connections;
+    synchronized (myConnections) {
+      if (myAborted) {
+        return;
+      }
+      myAborted = true;
+      connections = new ArrayList<>(myConnections);
+      myConnections.clear();
+    }
+    for (HttpConnection connection : connections) {
+      close(connection);
+    }
+  }
+
+  public boolean isAborted() {
+    synchronized (myConnections) {
+      return myAborted;
+    }
+  }
+
+  private static void close(@NotNull HttpConnection connection) {
+    try {
+      connection.close();
+    }
+    catch (RuntimeException e) {
+      // connection may be released concurrently
+      LOG.debug(e);
+    }
+  }
+}
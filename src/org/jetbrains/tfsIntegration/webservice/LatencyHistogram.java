@@ -0,0 +1,67 @@
+package org.jetbrains.tfsIntegration.webservice;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Latency histogram with fixed millisecond buckets, cheap enough to be updated by every request.
+ * Percentiles are reported as the upper bound of the bucket they fall into.
+ */
+public final class LatencyHistogram {
+  private static final long[] BUCKET_BOUNDS_MS = {1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 2000, 5000, 10000, 20000, 60000};
+
+  private final AtomicLongArray myBuckets = new AtomicLongArray(BUCKET_BOUNDS_MS.length + 1);
+  private final AtomicLong myCount = new AtomicLong();
+  private final AtomicLong mySumMs = new AtomicLong();
+  private final AtomicLong myMaxMs = new AtomicLong();
+
+  public void record(long ms) {
+    int bucket = 0;
+    while (bucket < BUCKET_BOUNDS_MS.length && ms > BUCKET_BOUNDS_MS[bucket]) {
+      bucket++;
+    }
+    myBuckets.incrementAndGet(bucket);
+    myCount.incrementAndGet();
+    mySumMs.addAndGet(ms);
+    long max = myMaxMs.get();
+    while (ms > max && !myMaxMs.compareAndSet(max, ms)) {
+      max = myMaxMs.get();
+    }
+  }
+
+  public long getCount() {
+    return myCount.get();
+  }
+
+  public long getSumMs() {
+    return mySumMs.get();
+  }
+
+  public long getMaxMs() {
+    return myMaxMs.get();
+  }
+
+  public long getMeanMs() {
+    long count = myCount.get();
+    return count > 0 ? mySumMs.get() / count : 0;
+  }
+
+  /**
+   * @param percentile from 0 to 100
+   */
+  public long getPercentileMs(int percentile) {
+    long count = myCount.get();
+    if (count == 0) {
+      return 0;
+    }
+    long rank = Math.max(1, (count * percentile + 99) / 100);
+    long seen = 0;
+    for (int i = 0; i < BUCKET_BOUNDS_MS.length; i++) {
+      seen += myBuckets.get(i);
+      if (seen >= rank) {
+        return Math.min(BUCKET_BOUNDS_MS[i], myMaxMs.get());
+      }
+    }
+    return myMaxMs.get();
+  }
+}
@@ -0,0 +1,141 @@
+package org.jetbrains.tfsIntegration.webservice;
+
+import org.apache.axis2.AxisFault;
+import org.apache.axis2.context.MessageContext;
+import org.apache.axis2.context.OperationContext;
+import org.apache.axis2.description.AxisOperation;
+import org.apache.axis2.transport.http.CommonsHTTPTransportSender;
+import org.apache.axis2.transport.http.HTTPConstants;
+import org.apache.commons.httpclient.HttpMethod;
+import org.apache.commons.httpclient.HttpStatus;
+import org.apache.commons.httpclient.methods.EntityEnclosingMethod;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+
+/**
+ * HTTP transport sender that reports every SOAP call made by the stubs of a server to {@link TfsRequestMetrics}.
+ * {@link #invoke} sends the request and returns as soon as response headers are received, then the stub reads and parses
+ * the response body and calls {@link #cleanup}.
+ */
+class MeteredHTTPTransportSender extends CommonsHTTPTransportSender {
+  private static final String EXCHANGE_PROPERTY = MeteredHTTPTransportSender.class.getName() + ".exchange";
+
+  @Override
+  public InvocationResponse invoke(MessageContext msgContext) throws AxisFault {
+    URI serverUri = getServerUri(msgContext);
+    if (serverUri == null) {
+      return super.invoke(msgContext);
+    }
+
+    long start = System.currentTimeMillis();
+    InvocationResponse result;
+    try {
+      result = super.invoke(msgContext);
+    }
+    catch (AxisFault e) {
+      TfsRequestMetrics.getInstance().getServer(serverUri).getOperation(getOperationName(msgContext))
+        .executed(System.currentTimeMillis() - start, -1, -1, -1, true);
+      throw e;
+    }
+
+    CountingInputStream responseStream = null;
+    OperationContext operationContext = msgContext.getOperationContext();
+    if (operationContext != null) {
+      InputStream in = (InputStream)operationContext.getProperty(MessageContext.TRANSPORT_IN);
+      if (in != null) {
+        responseStream = new CountingInputStream(in);
+        operationContext.setProperty(MessageContext.TRANSPORT_IN, responseStream);
+      }
+    }
+    msgContext.setProperty(EXCHANGE_PROPERTY, new Exchange(serverUri, start, System.currentTimeMillis(), responseStream));
+    return result;
+  }
+
+  @Override
+  public void cleanup(MessageContext msgContext) throws AxisFault {
+    Exchange exchange = (Exchange)msgContext.getProperty(EXCHANGE_PROPERTY);
+    if (exchange != null) {
+      msgContext.removeProperty(EXCHANGE_PROPERTY);
+      long end = System.currentTimeMillis();
+      HttpMethod method = (HttpMethod)msgContext.getProperty(HTTPConstants.HTTP_METHOD);
+      boolean failed = method == null || method.getStatusCode() != HttpStatus.SC_OK;
+      long bytesOut = method instanceof EntityEnclosingMethod && ((EntityEnclosingMethod)method).getRequestEntity() != null
+                      ? ((EntityEnclosingMethod)method).getRequestEntity().getContentLength()
+                      : -1;
+      long bytesIn = exchange.myResponseStream != null ? exchange.myResponseStream.myCount : -1;
+      TfsRequestMetrics.getInstance().getServer(exchange.myServerUri).getOperation(getOperationName(msgContext))
+        .executed(exchange.myResponseTime - exchange.myStart, end - exchange.myResponseTime, bytesOut, bytesIn, failed);
+    }
+    super.cleanup(msgContext);
+  }
+
+  @Nullable
+  private static URI getServerUri(@NotNull MessageContext msgContext) {
+    return msgContext.getConfigurationContext() != null
+           ? (URI)msgContext.getConfigurationContext().getProperty(WebServiceHelper.SERVER_URI_PROPERTY)
+           : null;
+  }
+
+  @NotNull
+  private static String getOperationName(@NotNull MessageContext msgContext) {
+    AxisOperation operation = msgContext.getAxisOperation();
+    if (operation != null && operation.getName() != null) {
+      return operation.getName().getLocalPart();
+    }
+    String action = msgContext.getSoapAction();
+    return action != null ? action.substring(action.lastIndexOf('/') + 1) : "unknown";
+  }
+
+  private static final class Exchange {
+    private final URI myServerUri;
+    private final long myStart;
+    private final long myResponseTime;
+    @Nullable private final CountingInputStream myResponseStream;
+
+    private Exchange(@NotNull URI serverUri, long start, long responseTime, @Nullable CountingInputStream responseStream) {
+      myServerUri = serverUri;
+      myStart = start;
+      myResponseTime = responseTime;
+      myResponseStream = responseStream;
+    }
+  }
+
+  // response is read by the thread that sent the request
+  private static final class CountingInputStream extends FilterInputStream {
+    private long myCount;
+
+    private CountingInputStream(@NotNull InputStream in) {
+      super(in);
+    }
+
+    @Override
+    public int read() throws IOException {
+      int result = super.read();
+      if (result >= 0) {
+        myCount++;
+      }
+      return result;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      int result = super.read(b, off, len);
+      if (result > 0) {
+        myCount += result;
+      }
+      return result;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+      long result = super.skip(n);
+      myCount += result;
+      return result;
+    }
+  }
+}
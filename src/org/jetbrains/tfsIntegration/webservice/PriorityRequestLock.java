@@ -0,0 +1,85 @@
+package org.jetbrains.tfsIntegration.webservice;
+
+import com.intellij.openapi.progress.ProcessCanceledException;
+import com.intellij.openapi.progress.ProgressManager;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Reentrant lock that serializes requests to a server and lets interactive requests go ahead of background ones waiting for it.
+ * Background requests also keep off for {@code org.jetbrains.tfsIntegration.backgroundRequestDelay} ms after an interactive request
+ * completes, since the user is likely to do something else right away (e.g. diff after annotate).
+ * <p/>
+ * Waiting for the lock may be cancelled via the progress indicator of the waiting thread.
+ */
+class PriorityRequestLock {
+  static final int BACKGROUND_DELAY_MS = Integer.getInteger("org.jetbrains.tfsIntegration.backgroundRequestDelay", 300);
+  private static final long POLL_INTERVAL_MS = 50;
+
+  private Thread myOwner;
+  private int myHoldCount;
+  private RequestPriority myOwnerPriority;
+  private int myInteractiveWaiting;
+  private long myLastInteractiveEnd;
+
+  synchronized void lock(@NotNull RequestPriority priority) {
+    Thread current = Thread.currentThread();
+    if (myOwner == current) {
+      myHoldCount++;
+      return;
+    }
+
+    boolean interactive = priority == RequestPriority.INTERACTIVE;
+    if (interactive) {
+      myInteractiveWaiting++;
+    }
+    try {
+      long delay;
+      while ((delay = getDelay(interactive)) > 0) {
+        ProgressManager.checkCanceled();
+        wait(Math.min(delay, POLL_INTERVAL_MS));
+      }
+    }
+    catch (InterruptedException e) {
+      throw new ProcessCanceledException(e);
+    }
+    finally {
+      if (interactive) {
+        myInteractiveWaiting--;
+      }
+    }
+    myOwner = current;
+    myOwnerPriority = priority;
+    myHoldCount = 1;
+  }
+
+  /**
+   * @return 0 if the lock may be taken now, otherwise time to wait before checking again
+   */
+  private long getDelay(boolean interactive) {
+    if (myOwner != null) {
+      return POLL_INTERVAL_MS;
+    }
+    if (interactive) {
+      return 0;
+    }
+    if (myInteractiveWaiting > 0) {
+      return POLL_INTERVAL_MS;
+    }
+    return Math.max(0, myLastInteractiveEnd + BACKGROUND_DELAY_MS - System.currentTimeMillis());
+  }
+
+  synchronized void unlock() {
+    if (myOwner != Thread.currentThread()) {
+      throw new IllegalMonitorStateException();
+    }
+    if (--myHoldCount > 0) {
+      return;
+    }
+    if (myOwnerPriority == RequestPriority.INTERACTIVE) {
+      myLastInteractiveEnd = System.currentTimeMillis();
+    }
+    myOwner = null;
+    myOwnerPriority = null;
+    notifyAll();
+  }
+}
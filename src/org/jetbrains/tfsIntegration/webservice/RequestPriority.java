@@ -0,0 +1,57 @@
+package org.jetbrains.tfsIntegration.webservice;
+
+import com.intellij.openapi.util.ThrowableComputable;
+import org.jetbrains.annotations.NonNls;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Priority of requests to a server. Requests are interactive (someone is waiting for them) unless made within
+ * {@link #computeInBackground}, e.g. by change list refresh or committed changes cache refresh.
+ * <p/>
+ * Priority is kept per thread; code that passes a part of work to a pooled thread should pass the priority as well, see
+ * {@link #computeWithPriority}.
+ */
+public enum RequestPriority {
+  INTERACTIVE("interactive"),
+  BACKGROUND("background");
+
+  private static final ThreadLocal<RequestPriority> ourCurrent = new ThreadLocal<>();
+
+  @NonNls private final String myName;
+
+  RequestPriority(@NonNls String name) {
+    myName = name;
+  }
+
+  @NotNull
+  public String getName() {
+    return myName;
+  }
+
+  @NotNull
+  public static RequestPriority getCurrent() {
+    RequestPriority result = ourCurrent.get();
+    return result != null ? result : INTERACTIVE;
+  }
+
+  public static <T, E extends Throwable> T computeInBackground(@NotNull ThrowableComputable<T, E> computable) throws E {
+    return computeWithPriority(BACKGROUND, computable);
+  }
+
+  public static <T, E extends Throwable> T computeWithPriority(@NotNull RequestPriority priority,
+                                                               @NotNull ThrowableComputable<T, E> computable) throws E {
+    RequestPriority previous = ourCurrent.get();
+    ourCurrent.set(priority);
+    try {
+      return computable.compute();
+    }
+    finally {
+      if (previous != null) {
+        ourCurrent.set(previous);
+      }
+      else {
+        ourCurrent.remove();
+      }
+    }
+  }
+}
@@ -0,0 +1,168 @@
+package org.jetbrains.tfsIntegration.webservice;
+
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.util.ConcurrencyUtil;
+import com.intellij.util.containers.ContainerUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.tfsIntegration.core.TFSBundle;
+import org.jetbrains.tfsIntegration.exceptions.ConnectionFailedException;
+import org.jetbrains.tfsIntegration.exceptions.ConnectionTimeoutException;
+import org.jetbrains.tfsIntegration.exceptions.HostNotFoundException;
+import org.jetbrains.tfsIntegration.exceptions.TfsException;
+import org.jetbrains.tfsIntegration.exceptions.UserCancelledException;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Remembers connectivity failures of requests to a server (circuit breaker). After
+ * {@code org.jetbrains.tfsIntegration.circuitBreakerThreshold} failures in a row the server is considered unavailable and requests
+ * to it fail at once instead of waiting for connect or socket timeout each. When the backoff period is over, the next request
+ * probes the server with a plain HTTP request first: if the server responds, requests go on as usual, otherwise the backoff period
+ * is doubled (up to 2 minutes).
+ * <p/>
+ * The probe is made within the {@link AbortableRequest} of the request being checked, so it is cancelled along with the request.
+ * Cancelled probe tells nothing about the server, the next request probes it again.
+ */
+public final class ServerHealth {
+  private static final Logger LOG = Logger.getInstance(ServerHealth.class.getName());
+
+  private static final int FAILURE_THRESHOLD = Integer.getInteger("org.jetbrains.tfsIntegration.circuitBreakerThreshold", 3);
+  private static final long MIN_BACKOFF_MS = 5000;
+  private static final long MAX_BACKOFF_MS = 120000;
+  private static final int PROBE_TIMEOUT_MS = 5000;
+
+  private static final ConcurrentMap<URI, ServerHealth> ourInstances = ContainerUtil.newConcurrentMap();
+
+  private final URI myServerUri;
+  private final long myMinBackoffMs;
+  private final long myMaxBackoffMs;
+
+  private int myConsecutiveFailures;
+  private long myBackoffMs;
+  private long myUnavailableUntil; // 0 if server is considered available
+  private boolean myProbing;
+  @Nullable private TfsException myLastFailure;
+
+  private ServerHealth(@NotNull URI serverUri) {
+    this(serverUri, MIN_BACKOFF_MS, MAX_BACKOFF_MS);
+  }
+
+  ServerHealth(@NotNull URI serverUri, long minBackoffMs, long maxBackoffMs) {
+    myServerUri = serverUri;
+    myMinBackoffMs = minBackoffMs;
+    myMaxBackoffMs = maxBackoffMs;
+  }
+
+  @NotNull
+  public static ServerHealth getInstance(@NotNull URI serverUri) {
+    ServerHealth result = ourInstances.get(serverUri);
+    if (result == null) {
+      result = ConcurrencyUtil.cacheOrGet(ourInstances, serverUri, new ServerHealth(serverUri));
+    }
+    return result;
+  }
+
+  public synchronized boolean isAvailable() {
+    return myUnavailableUntil == 0;
+  }
+
+  /**
+   * @return current backoff period, 0 if server is considered available
+   */
+  synchronized long getBackoffMs() {
+    return myBackoffMs;
+  }
+
+  /**
+   * @throws ConnectionFailedException if the server is considered unavailable
+   * @throws UserCancelledException    if the current request was aborted while probing the server
+   */
+  public void checkAvailable() throws TfsException {
+    synchronized (this) {
+      if (myUnavailableUntil == 0) {
+        return;
+      }
+      if (myProbing || System.currentTimeMillis() < myUnavailableUntil) {
+        throw createUnavailableException();
+      }
+      myProbing = true;
+    }
+
+    boolean available = false;
+    boolean cancelled = false;
+    try {
+      WebServiceHelper.probe(myServerUri, PROBE_TIMEOUT_MS);
+      available = true;
+    }
+    catch (IOException e) {
+      AbortableRequest request = AbortableRequest.getCurrent();
+      cancelled = request != null && request.isAborted();
+      LOG.debug("Probe of " + myServerUri + (cancelled ? " cancelled" : " failed"), e);
+    }
+    finally {
+      synchronized (this) {
+        myProbing = false;
+        if (available) {
+          LOG.info(myServerUri + " is available again");
+          reset();
+        }
+        else if (!cancelled) {
+          markUnavailable(Math.min(myBackoffMs * 2, myMaxBackoffMs));
+        }
+      }
+    }
+    if (cancelled) {
+      throw new UserCancelledException();
+    }
+    if (!available) {
+      throw createUnavailableException();
+    }
+  }
+
+  public synchronized void requestSucceeded() {
+    reset();
+  }
+
+  public synchronized void requestFailed(@NotNull TfsException e) {
+    if (!isConnectivityFailure(e)) {
+      // server did respond
+      reset();
+      return;
+    }
+    myLastFailure = e;
+    if (++myConsecutiveFailures >= FAILURE_THRESHOLD && FAILURE_THRESHOLD > 0 && myUnavailableUntil == 0) {
+      markUnavailable(myMinBackoffMs);
+    }
+  }
+
+  private static boolean isConnectivityFailure(@NotNull TfsException e) {
+    if (e instanceof ConnectionTimeoutException || e instanceof HostNotFoundException) {
+      return true;
+    }
+    return e instanceof ConnectionFailedException &&
+           ((ConnectionFailedException)e).getHttpStatusCode() == 0 &&
+           e.getCause() instanceof IOException;
+  }
+
+  private void markUnavailable(long backoffMs) {
+    LOG.info(myServerUri + " is considered unavailable for " + backoffMs + " ms");
+    myBackoffMs = backoffMs;
+    myUnavailableUntil = System.currentTimeMillis() + backoffMs;
+  }
+
+  private void reset() {
+    myConsecutiveFailures = 0;
+    myBackoffMs = 0;
+    myUnavailableUntil = 0;
+    myLastFailure = null;
+  }
+
+  @NotNull
+  private synchronized ConnectionFailedException createUnavailableException() {
+    long seconds = Math.max(1, (myUnavailableUntil - System.currentTimeMillis() + 999) / 1000);
+    return new ConnectionFailedException(myLastFailure, TFSBundle.message("server.unavailable", myServerUri, seconds));
+  }
+}
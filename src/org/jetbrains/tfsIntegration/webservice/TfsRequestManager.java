@@ -2,6 +2,7 @@ package org.jetbrains.tfsIntegration.webservice;
 
 import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.progress.ProcessCanceledException;
 import com.intellij.openapi.progress.ProgressIndicator;
 import com.intellij.openapi.progress.ProgressManager;
 import com.intellij.openapi.progress.util.ProgressIndicatorUtils;
@@ -9,13 +10,18 @@ import com.intellij.openapi.project.Project;
 import com.intellij.openapi.util.ClassLoaderUtil;
 import com.intellij.openapi.util.Condition;
 import com.intellij.openapi.util.Ref;
+import com.intellij.openapi.util.ThrowableComputable;
 import com.intellij.util.WaitForProgressToShow;
+import com.intellij.util.concurrency.AppExecutorUtil;
 import com.intellij.util.concurrency.Semaphore;
+import org.apache.axis2.AxisFault;
 import org.apache.commons.httpclient.HttpStatus;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.jetbrains.tfsIntegration.config.TfsServerConnectionHelper;
+import org.jetbrains.tfsIntegration.core.StubPool;
 import org.jetbrains.tfsIntegration.core.TFSBundle;
+import org.jetbrains.tfsIntegration.core.TfsTrace;
 import org.jetbrains.tfsIntegration.core.configuration.Credentials;
 import org.jetbrains.tfsIntegration.core.configuration.TFSConfigurationManager;
 import org.jetbrains.tfsIntegration.exceptions.*;
@@ -25,6 +31,8 @@ import javax.swing.*;
 import java.net.URI;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.ReentrantLock;
 
 public class TfsRequestManager {
@@ -50,6 +58,7 @@ public class TfsRequestManager {
 
   private static final Map<URI, TfsRequestManager> ourInstances = new HashMap<>();
   private static final Logger LOG = Logger.getInstance(TfsRequestManager.class.getName());
+  private static final long CANCELLATION_CHECK_INTERVAL_MS = 100;
 
   @Nullable
   private final URI myServerUri; // null new when adding new server
@@ -60,7 +69,8 @@ public class TfsRequestManager {
   // Don't make several requests to the same server simultaneously.
   // Indeed, this way we don't protect from simultaneous request to the existing server when trying to add it as a new one
   // (finally and getting 'duplicate server' error), but I believe it won't hurt
-  private final ReentrantLock myRequestLock = new ReentrantLock();
+  // Interactive requests go ahead of background ones waiting for the lock.
+  private final PriorityRequestLock myRequestLock = new PriorityRequestLock();
 
   private TfsRequestManager(@Nullable URI serverUri) {
     myServerUri = serverUri;
@@ -150,11 +160,22 @@ public class TfsRequestManager {
         }
       }
       LOG.assertTrue(!credentials.isNull());
+      RequestPriority priority = RequestPriority.getCurrent();
+      TfsTrace.RequestEvent event = new TfsTrace.RequestEvent();
+      event.begin();
+      long lockStart = System.currentTimeMillis();
+      long requestStart = lockStart;
+      boolean locked = false;
+      boolean failed = true;
       try {
-        myRequestLock.lock();
+        myRequestLock.lock(priority);
+        locked = true;
+        requestStart = System.currentTimeMillis();
         ProgressManager.checkCanceled();
         ProgressIndicator pi = ProgressManager.getInstance().getProgressIndicator();
-        T result = executeRequestImpl(myServerUri, credentials, request, pi);
+        // forced request is what the user explicitly asked for, so let it try the server even while it is considered unavailable
+        T result = executeRequestImpl(myServerUri, credentials, request, pi, !force);
+        failed = false;
         TFSConfigurationManager.getInstance().storeCredentials(myServerUri, credentials.get());
         return result;
       }
@@ -171,7 +192,10 @@ public class TfsRequestManager {
         throw tfsException;
       }
       finally {
-        myRequestLock.unlock();
+        if (locked) {
+          myRequestLock.unlock();
+        }
+        recordRequest(myServerUri, request, priority, event, lockStart, requestStart, failed);
       }
     }
   }
@@ -181,6 +205,8 @@ public class TfsRequestManager {
     private final Object myProjectOrComponent;
     private final Request<T> myRequest;
     private final URI myCurrentServerUri;
+    // session is created in the thread that executes the request, but runs in another one
+    private final long myCorrelationId = TfsTrace.getCorrelationId();
 
     private T myResult;
     private TfsException myError;
@@ -211,20 +237,33 @@ public class TfsRequestManager {
       pi.setIndeterminate(true);
       done.down();
 
-      ApplicationManager.getApplication().executeOnPooledThread(() -> {
+      ApplicationManager.getApplication().executeOnPooledThread(() -> TfsTrace.computeWithCorrelationId(myCorrelationId, () -> {
+        TfsTrace.RequestEvent event = new TfsTrace.RequestEvent();
+        event.begin();
+        long lockStart = System.currentTimeMillis();
+        long requestStart = lockStart;
+        boolean locked = false;
         try {
-          myRequestLock.lock();
-          myResult = executeRequestImpl(myCurrentServerUri, myCredentials, myRequest, pi);
+          // the user waits for the request in modal progress
+          myRequestLock.lock(RequestPriority.INTERACTIVE);
+          locked = true;
+          requestStart = System.currentTimeMillis();
+          // the user explicitly (re)tries the request, so let it reach the server even while it is considered unavailable
+          myResult = executeRequestImpl(myCurrentServerUri, myCredentials, myRequest, pi, false);
         }
         catch (Exception e) {
           LOG.warn(e);
           myError = TfsExceptionManager.processException(e);
         }
         finally {
-          myRequestLock.unlock();
+          if (locked) {
+            myRequestLock.unlock();
+          }
+          recordRequest(myCurrentServerUri, myRequest, RequestPriority.INTERACTIVE, event, lockStart, requestStart, myError != null);
           done.up();
         }
-      });
+        return null;
+      }));
       ProgressIndicatorUtils.awaitWithCheckCanceled(done, pi);
     }
 
@@ -246,12 +285,14 @@ public class TfsRequestManager {
 
   public static <T> T executeRequest(URI serverUri, Object projectOrComponent, boolean force, final Request<T> request)
     throws TfsException {
-    if (ApplicationManager.getApplication().isDispatchThread()) {
-      return getInstance(serverUri).executeRequestInForeground(projectOrComponent, false, null, force, request);
-    }
-    else {
-      return getInstance(serverUri).executeRequestInBackground(projectOrComponent, force, request);
-    }
+    return TfsTrace.computeInScope(() -> {
+      if (ApplicationManager.getApplication().isDispatchThread()) {
+        return getInstance(serverUri).executeRequestInForeground(projectOrComponent, false, null, force, request);
+      }
+      else {
+        return getInstance(serverUri).executeRequestInBackground(projectOrComponent, force, request);
+      }
+    });
   }
 
   public <T> T executeRequestInForeground(Object projectOrComponent,
@@ -395,11 +436,95 @@ public class TfsRequestManager {
            TfsLoginDialog.shouldPromptForProxyPassword(true);
   }
 
+  private static void recordRequest(@Nullable URI serverUri,
+                                    @NotNull Request<?> request,
+                                    @NotNull RequestPriority priority,
+                                    @NotNull TfsTrace.RequestEvent event,
+                                    long lockStart,
+                                    long requestStart,
+                                    boolean failed) {
+    if (serverUri != null) {
+      TfsRequestMetrics.getInstance().getServer(serverUri)
+        .requestExecuted(priority, requestStart - lockStart, System.currentTimeMillis() - requestStart, failed);
+    }
+    event.end();
+    if (event.shouldCommit()) {
+      event.correlationId = TfsTrace.getCorrelationId();
+      event.server = String.valueOf(serverUri);
+      event.title = request.myProgressTitle;
+      event.priority = priority.getName();
+      event.lockWait = requestStart - lockStart;
+      event.failed = failed;
+      event.commit();
+    }
+  }
+
   private static <T> T executeRequestImpl(final URI serverUri,
                                           final Ref<Credentials> credentialsRef,
                                           final Request<T> request,
-                                          final ProgressIndicator pi) throws Exception {
-    return ClassLoaderUtil.computeWithClassLoader(TfsRequestManager.class.getClassLoader(), () -> {
+                                          final ProgressIndicator pi,
+                                          boolean checkHealth) throws Exception {
+    ServerHealth health = ServerHealth.getInstance(serverUri);
+    if (checkHealth) {
+      // don't wait for connect or socket timeout every time while the server is known to be unreachable
+      executeCancellable(pi, () -> {
+        health.checkAvailable();
+        return null;
+      });
+    }
+    T result;
+    try {
+      result = executeCancellable(pi, () -> doExecuteRequestImpl(serverUri, credentialsRef, request, pi));
+    }
+    catch (ProcessCanceledException | UserCancelledException e) {
+      throw e;
+    }
+    catch (Exception e) {
+      health.requestFailed(TfsExceptionManager.processException(e));
+      throw e;
+    }
+    health.requestSucceeded();
+    return result;
+  }
+
+  private static <T> T executeCancellable(@Nullable final ProgressIndicator pi, final ThrowableComputable<T, Exception> computable)
+    throws Exception {
+    if (pi == null) {
+      return computable.compute();
+    }
+    if (pi.isCanceled()) {
+      // cancelled while waiting for the lock
+      throw new UserCancelledException();
+    }
+
+    // the call may block on a socket until response or timeout, so watch for cancellation and close its connections
+    AbortableRequest abortableRequest = new AbortableRequest();
+    ScheduledFuture<?> watcher = AppExecutorUtil.getAppScheduledExecutorService().scheduleWithFixedDelay(() -> {
+      if (pi.isCanceled()) {
+        abortableRequest.abort();
+      }
+    }, CANCELLATION_CHECK_INTERVAL_MS, CANCELLATION_CHECK_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    try {
+      return AbortableRequest.computeWith(abortableRequest, computable);
+    }
+    catch (Exception e) {
+      if (abortableRequest.isAborted()) {
+        LOG.debug("Request cancelled: " + e.getMessage());
+        throw new UserCancelledException();
+      }
+      throw e;
+    }
+    finally {
+      watcher.cancel(false);
+    }
+  }
+
+  private static <T> T doExecuteRequestImpl(final URI serverUri,
+                                            final Ref<Credentials> credentialsRef,
+                                            final Request<T> request,
+                                            @Nullable final ProgressIndicator pi) throws Exception {
+    return ClassLoaderUtil.computeWithClassLoader(TfsRequestManager.class.getClassLoader(), () -> StubPool.computeWithBorrowedStubs(() -> {
+      // stubs are borrowed for the whole request and returned to the pool when it completes
       Credentials credentials = credentialsRef.get();
       boolean needsAuthentication =
         credentials == null ||
@@ -409,7 +534,18 @@ public class TfsRequestManager {
           TfsServerConnectionHelper.connect(serverUri, credentialsRef.get(), true, pi);
         credentialsRef.set(descriptor.authorizedCredentials);
       }
-      return request.execute(credentialsRef.get(), serverUri, pi);
-    });
+      try {
+        return request.execute(credentialsRef.get(), serverUri, pi);
+      }
+      catch (AxisFault | HostNotApplicableException e) {
+        // service locations restored from previous session may be out of date (e.g. after server upgrade): query them again and retry
+        if (TfsExceptionManager.processException(e) instanceof HostNotApplicableException &&
+            TFSConfigurationManager.getInstance().invalidateServiceLocations(serverUri)) {
+          LOG.info("Persisted service locations are not valid for " + serverUri + ", querying them again");
+          return request.execute(credentialsRef.get(), serverUri, pi);
+        }
+        throw e;
+      }
+    }));
   }
 }
@@ -0,0 +1,275 @@
+package org.jetbrains.tfsIntegration.webservice;
+
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.util.ConcurrencyUtil;
+import com.intellij.util.containers.ContainerUtil;
+import org.jetbrains.annotations.NonNls;
+import org.jetbrains.annotations.NotNull;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Application-wide counters and latency histograms of the requests to TFS servers, to tell where the time goes when TFS is slow.
+ * <p/>
+ * For every server it collects requests executed via {@link TfsRequestManager} (time spent waiting for the server lock and total time)
+ * with the wait split by {@link RequestPriority}, and every SOAP operation, upload and download made within them. Time of a SOAP
+ * operation is split into network time (sending the request and waiting for the response headers) and deserialization time
+ * (reading and parsing the response body, which is streamed).
+ */
+public final class TfsRequestMetrics {
+  @NonNls public static final String DOWNLOAD = "download";
+  @NonNls public static final String UPLOAD = "upload";
+
+  private static final TfsRequestMetrics ourInstance = new TfsRequestMetrics();
+
+  private final ConcurrentMap<URI, ServerMetrics> myServers = ContainerUtil.newConcurrentMap();
+
+  private TfsRequestMetrics() {
+  }
+
+  @NotNull
+  public static TfsRequestMetrics getInstance() {
+    return ourInstance;
+  }
+
+  @NotNull
+  public ServerMetrics getServer(@NotNull URI serverUri) {
+    ServerMetrics result = myServers.get(serverUri);
+    if (result == null) {
+      result = ConcurrencyUtil.cacheOrGet(myServers, serverUri, new ServerMetrics());
+    }
+    return result;
+  }
+
+  public void reset() {
+    myServers.clear();
+  }
+
+  public static final class ServerMetrics {
+    private final AtomicLong myRequests = new AtomicLong();
+    private final AtomicLong myFailedRequests = new AtomicLong();
+    private final AtomicLong myChunks = new AtomicLong();
+    private final AtomicLong myReads = new AtomicLong();
+    private final AtomicLong myCoalescedReads = new AtomicLong();
+    private final LatencyHistogram myLockWait = new LatencyHistogram();
+    private final Map<RequestPriority, LatencyHistogram> myLockWaitByPriority = new EnumMap<>(RequestPriority.class);
+    private final LatencyHistogram myRequestTime = new LatencyHistogram();
+    private final ConcurrentMap<String, OperationMetrics> myOperations = ContainerUtil.newConcurrentMap();
+
+    private ServerMetrics() {
+      for (RequestPriority priority : RequestPriority.values()) {
+        myLockWaitByPriority.put(priority, new LatencyHistogram());
+      }
+    }
+
+    public void requestExecuted(@NotNull RequestPriority priority, long lockWaitMs, long totalMs, boolean failed) {
+      myRequests.incrementAndGet();
+      if (failed) {
+        myFailedRequests.incrementAndGet();
+      }
+      myLockWait.record(lockWaitMs);
+      myLockWaitByPriority.get(priority).record(lockWaitMs);
+      myRequestTime.record(totalMs);
+    }
+
+    /**
+     * Called for every part of a large request split into several ones
+     */
+    public void chunkExecuted() {
+      myChunks.incrementAndGet();
+    }
+
+    /**
+     * Called for every read-only request that may be coalesced with the same one in flight
+     *
+     * @param coalesced true if the result of the request in flight was taken instead of making a new one
+     */
+    public void readRequested(boolean coalesced) {
+      myReads.incrementAndGet();
+      if (coalesced) {
+        myCoalescedReads.incrementAndGet();
+      }
+    }
+
+    @NotNull
+    public OperationMetrics getOperation(@NotNull String name) {
+      OperationMetrics result = myOperations.get(name);
+      if (result == null) {
+        result = ConcurrencyUtil.cacheOrGet(myOperations, name, new OperationMetrics());
+      }
+      return result;
+    }
+  }
+
+  public static final class OperationMetrics {
+    private final AtomicLong myCount = new AtomicLong();
+    private final AtomicLong myFailures = new AtomicLong();
+    private final AtomicLong myBytesOut = new AtomicLong();
+    private final AtomicLong myBytesIn = new AtomicLong();
+    private final LatencyHistogram myNetwork = new LatencyHistogram();
+    private final LatencyHistogram myDeserialization = new LatencyHistogram();
+
+    /**
+     * @param deserializationMs time of processing the response after it was received, or -1 if not applicable (e.g. for downloads)
+     * @param bytesOut          request payload size, or -1 if unknown
+     * @param bytesIn           response payload size (after decompression), or -1 if unknown
+     */
+    public void executed(long networkMs, long deserializationMs, long bytesOut, long bytesIn, boolean failed) {
+      myCount.incrementAndGet();
+      if (failed) {
+        myFailures.incrementAndGet();
+      }
+      myNetwork.record(networkMs);
+      if (deserializationMs >= 0) {
+        myDeserialization.record(deserializationMs);
+      }
+      if (bytesOut > 0) {
+        myBytesOut.addAndGet(bytesOut);
+      }
+      if (bytesIn > 0) {
+        myBytesIn.addAndGet(bytesIn);
+      }
+    }
+  }
+
+  @NotNull
+  public String toJson() {
+    StringBuilder result = new StringBuilder("{\n  \"servers\": [");
+    boolean firstServer = true;
+    for (Map.Entry<URI, ServerMetrics> serverEntry : getSortedServers()) {
+      ServerMetrics server = serverEntry.getValue();
+      result.append(firstServer ? "\n" : ",\n");
+      firstServer = false;
+      result.append("    {\n");
+      result.append("      \"server\": ").append(jsonString(serverEntry.getKey().toString())).append(",\n");
+      result.append("      \"requests\": ").append(server.myRequests.get()).append(",\n");
+      result.append("      \"failedRequests\": ").append(server.myFailedRequests.get()).append(",\n");
+      result.append("      \"chunks\": ").append(server.myChunks.get()).append(",\n");
+      result.append("      \"reads\": ").append(server.myReads.get()).append(",\n");
+      result.append("      \"coalescedReads\": ").append(server.myCoalescedReads.get()).append(",\n");
+      result.append("      \"lockWait\": ").append(jsonHistogram(server.myLockWait)).append(",\n");
+      result.append("      \"lockWaitByPriority\": {");
+      for (RequestPriority priority : RequestPriority.values()) {
+        result.append(priority.ordinal() == 0 ? "" : ", ").append(jsonString(priority.getName())).append(": ")
+          .append(jsonHistogram(server.myLockWaitByPriority.get(priority)));
+      }
+      result.append("},\n");
+      result.append("      \"requestTime\": ").append(jsonHistogram(server.myRequestTime)).append(",\n");
+      result.append("      \"operations\": [");
+      boolean firstOperation = true;
+      for (Map.Entry<String, OperationMetrics> operationEntry : getSortedOperations(server)) {
+        OperationMetrics operation = operationEntry.getValue();
+        result.append(firstOperation ? "\n" : ",\n");
+        firstOperation = false;
+        result.append("        {");
+        result.append("\"name\": ").append(jsonString(operationEntry.getKey()));
+        result.append(", \"count\": ").append(operation.myCount.get());
+        result.append(", \"failures\": ").append(operation.myFailures.get());
+        result.append(", \"bytesOut\": ").append(operation.myBytesOut.get());
+        result.append(", \"bytesIn\": ").append(operation.myBytesIn.get());
+        result.append(", \"network\": ").append(jsonHistogram(operation.myNetwork));
+        result.append(", \"deserialization\": ").append(jsonHistogram(operation.myDeserialization));
+        result.append("}");
+      }
+      result.append(firstOperation ? "]\n" : "\n      ]\n");
+      result.append("    }");
+    }
+    result.append(firstServer ? "]\n}\n" : "\n  ]\n}\n");
+    return result.toString();
+  }
+
+  /**
+   * @return one row per server with request totals (operation "*") and one row per operation
+   */
+  @NotNull
+  public String toCsv() {
+    StringBuilder result = new StringBuilder(
+      "server,operation,count,failures,chunks,bytes_out,bytes_in," +
+      "lock_wait_mean_ms,lock_wait_p90_ms,lock_wait_max_ms," +
+      "total_mean_ms,total_p90_ms,total_p99_ms,total_max_ms," +
+      "network_mean_ms,network_p90_ms,network_p99_ms,network_max_ms," +
+      "deserialization_mean_ms,deserialization_p90_ms,deserialization_p99_ms,deserialization_max_ms," +
+      "reads,coalesced_reads");
+    for (RequestPriority priority : RequestPriority.values()) {
+      String prefix = priority.getName();
+      result.append(',').append(prefix).append("_requests,").append(prefix).append("_lock_wait_mean_ms,")
+        .append(prefix).append("_lock_wait_p90_ms,").append(prefix).append("_lock_wait_max_ms");
+    }
+    result.append('\n');
+    for (Map.Entry<URI, ServerMetrics> serverEntry : getSortedServers()) {
+      ServerMetrics server = serverEntry.getValue();
+      String serverUri = csvString(serverEntry.getKey().toString());
+      result.append(serverUri).append(",*,").append(server.myRequests.get()).append(',').append(server.myFailedRequests.get())
+        .append(',').append(server.myChunks.get()).append(",,,")
+        .append(server.myLockWait.getMeanMs()).append(',').append(server.myLockWait.getPercentileMs(90)).append(',')
+        .append(server.myLockWait.getMaxMs()).append(',')
+        .append(server.myRequestTime.getMeanMs()).append(',').append(server.myRequestTime.getPercentileMs(90)).append(',')
+        .append(server.myRequestTime.getPercentileMs(99)).append(',').append(server.myRequestTime.getMaxMs())
+        .append(",,,,,,,,,").append(server.myReads.get()).append(',').append(server.myCoalescedReads.get());
+      for (RequestPriority priority : RequestPriority.values()) {
+        LatencyHistogram lockWait = server.myLockWaitByPriority.get(priority);
+        result.append(',').append(lockWait.getCount()).append(',').append(lockWait.getMeanMs()).append(',')
+          .append(lockWait.getPercentileMs(90)).append(',').append(lockWait.getMaxMs());
+      }
+      result.append('\n');
+
+      for (Map.Entry<String, OperationMetrics> operationEntry : getSortedOperations(server)) {
+        OperationMetrics operation = operationEntry.getValue();
+        result.append(serverUri).append(',').append(csvString(operationEntry.getKey())).append(',')
+          .append(operation.myCount.get()).append(',').append(operation.myFailures.get()).append(",,")
+          .append(operation.myBytesOut.get()).append(',').append(operation.myBytesIn.get()).append(",,,,,,,,");
+        appendCsvHistogram(result, operation.myNetwork);
+        appendCsvHistogram(result, operation.myDeserialization);
+        result.append(',').append(StringUtil.repeat(",", 4 * RequestPriority.values().length)).append('\n');
+      }
+    }
+    return result.toString();
+  }
+
+  @NotNull
+  private List<Map.Entry<URI, ServerMetrics>> getSortedServers() {
+    List<Map.Entry<URI, ServerMetrics>> result = new ArrayList<>(myServers.entrySet());
+    result.sort(Comparator.comparing(entry -> entry.getKey().toString()));
+    return result;
+  }
+
+  @NotNull
+  private static List<Map.Entry<String, OperationMetrics>> getSortedOperations(@NotNull ServerMetrics server) {
+    List<Map.Entry<String, OperationMetrics>> result = new ArrayList<>(server.myOperations.entrySet());
+    result.sort(Map.Entry.comparingByKey());
+    return result;
+  }
+
+  @NotNull
+  private static String jsonHistogram(@NotNull LatencyHistogram histogram) {
+    return "{\"count\": " + histogram.getCount() +
+           ", \"totalMs\": " + histogram.getSumMs() +
+           ", \"meanMs\": " + histogram.getMeanMs() +
+           ", \"p50Ms\": " + histogram.getPercentileMs(50) +
+           ", \"p90Ms\": " + histogram.getPercentileMs(90) +
+           ", \"p99Ms\": " + histogram.getPercentileMs(99) +
+           ", \"maxMs\": " + histogram.getMaxMs() + "}";
+  }
+
+  private static void appendCsvHistogram(@NotNull StringBuilder builder, @NotNull LatencyHistogram histogram) {
+    builder.append(histogram.getMeanMs()).append(',').append(histogram.getPercentileMs(90)).append(',')
+      .append(histogram.getPercentileMs(99)).append(',').append(histogram.getMaxMs()).append(',');
+  }
+
+  @NotNull
+  private static String jsonString(@NotNull String s) {
+    return "\"" + StringUtil.escapeStringCharacters(s) + "\"";
+  }
+
+  @NotNull
+  private static String csvString(@NotNull String s) {
+    return s.indexOf(',') >= 0 || s.indexOf('"') >= 0 ? "\"" + s.replace("\"", "\"\"") + "\"" : s;
+  }
+}
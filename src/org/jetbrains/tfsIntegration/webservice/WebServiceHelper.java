@@ -22,6 +22,7 @@ import com.intellij.openapi.util.ClassLoaderUtil;
 import com.intellij.openapi.util.Pair;
 import com.intellij.openapi.util.io.StreamUtil;
 import com.intellij.openapi.util.registry.Registry;
+import com.intellij.util.ConcurrencyUtil;
 import com.intellij.util.containers.ContainerUtil;
 import org.apache.axiom.om.OMAbstractFactory;
 import org.apache.axis2.Constants;
@@ -29,6 +30,9 @@ import org.apache.axis2.client.Options;
 import org.apache.axis2.client.Stub;
 import org.apache.axis2.context.ConfigurationContext;
 import org.apache.axis2.context.ConfigurationContextFactory;
+import org.apache.axis2.description.TransportOutDescription;
+import org.apache.axis2.transport.TransportSender;
+import org.apache.axis2.transport.http.CommonsHTTPTransportSender;
 import org.apache.axis2.transport.http.HTTPConstants;
 import org.apache.axis2.transport.http.HttpTransportProperties;
 import org.apache.commons.httpclient.*;
@@ -37,6 +41,7 @@ import org.apache.commons.httpclient.auth.AuthScope;
 import org.apache.commons.httpclient.auth.BasicScheme;
 import org.apache.commons.httpclient.auth.DigestScheme;
 import org.apache.commons.httpclient.methods.GetMethod;
+import org.apache.commons.httpclient.methods.HeadMethod;
 import org.apache.commons.httpclient.methods.PostMethod;
 import org.apache.commons.httpclient.methods.multipart.MultipartRequestEntity;
 import org.apache.commons.httpclient.methods.multipart.Part;
@@ -46,10 +51,12 @@ import org.jetbrains.annotations.NonNls;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.jetbrains.tfsIntegration.core.TFSVcs;
+import org.jetbrains.tfsIntegration.core.TfsTrace;
 import org.jetbrains.tfsIntegration.core.configuration.Credentials;
 import org.jetbrains.tfsIntegration.exceptions.OperationFailedException;
 import org.jetbrains.tfsIntegration.exceptions.TfsException;
 import org.jetbrains.tfsIntegration.exceptions.TfsExceptionManager;
+import org.jetbrains.tfsIntegration.webservice.auth.NTLM2Scheme;
 import org.jetbrains.tfsIntegration.webservice.auth.NativeNTLM2Scheme;
 import org.jetbrains.tfsIntegration.webservice.compatibility.CustomSOAP12Factory;
 import org.jetbrains.tfsIntegration.webservice.compatibility.CustomSOAPBuilder;
@@ -60,9 +67,13 @@ import java.io.OutputStream;
 import java.net.URI;
 import java.rmi.RemoteException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.LongConsumer;
 import java.util.zip.GZIPInputStream;
 
 public class WebServiceHelper {
@@ -76,6 +87,23 @@ public class WebServiceHelper {
 
   private static final int SOCKET_TIMEOUT = Integer.getInteger("org.jetbrains.tfsIntegration.socketTimeout", 30000);
 
+  private static final int MAX_CONNECTIONS_PER_HOST = Integer.getInteger("org.jetbrains.tfsIntegration.maxConnectionsPerHost", 8);
+
+  private static final String STUB_OPTIONS_PROPERTY = WebServiceHelper.class.getName() + ".stubOptions";
+
+  // URI of the server whose stubs use configuration context
+  static final String SERVER_URI_PROPERTY = WebServiceHelper.class.getName() + ".serverUri";
+
+  private static volatile ConfigurationContext ourConfigurationContext;
+  private static final Object ourConfigurationContextLock = new Object();
+
+  // server -> configuration context of its stubs and HTTP client it shares with uploads and downloads
+  private static final ConcurrentMap<URI, ConfigurationContext> ourServerConfigurationContexts = ContainerUtil.newConcurrentMap();
+  private static final ConcurrentMap<URI, HttpClient> ourHttpClients = ContainerUtil.newConcurrentMap();
+
+  // server -> options last applied to its stubs
+  private static final ConcurrentMap<URI, StubOptions> ourStubOptions = ContainerUtil.newConcurrentMap();
+
   static {
     // keep NTLM scheme first
     AuthPolicy.unregisterAuthScheme(AuthPolicy.NTLM);
@@ -108,14 +136,34 @@ public class WebServiceHelper {
                              Credentials credentials,
                              final HttpClient httpClient)
     throws TfsException, IOException {
+    httpGet(serverUri, downloadUrl, outputStream, credentials, httpClient, null);
+  }
+
+  /**
+   * @param responseTimeConsumer gets time to response headers, in ms
+   */
+  public static void httpGet(final URI serverUri,
+                             final String downloadUrl,
+                             final OutputStream outputStream,
+                             Credentials credentials,
+                             final HttpClient httpClient,
+                             @Nullable LongConsumer responseTimeConsumer)
+    throws TfsException, IOException {
     TFSVcs.assertTrue(downloadUrl != null);
     setupHttpClient(credentials, serverUri, httpClient);
 
     HttpMethod method = new GetMethod(downloadUrl);
+    TfsTrace.TransferEvent event = new TfsTrace.TransferEvent();
+    event.begin();
+    long start = System.currentTimeMillis();
+    long bytesIn = -1;
     try {
       int statusCode = httpClient.executeMethod(method);
+      if (responseTimeConsumer != null) {
+        responseTimeConsumer.accept(System.currentTimeMillis() - start);
+      }
       if (statusCode == HttpStatus.SC_OK) {
-        StreamUtil.copyStreamContent(getInputStream(method), outputStream);
+        bytesIn = StreamUtil.copyStreamContent(getInputStream(method), outputStream);
       }
       else if (statusCode == HttpStatus.SC_INTERNAL_SERVER_ERROR) {
         throw new OperationFailedException(method.getResponseBodyAsString());
@@ -127,6 +175,9 @@ public class WebServiceHelper {
     finally {
       // enforce connection release since GZipInputStream may not trigger underlying AutoCloseInputStream.close()
       method.releaseConnection();
+      TfsRequestMetrics.getInstance().getServer(serverUri).getOperation(TfsRequestMetrics.DOWNLOAD)
+        .executed(System.currentTimeMillis() - start, -1, -1, bytesIn, bytesIn < 0);
+      commitTransferEvent(event, serverUri, false, downloadUrl, bytesIn, bytesIn < 0);
     }
   }
 
@@ -140,16 +191,24 @@ public class WebServiceHelper {
     setupHttpClient(credentials, serverUri, httpClient);
 
     PostMethod method = new PostMethod(uploadUrl);
+    TfsTrace.TransferEvent event = new TfsTrace.TransferEvent();
+    event.begin();
+    long start = System.currentTimeMillis();
+    long bytesOut = -1;
+    boolean failed = true;
     try {
       method.setRequestHeader("X-TFS-Version", "1.0.0.0");
       method.setRequestHeader("accept-language", "en-US");
-      method.setRequestEntity(new MultipartRequestEntity(parts, method.getParams()));
+      MultipartRequestEntity requestEntity = new MultipartRequestEntity(parts, method.getParams());
+      method.setRequestEntity(requestEntity);
+      bytesOut = requestEntity.getContentLength();
 
       int statusCode = httpClient.executeMethod(method);
       if (statusCode == HttpStatus.SC_OK) {
         if (outputStream != null) {
           StreamUtil.copyStreamContent(getInputStream(method), outputStream);
         }
+        failed = false;
       }
       else if (statusCode == HttpStatus.SC_INTERNAL_SERVER_ERROR) {
         throw new OperationFailedException(method.getResponseBodyAsString());
@@ -160,14 +219,133 @@ public class WebServiceHelper {
     }
     finally {
       method.releaseConnection();
+      TfsRequestMetrics.getInstance().getServer(serverUri).getOperation(TfsRequestMetrics.UPLOAD)
+        .executed(System.currentTimeMillis() - start, -1, bytesOut, -1, failed);
+      commitTransferEvent(event, serverUri, true, uploadUrl, bytesOut, failed);
     }
   }
 
+  /**
+   * Checks that the server responds at all: any HTTP status will do, so no authentication is needed. Made within
+   * {@link AbortableRequest}, the probe ends as soon as the request is aborted.
+   *
+   * @throws IOException if the server can't be reached
+   */
+  public static void probe(final @NotNull URI serverUri, int timeoutMs) throws IOException {
+    MultiThreadedHttpConnectionManager connectionManager = new AbortableConnectionManager();
+    HttpClient httpClient = new HttpClient(connectionManager);
+    connectionManager.getParams().setConnectionTimeout(timeoutMs);
+    httpClient.getParams().setSoTimeout(timeoutMs);
+    setProxy(httpClient);
+    HeadMethod method = new HeadMethod(serverUri.toString());
+    method.setFollowRedirects(false);
+    try {
+      httpClient.executeMethod(method);
+    }
+    finally {
+      method.releaseConnection();
+      connectionManager.shutdown();
+    }
+  }
+
+  private static void commitTransferEvent(@NotNull TfsTrace.TransferEvent event,
+                                          URI serverUri,
+                                          boolean upload,
+                                          @NotNull String url,
+                                          long bytes,
+                                          boolean failed) {
+    event.end();
+    if (event.shouldCommit()) {
+      event.correlationId = TfsTrace.getCorrelationId();
+      event.server = String.valueOf(serverUri);
+      event.upload = upload;
+      event.url = url;
+      event.bytes = bytes;
+      event.failed = failed;
+      event.commit();
+    }
+  }
+
+  /**
+   * @return configuration context shared by all the stubs, it is not modified after creation
+   */
   public static ConfigurationContext getStubConfigurationContext() {
+    ConfigurationContext result = ourConfigurationContext;
+    if (result == null) {
+      synchronized (ourConfigurationContextLock) {
+        result = ourConfigurationContext;
+        if (result == null) {
+          // if creation failed, try again next time
+          ourConfigurationContext = result = createStubConfigurationContext();
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * @return configuration context for the stubs of given server. It shares Axis2 configuration with all the others, but has its own
+   * HTTP client (see {@link #getHttpClient(URI)}), so that connections authenticated for this server are reused by its requests only
+   */
+  @Nullable
+  public static ConfigurationContext getStubConfigurationContext(@NotNull URI serverUri) {
+    ConfigurationContext result = ourServerConfigurationContexts.get(serverUri);
+    if (result == null) {
+      ConfigurationContext sharedContext = getStubConfigurationContext();
+      if (sharedContext == null) {
+        return null;
+      }
+      // Axis2 transport takes HTTP client from configuration context rather than from stub options
+      ConfigurationContext context = new ConfigurationContext(sharedContext.getAxisConfiguration());
+      context.setProperty(HTTPConstants.CACHED_HTTP_CLIENT, getHttpClient(serverUri));
+      context.setProperty(SERVER_URI_PROPERTY, serverUri);
+      result = ConcurrencyUtil.cacheOrGet(ourServerConfigurationContexts, serverUri, context);
+    }
+    return result;
+  }
+
+  /**
+   * @return HTTP client used for all the requests to given server: web service calls, uploads and downloads
+   */
+  @NotNull
+  public static HttpClient getHttpClient(@NotNull URI serverUri) {
+    HttpClient result = ourHttpClients.get(serverUri);
+    if (result == null) {
+      result = ConcurrencyUtil.cacheOrGet(ourHttpClients, serverUri, createHttpClient());
+    }
+    return result;
+  }
+
+  /**
+   * @return HTTP client that keeps connections alive between requests. NTLM authenticates a connection rather than a request,
+   * so requests sent over a reused connection don't need another handshake (see {@link NTLM2Scheme#getHandshakeCount()}).
+   * Connections taken within a request may be closed when the request is cancelled, see {@link AbortableRequest}.
+   */
+  @NotNull
+  public static HttpClient createHttpClient() {
+    MultiThreadedHttpConnectionManager connectionManager = new AbortableConnectionManager();
+    connectionManager.getParams().setDefaultMaxConnectionsPerHost(MAX_CONNECTIONS_PER_HOST);
+    connectionManager.getParams().setMaxTotalConnections(Math.max(MAX_CONNECTIONS_PER_HOST, 20));
+    HttpClient httpClient = new HttpClient(connectionManager);
+    // Set the default timeout in case we have a connection pool starvation to 30sec
+    httpClient.getParams().setConnectionManagerTimeout(30000);
+    return httpClient;
+  }
+
+  @Nullable
+  private static ConfigurationContext createStubConfigurationContext() {
     return ClassLoaderUtil.computeWithClassLoader(TFSVcs.class.getClassLoader(), () -> {
       try {
         ConfigurationContext configContext = ConfigurationContextFactory.createDefaultConfigurationContext();
         configContext.getAxisConfiguration().addMessageBuilder(SOAP_BUILDER_KEY, new CustomSOAPBuilder());
+        for (String transport : new String[]{Constants.TRANSPORT_HTTP, Constants.TRANSPORT_HTTPS}) {
+          TransportOutDescription transportOut = configContext.getAxisConfiguration().getTransportOut(transport);
+          if (transportOut != null && transportOut.getSender() instanceof CommonsHTTPTransportSender) {
+            TransportSender sender = new MeteredHTTPTransportSender();
+            sender.init(configContext, transportOut);
+            transportOut.setSender(sender);
+          }
+        }
         return configContext;
       }
       catch (Exception e) {
@@ -203,14 +381,48 @@ public class WebServiceHelper {
   }
 
   public static void setupStub(final @NotNull Stub stub, final @NotNull Credentials credentials, final @NotNull URI serverUri) {
+    StubOptions stubOptions = getStubOptions(credentials, serverUri);
     Options options = stub._getServiceClient().getOptions();
+    if (options.getProperty(STUB_OPTIONS_PROPERTY) != stubOptions) {
+      for (Map.Entry<String, Object> property : stubOptions.myProperties.entrySet()) {
+        options.setProperty(property.getKey(), property.getValue());
+      }
+      options.setProperty(STUB_OPTIONS_PROPERTY, stubOptions);
+    }
+  }
+
+  @NotNull
+  private static StubOptions getStubOptions(final @NotNull Credentials credentials, final @NotNull URI serverUri) {
+    HTTPProxyInfo proxy = HTTPProxyInfo.getCurrent();
+    boolean setConnectionTimeout = Registry.is("tfs.set.connection.timeout", false);
+    List<Object> key = Arrays.asList(credentials.getType(), credentials.getUserName(), credentials.getDomain(), credentials.getPassword(),
+                                     proxy.host, proxy.port, proxy.user, proxy.password, setConnectionTimeout);
+    StubOptions result = ourStubOptions.get(serverUri);
+    if (result == null || !result.myKey.equals(key)) {
+      if (result != null && !result.myKey.subList(0, 3).equals(key.subList(0, 3))) {
+        // idle connections are authenticated as previous user
+        LOG.debug("Credentials changed for " + serverUri + ", closing idle connections");
+        getHttpClient(serverUri).getHttpConnectionManager().closeIdleConnections(0);
+      }
+      result = new StubOptions(key, createStubProperties(credentials, serverUri, proxy, setConnectionTimeout));
+      ourStubOptions.put(serverUri, result);
+    }
+    return result;
+  }
+
+  @NotNull
+  private static Map<String, Object> createStubProperties(final @NotNull Credentials credentials,
+                                                          final @NotNull URI serverUri,
+                                                          final @NotNull HTTPProxyInfo proxy,
+                                                          boolean setConnectionTimeout) {
+    Map<String, Object> properties = new HashMap<>();
 
     // http params
-    options.setProperty(HTTPConstants.CHUNKED, Constants.VALUE_FALSE);
-    options.setProperty(HTTPConstants.MC_ACCEPT_GZIP, Boolean.TRUE);
-    options.setProperty(HTTPConstants.SO_TIMEOUT, SOCKET_TIMEOUT);
-    if (Registry.is("tfs.set.connection.timeout", false)) {
-      options.setProperty(HTTPConstants.CONNECTION_TIMEOUT, SOCKET_TIMEOUT);
+    properties.put(HTTPConstants.CHUNKED, Constants.VALUE_FALSE);
+    properties.put(HTTPConstants.MC_ACCEPT_GZIP, Boolean.TRUE);
+    properties.put(HTTPConstants.SO_TIMEOUT, SOCKET_TIMEOUT);
+    if (setConnectionTimeout) {
+      properties.put(HTTPConstants.CONNECTION_TIMEOUT, SOCKET_TIMEOUT);
     }
 
     // credentials
@@ -219,7 +431,7 @@ public class WebServiceHelper {
         BasicScheme.authenticate(new UsernamePasswordCredentials(credentials.getUserName(), credentials.getPassword()), "UTF-8");
       Map<String, String> headers = new HashMap<>();
       headers.put(HTTPConstants.HEADER_AUTHORIZATION, basicAuth);
-      options.setProperty(HTTPConstants.HTTP_HEADERS, headers);
+      properties.put(HTTPConstants.HTTP_HEADERS, headers);
     }
     else {
       HttpTransportProperties.Authenticator auth = new HttpTransportProperties.Authenticator();
@@ -227,16 +439,15 @@ public class WebServiceHelper {
       auth.setPassword(credentials.getPassword() != null ? credentials.getPassword() : "");
       auth.setDomain(credentials.getDomain());
       auth.setHost(serverUri.getHost());
-      options.setProperty(HTTPConstants.AUTHENTICATE, auth);
+      properties.put(HTTPConstants.AUTHENTICATE, auth);
 
       HttpMethodParams params = new HttpMethodParams();
       params.setBooleanParameter(USE_NATIVE_CREDENTIALS, credentials.getType() == Credentials.Type.NtlmNative);
-      options.setProperty(HTTPConstants.HTTP_METHOD_PARAMS, params);
+      properties.put(HTTPConstants.HTTP_METHOD_PARAMS, params);
     }
 
     // proxy
     final HttpTransportProperties.ProxyProperties proxyProperties;
-    final HTTPProxyInfo proxy = HTTPProxyInfo.getCurrent();
     if (proxy.host != null) {
       proxyProperties = new HttpTransportProperties.ProxyProperties();
       Pair<String, String> domainAndUser = getDomainAndUser(proxy.user);
@@ -250,7 +461,22 @@ public class WebServiceHelper {
       proxyProperties = null;
     }
 
-    options.setProperty(HTTPConstants.PROXY, proxyProperties);
+    properties.put(HTTPConstants.PROXY, proxyProperties);
+    return properties;
+  }
+
+  /**
+   * Stub options built for particular credentials and proxy settings, shared by all the stubs of a server until those change.
+   * Must not be modified once created.
+   */
+  private static final class StubOptions {
+    private final List<Object> myKey;
+    private final Map<String, Object> myProperties;
+
+    private StubOptions(@NotNull List<Object> key, @NotNull Map<String, Object> properties) {
+      myKey = key;
+      myProperties = properties;
+    }
   }
 
   private static void setCredentials(final @NotNull HttpClient httpClient,
@@ -33,6 +33,7 @@ import org.apache.commons.httpclient.params.HttpMethodParams;
 import org.jetbrains.tfsIntegration.core.tfs.Workstation;
 
 import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
 
 /** An implementation of the Microsoft proprietary NTLM authentication scheme.  For a detailed
  * explanation of the NTLM scheme please see <a href="http://davenport.sourceforge.net/ntlm.html">
@@ -63,6 +64,13 @@ public class NTLM2Scheme extends NTLMScheme {
     LOG.info("Message 3 flags: 0x" + Integer.toHexString(MESSAGE_3_DEFAULT_FLAGS));
   }
 
+  // handshakes started by all the instances, to see how often connections have to be authenticated again
+  private static final AtomicLong ourHandshakeCount = new AtomicLong();
+
+  public static long getHandshakeCount() {
+    return ourHandshakeCount.get();
+  }
+
   private static int readUserFlags(String key) {
     final String flagsStr = System.getProperty(key);
     if (flagsStr != null && flagsStr.startsWith("0x")) {
@@ -365,6 +373,10 @@ public class NTLM2Scheme extends NTLMScheme {
     if (state == INITIATED || state == FAILED) {
       response = getType1MessageResponse(ntcredentials, method.getParams());
       state = TYPE1_MSG_GENERATED;
+      long handshakeCount = ourHandshakeCount.incrementAndGet();
+      if (LOG.isDebugEnabled()) {
+        LOG.debug("NTLM handshake #" + handshakeCount + " for " + method.getPath());
+      }
     }
     else {
       response = getType3MessageResponse(ntlmchallenge, ntcredentials, method.getParams());
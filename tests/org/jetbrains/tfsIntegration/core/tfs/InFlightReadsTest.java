@@ -0,0 +1,200 @@
+package org.jetbrains.tfsIntegration.core.tfs;
+
+import com.intellij.openapi.progress.EmptyProgressIndicator;
+import com.intellij.openapi.progress.ProcessCanceledException;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.util.ThrowableComputable;
+import com.intellij.testFramework.fixtures.BasePlatformTestCase;
+import com.intellij.util.TimeoutUtil;
+import org.jetbrains.tfsIntegration.exceptions.TfsException;
+import org.jetbrains.tfsIntegration.webservice.RequestPriority;
+import org.jetbrains.tfsIntegration.webservice.TfsRequestMetrics;
+
+import java.net.URI;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class InFlightReadsTest extends BasePlatformTestCase {
+  private static final long TIMEOUT_MS = 10000;
+
+  private final InFlightReads myInFlightReads = new InFlightReads(URI.create("http://tfs:8080/tfs/Collection"));
+  private final AtomicInteger myRequests = new AtomicInteger();
+  private final CountDownLatch myFirstRequestStarted = new CountDownLatch(1);
+  private final CountDownLatch myResponseReleased = new CountDownLatch(1);
+
+  @Override
+  protected boolean runInDispatchThread() {
+    // requests made in the dispatch thread are not coalesced
+    return false;
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    try {
+      myResponseReleased.countDown();
+      TfsRequestMetrics.getInstance().reset();
+    }
+    finally {
+      super.tearDown();
+    }
+  }
+
+  public void testSameRequestCoalesced() throws Exception {
+    Caller first = new Caller("key", this::request);
+    first.start();
+    assertTrue(myFirstRequestStarted.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+    Caller second = new Caller("key", this::request);
+    second.startAndAwaitWaiting();
+    Caller other = new Caller("other key", this::request);
+    other.start();
+
+    myResponseReleased.countDown();
+    Object result = first.getResult();
+    assertSame(result, second.getResult());
+    assertNotSame(result, other.getResult());
+    assertEquals(2, myRequests.get());
+
+    // request completed, so the next caller makes it anew
+    Caller next = new Caller("key", this::request);
+    next.start();
+    assertNotSame(result, next.getResult());
+    assertEquals(3, myRequests.get());
+  }
+
+  public void testWaitersRequestThemselvesWhenFirstCallerCancelled() throws Exception {
+    EmptyProgressIndicator indicator = new EmptyProgressIndicator();
+    Caller first = new Caller("key", () -> {
+      myRequests.incrementAndGet();
+      myFirstRequestStarted.countDown();
+      while (true) {
+        ProgressManager.checkCanceled();
+        TimeoutUtil.sleep(10);
+      }
+    }, RequestPriority.INTERACTIVE, indicator);
+    first.start();
+    assertTrue(myFirstRequestStarted.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+    Caller second = new Caller("key", this::request);
+    second.startAndAwaitWaiting();
+
+    indicator.cancel();
+    myResponseReleased.countDown();
+    assertNotNull(second.getResult());
+    assertInstanceOf(first.getFailure(), ProcessCanceledException.class);
+    assertEquals(2, myRequests.get());
+  }
+
+  public void testErrorShared() throws Exception {
+    TfsException error = new TfsException("failed");
+    Caller first = new Caller("key", () -> {
+      request();
+      throw error;
+    });
+    first.start();
+    assertTrue(myFirstRequestStarted.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+    Caller second = new Caller("key", this::request);
+    second.startAndAwaitWaiting();
+
+    myResponseReleased.countDown();
+    assertSame(error, first.getFailure());
+    assertSame(error, second.getFailure());
+    assertEquals(1, myRequests.get());
+  }
+
+  public void testPrioritiesNotCoalesced() throws Exception {
+    Caller first = new Caller("key", this::request);
+    first.start();
+    assertTrue(myFirstRequestStarted.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+    Caller background = new Caller("key", this::request, RequestPriority.BACKGROUND);
+    background.start();
+    // request in flight is not released until the background caller makes its own one
+    long end = System.currentTimeMillis() + TIMEOUT_MS;
+    while (myRequests.get() < 2) {
+      assertTrue("background caller waits for the interactive request", System.currentTimeMillis() < end);
+      Thread.sleep(10);
+    }
+
+    myResponseReleased.countDown();
+    assertNotSame(first.getResult(), background.getResult());
+    assertEquals(2, myRequests.get());
+  }
+
+  private Object request() throws TfsException {
+    myRequests.incrementAndGet();
+    myFirstRequestStarted.countDown();
+    try {
+      myResponseReleased.await();
+    }
+    catch (InterruptedException e) {
+      throw new TfsException(e);
+    }
+    return new Object();
+  }
+
+  private class Caller extends Thread {
+    private final Object myKey;
+    private final ThrowableComputable<Object, TfsException> myRequest;
+    private final RequestPriority myPriority;
+    private final ProgressIndicator myIndicator;
+    private volatile Object myResult;
+    private volatile Throwable myFailure;
+
+    Caller(Object key, ThrowableComputable<Object, TfsException> request) {
+      this(key, request, RequestPriority.INTERACTIVE);
+    }
+
+    Caller(Object key, ThrowableComputable<Object, TfsException> request, RequestPriority priority) {
+      this(key, request, priority, new EmptyProgressIndicator());
+    }
+
+    Caller(Object key, ThrowableComputable<Object, TfsException> request, RequestPriority priority, ProgressIndicator indicator) {
+      myKey = key;
+      myRequest = request;
+      myPriority = priority;
+      myIndicator = indicator;
+    }
+
+    @Override
+    public void run() {
+      try {
+        ProgressManager.getInstance().runProcess(() -> {
+          try {
+            myResult = RequestPriority.computeWithPriority(myPriority, () -> myInFlightReads.execute(myKey, myRequest));
+          }
+          catch (TfsException e) {
+            myFailure = e;
+          }
+        }, myIndicator);
+      }
+      catch (Throwable e) {
+        myFailure = e;
+      }
+    }
+
+    /**
+     * Starts the caller and waits until it waits for the result of the request in flight
+     */
+    void startAndAwaitWaiting() throws InterruptedException {
+      start();
+      long end = System.currentTimeMillis() + TIMEOUT_MS;
+      while (getState() != State.TIMED_WAITING) {
+        assertTrue("caller does not wait for the request in flight", System.currentTimeMillis() < end);
+        Thread.sleep(10);
+      }
+    }
+
+    Object getResult() throws InterruptedException {
+      join(TIMEOUT_MS);
+      assertFalse("caller did not complete", isAlive());
+      assertNull(myFailure);
+      return myResult;
+    }
+
+    Throwable getFailure() throws InterruptedException {
+      join(TIMEOUT_MS);
+      assertFalse("caller did not complete", isAlive());
+      return myFailure;
+    }
+  }
+}
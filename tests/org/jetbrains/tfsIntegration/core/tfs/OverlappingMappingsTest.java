@@ -0,0 +1,66 @@
+package org.jetbrains.tfsIntegration.core.tfs;
+
+import com.intellij.openapi.util.Couple;
+import com.intellij.openapi.vcs.FilePath;
+import com.intellij.openapi.vcs.LocalFilePath;
+import junit.framework.TestCase;
+
+import java.util.*;
+
+public class OverlappingMappingsTest extends TestCase {
+
+  public void testSiblingPrefixes() {
+    Map<String, List<FilePath>> mappings = new LinkedHashMap<>();
+    map(mappings, "server1", "/work/a", "/work/a-b/c");
+    map(mappings, "server2", "/work/a-b", "/work/a b", "/work/ab", "/work/a.b");
+    assertOverlapping(mappings, "/work/a-b -> /work/a-b/c");
+  }
+
+  public void testSiblingPrefixSortedBetweenAncestorAndDescendant() {
+    Map<String, List<FilePath>> mappings = new LinkedHashMap<>();
+    // "a-b" goes between "a" and "a/b" in plain string order
+    map(mappings, "server1", "/work/a-b", "/work/a/b");
+    map(mappings, "server2", "/work/a");
+    assertOverlapping(mappings, "/work/a -> /work/a/b");
+  }
+
+  public void testNested() {
+    Map<String, List<FilePath>> mappings = new LinkedHashMap<>();
+    map(mappings, "server1", "/work/a", "/work/a/b", "/work/c");
+    map(mappings, "server2", "/work/a/b/c", "/work/a/d", "/work/c2");
+    map(mappings, "server3", "/work/a/b/c/d");
+    // the nearest ancestor mapped by another server is reported
+    assertOverlapping(mappings, "/work/a/b -> /work/a/b/c", "/work/a/b/c -> /work/a/b/c/d", "/work/a -> /work/a/d");
+  }
+
+  public void testNestedWithinSameServer() {
+    Map<String, List<FilePath>> mappings = new LinkedHashMap<>();
+    map(mappings, "server1", "/work/a", "/work/a/b", "/work/a/b/c");
+    map(mappings, "server2", "/work/b", "/work/b/a");
+    assertOverlapping(mappings);
+  }
+
+  public void testDuplicates() {
+    Map<String, List<FilePath>> mappings = new LinkedHashMap<>();
+    map(mappings, "server1", "/work/a", "/work/b", "/work/b");
+    map(mappings, "server2", "/work/a");
+    assertOverlapping(mappings, "/work/a -> /work/a");
+  }
+
+  private static void map(Map<String, List<FilePath>> mappings, String server, String... localPaths) {
+    List<FilePath> paths = new ArrayList<>();
+    for (String localPath : localPaths) {
+      paths.add(new LocalFilePath(localPath, true));
+    }
+    mappings.put(server, paths);
+  }
+
+  private static void assertOverlapping(Map<String, List<FilePath>> mappings, String... expected) {
+    List<String> actual = new ArrayList<>();
+    for (Couple<FilePath> couple : Workstation.findOverlappingMappings(mappings)) {
+      actual.add(couple.first.getPath() + " -> " + couple.second.getPath());
+    }
+    assertEquals(new HashSet<>(Arrays.asList(expected)), new HashSet<>(actual));
+    assertEquals(expected.length, actual.size());
+  }
+}
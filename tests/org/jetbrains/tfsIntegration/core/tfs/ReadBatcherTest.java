@@ -0,0 +1,114 @@
+package org.jetbrains.tfsIntegration.core.tfs;
+
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.testFramework.fixtures.BasePlatformTestCase;
+import org.jetbrains.tfsIntegration.exceptions.TfsException;
+import org.jetbrains.tfsIntegration.webservice.RequestPriority;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+public class ReadBatcherTest extends BasePlatformTestCase {
+
+  private static final int WINDOW_MS = 10000;
+
+  private final List<List<String>> myRequests = Collections.synchronizedList(new ArrayList<>());
+
+  @Override
+  protected boolean runInDispatchThread() {
+    // requests made in the dispatch thread are not batched
+    return false;
+  }
+
+  public void testConcurrentItemsMerged() throws Exception {
+    // window is long, the batch is executed once it is full
+    ReadBatcher batcher = new ReadBatcher(WINDOW_MS, 3);
+    List<Future<String>> results = executeConcurrently(batcher, "a", "b", "c");
+
+    assertEquals("result of a", results.get(0).get(WINDOW_MS, TimeUnit.MILLISECONDS));
+    assertEquals("result of b", results.get(1).get(WINDOW_MS, TimeUnit.MILLISECONDS));
+    assertEquals("result of c", results.get(2).get(WINDOW_MS, TimeUnit.MILLISECONDS));
+    assertEquals(1, myRequests.size());
+    assertSameElements(myRequests.get(0), "a", "b", "c");
+  }
+
+  public void testFullBatchStartsAnother() throws Exception {
+    ReadBatcher batcher = new ReadBatcher(WINDOW_MS, 2);
+    List<Future<String>> results = executeConcurrently(batcher, "a", "b", "c", "d");
+
+    for (int i = 0; i < results.size(); i++) {
+      assertEquals("result of " + "abcd".charAt(i), results.get(i).get(WINDOW_MS, TimeUnit.MILLISECONDS));
+    }
+    assertEquals(2, myRequests.size());
+    for (List<String> request : myRequests) {
+      assertEquals(2, request.size());
+    }
+  }
+
+  public void testFailedItemDoesNotFailOthers() throws Exception {
+    ReadBatcher batcher = new ReadBatcher(WINDOW_MS, 3);
+    List<Future<String>> results = executeConcurrently(batcher, "a", "bad", "c");
+
+    assertEquals("result of a", results.get(0).get(WINDOW_MS, TimeUnit.MILLISECONDS));
+    assertEquals("result of c", results.get(2).get(WINDOW_MS, TimeUnit.MILLISECONDS));
+    try {
+      results.get(1).get(WINDOW_MS, TimeUnit.MILLISECONDS);
+      fail("request for a bad item should fail");
+    }
+    catch (ExecutionException e) {
+      assertInstanceOf(e.getCause(), TfsException.class);
+      assertEquals("bad item", e.getCause().getMessage());
+    }
+    // merged request and then every item separately
+    assertEquals(4, myRequests.size());
+    assertSameElements(myRequests.get(0), "a", "bad", "c");
+    assertSameElements(myRequests.subList(1, 4), Collections.singletonList("a"), Collections.singletonList("bad"),
+                       Collections.singletonList("c"));
+  }
+
+  public void testPrioritiesBatchedSeparately() throws Exception {
+    ReadBatcher batcher = new ReadBatcher(300, 2);
+    Future<String> interactive =
+      ApplicationManager.getApplication().executeOnPooledThread(() -> batcher.execute("key", "a", this::request));
+    Future<String> background = ApplicationManager.getApplication().executeOnPooledThread(
+      () -> RequestPriority.computeInBackground(() -> batcher.execute("key", "b", this::request)));
+
+    assertEquals("result of a", interactive.get(WINDOW_MS, TimeUnit.MILLISECONDS));
+    assertEquals("result of b", background.get(WINDOW_MS, TimeUnit.MILLISECONDS));
+    assertEquals(2, myRequests.size());
+  }
+
+  public void testNotBatchedWithoutWindow() throws Exception {
+    ReadBatcher batcher = new ReadBatcher(0, 3);
+    List<Future<String>> results = executeConcurrently(batcher, "a", "b");
+
+    assertEquals("result of a", results.get(0).get(WINDOW_MS, TimeUnit.MILLISECONDS));
+    assertEquals("result of b", results.get(1).get(WINDOW_MS, TimeUnit.MILLISECONDS));
+    assertEquals(2, myRequests.size());
+  }
+
+  private List<Future<String>> executeConcurrently(final ReadBatcher batcher, String... items) {
+    List<Future<String>> result = new ArrayList<>();
+    for (final String item : items) {
+      result.add(ApplicationManager.getApplication().executeOnPooledThread(() -> batcher.execute("key", item, this::request)));
+    }
+    return result;
+  }
+
+  // server fails the whole request if any of the items is bad
+  private List<String> request(List<String> items) throws TfsException {
+    myRequests.add(items);
+    if (items.contains("bad")) {
+      throw new TfsException("bad item");
+    }
+    List<String> results = new ArrayList<>();
+    for (String item : items) {
+      results.add("result of " + item);
+    }
+    return results;
+  }
+}
@@ -0,0 +1,100 @@
+package org.jetbrains.tfsIntegration.core.tfs;
+
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.progress.EmptyProgressIndicator;
+import com.intellij.openapi.progress.ProcessCanceledException;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.util.Ref;
+import com.intellij.testFramework.fixtures.BasePlatformTestCase;
+import com.intellij.util.TimeoutUtil;
+import org.jetbrains.tfsIntegration.core.TfsTrace;
+import org.jetbrains.tfsIntegration.exceptions.TfsException;
+import org.jetbrains.tfsIntegration.webservice.RequestPriority;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+public class VersionControlServerAsyncTest extends BasePlatformTestCase {
+  private static final long TIMEOUT_MS = 10000;
+
+  private final CountDownLatch myCallStarted = new CountDownLatch(1);
+  private final CountDownLatch myCallEnded = new CountDownLatch(1);
+
+  @Override
+  protected boolean runInDispatchThread() {
+    // async calls are made from background threads
+    return false;
+  }
+
+  public void testCompletes() throws Exception {
+    assertEquals("result", VersionControlServer.executeAsync(() -> "result").get(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+
+    // request priority and correlation id of the caller are passed to the pooled thread
+    CompletableFuture<String> context = TfsTrace.computeInScope(() -> RequestPriority.computeInBackground(() -> {
+      long correlationId = TfsTrace.getCorrelationId();
+      return VersionControlServer.executeAsync(() -> RequestPriority.getCurrent() + " " + (TfsTrace.getCorrelationId() == correlationId));
+    }));
+    assertEquals(RequestPriority.BACKGROUND + " true", context.get(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+
+    TfsException error = new TfsException("failed");
+    try {
+      VersionControlServer.executeAsync(() -> {
+        throw error;
+      }).get(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+      fail("failed call should complete the future exceptionally");
+    }
+    catch (ExecutionException e) {
+      assertSame(error, e.getCause());
+    }
+  }
+
+  public void testCallerCancellationCancelsCall() throws Exception {
+    EmptyProgressIndicator caller = new EmptyProgressIndicator();
+    Ref<CompletableFuture<Object>> future = new Ref<>();
+    ApplicationManager.getApplication().executeOnPooledThread(
+      () -> ProgressManager.getInstance().runProcess(() -> future.set(VersionControlServer.executeAsync(this::call)), caller))
+      .get(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+    assertTrue("call did not start", myCallStarted.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+
+    caller.cancel();
+    assertTrue("call was not cancelled", myCallEnded.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+    try {
+      future.get().get(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+      fail("cancelled call should complete the future exceptionally");
+    }
+    catch (ExecutionException e) {
+      assertInstanceOf(e.getCause(), ProcessCanceledException.class);
+    }
+  }
+
+  public void testFutureCancellationCancelsCall() throws Exception {
+    CompletableFuture<Object> future = VersionControlServer.executeAsync(this::call);
+    assertTrue("call did not start", myCallStarted.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+
+    assertTrue(future.cancel(true));
+    assertTrue("call was not cancelled", myCallEnded.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+    try {
+      future.get();
+      fail("future was cancelled");
+    }
+    catch (CancellationException ignored) {
+    }
+  }
+
+  // blocks until cancelled, as a request waiting for the server does
+  private Object call() {
+    myCallStarted.countDown();
+    try {
+      while (true) {
+        ProgressManager.checkCanceled();
+        TimeoutUtil.sleep(10);
+      }
+    }
+    finally {
+      myCallEnded.countDown();
+    }
+  }
+}
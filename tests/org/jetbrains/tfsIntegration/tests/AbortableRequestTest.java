@@ -0,0 +1,154 @@
+package org.jetbrains.tfsIntegration.tests;
+
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.progress.EmptyProgressIndicator;
+import com.intellij.openapi.progress.ProcessCanceledException;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.util.Ref;
+import com.intellij.testFramework.fixtures.BasePlatformTestCase;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.commons.httpclient.HttpClient;
+import org.apache.commons.httpclient.HttpStatus;
+import org.apache.commons.httpclient.methods.GetMethod;
+import org.jetbrains.tfsIntegration.core.configuration.Credentials;
+import org.jetbrains.tfsIntegration.core.configuration.TFSConfigurationManager;
+import org.jetbrains.tfsIntegration.exceptions.TfsException;
+import org.jetbrains.tfsIntegration.exceptions.UserCancelledException;
+import org.jetbrains.tfsIntegration.webservice.TfsRequestManager;
+import org.jetbrains.tfsIntegration.webservice.WebServiceHelper;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cancellation of a request to a local stand-in server that never responds: the call must end and give the server lock up
+ * without waiting for the response.
+ */
+public class AbortableRequestTest extends BasePlatformTestCase {
+  private static final long TIMEOUT_MS = 10000;
+  private static final long PROMPT_MS = 2000;
+
+  private HttpServer myServer;
+  private URI myServerUri;
+  private final CountDownLatch myRequestReceived = new CountDownLatch(1);
+  private final CountDownLatch myResponseReleased = new CountDownLatch(1);
+
+  @Override
+  protected boolean runInDispatchThread() {
+    // requests made in the dispatch thread run under modal progress
+    return false;
+  }
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    myServer = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    myServer.createContext("/", this::handle);
+    myServer.setExecutor(Executors.newCachedThreadPool());
+    myServer.start();
+    myServerUri = new URI("http://localhost:" + myServer.getAddress().getPort() + "/tfs");
+    TFSConfigurationManager.getInstance()
+      .storeCredentials(myServerUri, new Credentials("user", "DOMAIN", "password", false, Credentials.Type.NtlmExplicit));
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    try {
+      myResponseReleased.countDown();
+      myServer.stop(0);
+      TFSConfigurationManager.getInstance().remove(myServerUri);
+    }
+    finally {
+      super.tearDown();
+    }
+  }
+
+  public void testCancellationEndsStalledRequest() throws Exception {
+    EmptyProgressIndicator indicator = new EmptyProgressIndicator();
+    Future<String> stalled = executeInBackground(new TfsRequestManager.Request<String>("stalled") {
+      @Override
+      public String execute(Credentials credentials, URI serverUri, ProgressIndicator pi) throws Exception {
+        return get(serverUri);
+      }
+    }, indicator);
+    assertTrue("request did not reach the server", myRequestReceived.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+
+    long start = System.currentTimeMillis();
+    indicator.cancel();
+    try {
+      stalled.get(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+      fail("cancelled request should fail");
+    }
+    catch (ExecutionException e) {
+      assertTrue(String.valueOf(e.getCause()),
+                 e.getCause() instanceof UserCancelledException || e.getCause() instanceof ProcessCanceledException);
+    }
+    long cancelled = System.currentTimeMillis() - start;
+    assertTrue("request ended " + cancelled + " ms after cancellation", cancelled < PROMPT_MS);
+
+    // the next request to the server does not wait for the stalled one
+    start = System.currentTimeMillis();
+    Future<String> next = executeInBackground(new TfsRequestManager.Request<String>("next") {
+      @Override
+      public String execute(Credentials credentials, URI serverUri, ProgressIndicator pi) {
+        return "done";
+      }
+    }, new EmptyProgressIndicator());
+    assertEquals("done", next.get(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+    long locked = System.currentTimeMillis() - start;
+    assertTrue("server lock was taken after " + locked + " ms", locked < PROMPT_MS);
+  }
+
+  private Future<String> executeInBackground(TfsRequestManager.Request<String> request, ProgressIndicator indicator) {
+    return ApplicationManager.getApplication().executeOnPooledThread(() -> {
+      Ref<String> result = new Ref<>();
+      Ref<TfsException> error = new Ref<>();
+      ProgressManager.getInstance().runProcess(() -> {
+        try {
+          result.set(TfsRequestManager.executeRequest(myServerUri, getProject(), request));
+        }
+        catch (TfsException e) {
+          error.set(e);
+        }
+      }, indicator);
+      if (!error.isNull()) {
+        throw error.get();
+      }
+      return result.get();
+    });
+  }
+
+  private static String get(URI serverUri) throws IOException {
+    // connections of the clients created by WebServiceHelper are closed when the request is cancelled
+    HttpClient httpClient = WebServiceHelper.createHttpClient();
+    GetMethod method = new GetMethod(serverUri + "/item");
+    try {
+      httpClient.executeMethod(method);
+      return method.getResponseBodyAsString();
+    }
+    finally {
+      method.releaseConnection();
+    }
+  }
+
+  private void handle(HttpExchange exchange) throws IOException {
+    exchange.getRequestBody().close();
+    myRequestReceived.countDown();
+    try {
+      myResponseReleased.await();
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    exchange.sendResponseHeaders(HttpStatus.SC_OK, -1);
+    exchange.close();
+  }
+}
@@ -0,0 +1,53 @@
+package org.jetbrains.tfsIntegration.tests;
+
+import junit.framework.TestCase;
+import org.jetbrains.tfsIntegration.core.tfs.CanonicalPath;
+
+public class CanonicalPathTest extends TestCase {
+
+  public void testServerPaths() {
+    CanonicalPath root = CanonicalPath.server("$/");
+    CanonicalPath project = CanonicalPath.server("$/Project/");
+    CanonicalPath file = CanonicalPath.server("$/project/Folder/File.txt");
+
+    assertSame(CanonicalPath.server("$/Project/"), project);
+    assertEquals("$/Project", project.getPath());
+    assertTrue(root.isRoot());
+    assertNull(root.getParent());
+    assertEquals("$/", CanonicalPath.server("$/Project").getParent().getPath());
+    assertEquals("$/project/Folder", file.getParent().getPath());
+    assertEquals("$/Project/Sub", project.getChild("Sub").getPath());
+    assertEquals("$/a", root.getChild("a").getPath());
+
+    assertTrue(root.isAncestorOf(file, true));
+    assertTrue(project.isAncestorOf(file, true));
+    assertTrue(project.isAncestorOf(CanonicalPath.server("$/PROJECT"), false));
+    assertFalse(project.isAncestorOf(CanonicalPath.server("$/PROJECT"), true));
+    assertFalse(project.isAncestorOf(CanonicalPath.server("$/Project2/a"), false));
+    assertTrue(project.isEquivalent(CanonicalPath.server("$/project")));
+    assertFalse(project.equals(CanonicalPath.server("$/project")));
+
+    assertEquals("Folder/File.txt", project.getRelativePath(file));
+    assertEquals("project/Folder/File.txt", root.getRelativePath(file));
+    assertEquals("", project.getRelativePath(CanonicalPath.server("$/project")));
+    assertNull(file.getRelativePath(project));
+
+    assertEquals(4, file.getComponents().length);
+    assertEquals("file.txt", file.getFoldedComponents()[3]);
+    assertEquals("File.txt", file.getName());
+  }
+
+  public void testLocalPaths() {
+    CanonicalPath base = CanonicalPath.local("/home/user/work/");
+    CanonicalPath file = CanonicalPath.local("/home/user/work/src/A.java");
+
+    assertEquals("/home/user/work", base.getPath());
+    assertEquals("src/A.java", base.getRelativePath(file));
+    assertTrue(CanonicalPath.local("/").isAncestorOf(file, true));
+    assertFalse(CanonicalPath.local("/home/user/wo").isAncestorOf(file, false));
+    assertEquals("/", CanonicalPath.local("/home").getParent().getPath());
+    assertEquals("C:/", CanonicalPath.local("C:\\Work").getParent().getPath());
+    assertEquals("C:/Work/src", CanonicalPath.local("C:\\Work\\src\\").getPath());
+    assertFalse(base.isEquivalent(CanonicalPath.server("/home/user/work")));
+  }
+}
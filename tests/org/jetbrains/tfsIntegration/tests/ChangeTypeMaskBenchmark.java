@@ -0,0 +1,48 @@
+package org.jetbrains.tfsIntegration.tests;
+
+import com.microsoft.schemas.teamfoundation._2005._06.versioncontrol.clientservices._03.ChangeType;
+import com.microsoft.schemas.teamfoundation._2005._06.versioncontrol.clientservices._03.ChangeType_type0;
+import org.jetbrains.tfsIntegration.core.tfs.ChangeTypeMask;
+
+/**
+ * Compares speed of {@link ChangeTypeMask} and the former array based implementation on the checks status computation
+ * ({@code StatusProvider} and {@code ChangelistBuilderStatusVisitor}) does for every pending change of a workspace with a realistic
+ * mix of change types. Not a part of the test suite, since timings depend on the machine: run manually.
+ */
+@SuppressWarnings("UseOfSystemOutOrSystemErr")
+public class ChangeTypeMaskBenchmark {
+
+  private static final int CHANGES_COUNT = 100000;
+  private static final int ITERATIONS = 20;
+
+  public static void main(String[] args) {
+    ChangeType_type0[][] changes = ChangeTypeMaskTest.generateChanges(CHANGES_COUNT);
+    ChangeType[] beans = new ChangeType[changes.length];
+    for (int i = 0; i < changes.length; i++) {
+      beans[i] = ChangeTypeMaskTest.createChangeType(changes[i]);
+    }
+
+    // best of several runs, so that the first ones warm up the JIT
+    long arrayTime = Long.MAX_VALUE;
+    long bitSetTime = Long.MAX_VALUE;
+    int checksum = 0;
+    for (int iteration = 0; iteration < ITERATIONS; iteration++) {
+      long start = System.nanoTime();
+      for (ChangeType bean : beans) {
+        checksum += new ChangeTypeMaskTest.ArrayMask(bean.getChangeType_type0()).evaluate();
+      }
+      arrayTime = Math.min(arrayTime, System.nanoTime() - start);
+
+      start = System.nanoTime();
+      for (ChangeType bean : beans) {
+        checksum -= ChangeTypeMaskTest.evaluate(new ChangeTypeMask(bean));
+      }
+      bitSetTime = Math.min(bitSetTime, System.nanoTime() - start);
+    }
+    if (checksum != 0) {
+      throw new AssertionError("Implementations disagree");
+    }
+    System.out.println(String.format("%d pending changes: array %d us, bit set %d us", CHANGES_COUNT, arrayTime / 1000,
+                                     bitSetTime / 1000));
+  }
+}
@@ -0,0 +1,139 @@
+package org.jetbrains.tfsIntegration.tests;
+
+import com.intellij.util.ArrayUtil;
+import com.microsoft.schemas.teamfoundation._2005._06.versioncontrol.clientservices._03.ChangeType;
+import com.microsoft.schemas.teamfoundation._2005._06.versioncontrol.clientservices._03.ChangeType_type0;
+import junit.framework.TestCase;
+import org.jetbrains.tfsIntegration.core.tfs.ChangeTypeMask;
+
+import java.util.Random;
+
+/**
+ * Checks that {@link ChangeTypeMask} behaves as the former array based implementation on the sequence of checks status
+ * computation does for every pending change. See {@link ChangeTypeMaskBenchmark} for their speed.
+ */
+public class ChangeTypeMaskTest extends TestCase {
+
+  // realistic distribution of pending changes in a workspace: mostly edits, some adds, deletes, renames, merges and locks
+  private static final ChangeType_type0[][] DISTRIBUTION = {
+    {ChangeType_type0.Edit}, {ChangeType_type0.Edit}, {ChangeType_type0.Edit}, {ChangeType_type0.Edit}, {ChangeType_type0.Edit},
+    {ChangeType_type0.Edit}, {ChangeType_type0.Edit}, {ChangeType_type0.Edit, ChangeType_type0.Lock},
+    {ChangeType_type0.Add, ChangeType_type0.Edit, ChangeType_type0.Encoding},
+    {ChangeType_type0.Add, ChangeType_type0.Encoding},
+    {ChangeType_type0.Delete}, {ChangeType_type0.Delete, ChangeType_type0.Lock},
+    {ChangeType_type0.Rename}, {ChangeType_type0.Edit, ChangeType_type0.Rename},
+    {ChangeType_type0.Merge, ChangeType_type0.Edit}, {ChangeType_type0.Branch, ChangeType_type0.Merge, ChangeType_type0.Encoding},
+    {ChangeType_type0.Undelete, ChangeType_type0.Edit}, {ChangeType_type0.None}, {}};
+
+  public void testSameBehaviourAsArrayImplementation() {
+    ChangeType_type0[][] changes = generateChanges(1000);
+    for (ChangeType_type0[] change : changes) {
+      ChangeTypeMask mask = new ChangeTypeMask(createChangeType(change));
+      ArrayMask arrayMask = new ArrayMask(change);
+      assertEquals(arrayMask.evaluate(), evaluate(mask));
+    }
+
+    ChangeTypeMask undefined = new ChangeTypeMask((ChangeType)null);
+    assertTrue(undefined.isEmpty());
+    assertFalse(undefined.containsAll());
+    assertFalse(undefined.containsOnly());
+    assertTrue(new ChangeTypeMask(createChangeType()).containsOnly());
+    assertEquals("Add,Edit", new ChangeTypeMask(createChangeType(ChangeType_type0.Edit, ChangeType_type0.Add)).toString());
+  }
+
+  // same checks as StatusProvider.determineServerStatus() does
+  static int evaluate(ChangeTypeMask change) {
+    change.remove(ChangeType_type0.None, ChangeType_type0.Lock);
+    int result = change.isEmpty() ? 1 : 0;
+    result = result * 2 + (change.containsAny(ChangeType_type0.Add) ? 1 : 0);
+    result = result * 2 + (change.containsAny(ChangeType_type0.Merge, ChangeType_type0.Branch) ? 1 : 0);
+    result = result * 2 + (change.containsAny(ChangeType_type0.Encoding) ? 1 : 0);
+    result = result * 2 + (change.contains(ChangeType_type0.Delete) ? 1 : 0);
+    result = result * 2 + (change.containsAny(ChangeType_type0.Edit, ChangeType_type0.Merge) ? 1 : 0);
+    result = result * 2 + (change.contains(ChangeType_type0.Rename) ? 1 : 0);
+    result = result * 2 + (change.containsOnly(ChangeType_type0.Rename) ? 1 : 0);
+    result = result * 2 + (change.containsAll(ChangeType_type0.Edit, ChangeType_type0.Rename) ? 1 : 0);
+    result = result * 2 + (change.contains(ChangeType_type0.Undelete) ? 1 : 0);
+    return result * 16 + change.size();
+  }
+
+  static ChangeType_type0[][] generateChanges(int count) {
+    Random random = new Random(count);
+    ChangeType_type0[][] result = new ChangeType_type0[count][];
+    for (int i = 0; i < count; i++) {
+      result[i] = DISTRIBUTION[random.nextInt(DISTRIBUTION.length)];
+    }
+    return result;
+  }
+
+  static ChangeType createChangeType(ChangeType_type0... values) {
+    ChangeType changeType = new ChangeType();
+    changeType.setChangeType_type0(values);
+    return changeType;
+  }
+
+  // former implementation, kept as the reference
+  static class ArrayMask {
+    private ChangeType_type0[] myValues;
+
+    ArrayMask(ChangeType_type0[] values) {
+      myValues = values;
+    }
+
+    int evaluate() {
+      remove(ChangeType_type0.None, ChangeType_type0.Lock);
+      int result = isEmpty() ? 1 : 0;
+      result = result * 2 + (containsAny(ChangeType_type0.Add) ? 1 : 0);
+      result = result * 2 + (containsAny(ChangeType_type0.Merge, ChangeType_type0.Branch) ? 1 : 0);
+      result = result * 2 + (containsAny(ChangeType_type0.Encoding) ? 1 : 0);
+      result = result * 2 + (containsAny(ChangeType_type0.Delete) ? 1 : 0);
+      result = result * 2 + (containsAny(ChangeType_type0.Edit, ChangeType_type0.Merge) ? 1 : 0);
+      result = result * 2 + (containsAny(ChangeType_type0.Rename) ? 1 : 0);
+      result = result * 2 + (containsOnly(ChangeType_type0.Rename) ? 1 : 0);
+      result = result * 2 + (containsAll(ChangeType_type0.Edit, ChangeType_type0.Rename) ? 1 : 0);
+      result = result * 2 + (containsAny(ChangeType_type0.Undelete) ? 1 : 0);
+      return result * 16 + (myValues != null ? myValues.length : 0);
+    }
+
+    boolean containsAll(ChangeType_type0... values) {
+      if (myValues == null) {
+        return false;
+      }
+      for (ChangeType_type0 value : values) {
+        if (!ArrayUtil.contains(value, myValues)) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    boolean containsAny(ChangeType_type0... values) {
+      if (myValues == null) {
+        return false;
+      }
+      for (ChangeType_type0 value : values) {
+        if (ArrayUtil.contains(value, myValues)) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    boolean containsOnly(ChangeType_type0... values) {
+      return myValues != null && myValues.length == values.length && containsAll(values);
+    }
+
+    void remove(ChangeType_type0... values) {
+      if (myValues == null) {
+        return;
+      }
+      for (ChangeType_type0 value : values) {
+        myValues = ArrayUtil.remove(myValues, value);
+      }
+    }
+
+    boolean isEmpty() {
+      return myValues == null || myValues.length == 0;
+    }
+  }
+}
@@ -0,0 +1,126 @@
+package org.jetbrains.tfsIntegration.tests;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import jcifs.ntlmssp.Type1Message;
+import jcifs.ntlmssp.Type2Message;
+import jcifs.util.Base64;
+import junit.framework.TestCase;
+import org.apache.commons.httpclient.HttpClient;
+import org.apache.commons.httpclient.HttpStatus;
+import org.apache.commons.httpclient.NTCredentials;
+import org.apache.commons.httpclient.auth.AuthScope;
+import org.apache.commons.httpclient.methods.GetMethod;
+import org.jetbrains.tfsIntegration.webservice.WebServiceHelper;
+import org.jetbrains.tfsIntegration.webservice.auth.NTLM2Scheme;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Requests to a local stand-in server that, like IIS, authenticates connections rather than requests with NTLM.
+ */
+public class NtlmConnectionReuseTest extends TestCase {
+  private static final int REQUESTS = 5;
+
+  private HttpServer myServer;
+  private final Set<SocketAddress> myConnections = ConcurrentHashMap.newKeySet();
+  private final Set<SocketAddress> myAuthenticatedConnections = ConcurrentHashMap.newKeySet();
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    myServer = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    myServer.createContext("/", this::handle);
+    myServer.start();
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    myServer.stop(0);
+    super.tearDown();
+  }
+
+  public void testHandshakeOncePerConnection() throws IOException {
+    HttpClient httpClient = createClient();
+    long handshakes = NTLM2Scheme.getHandshakeCount();
+
+    for (int i = 0; i < REQUESTS; i++) {
+      assertEquals(HttpStatus.SC_OK, get(httpClient));
+    }
+
+    assertEquals(1, NTLM2Scheme.getHandshakeCount() - handshakes);
+    assertEquals(1, myConnections.size());
+  }
+
+  public void testHandshakeAfterConnectionClosed() throws IOException {
+    HttpClient httpClient = createClient();
+    long handshakes = NTLM2Scheme.getHandshakeCount();
+
+    assertEquals(HttpStatus.SC_OK, get(httpClient));
+    // what happens when credentials change
+    httpClient.getHttpConnectionManager().closeIdleConnections(0);
+    assertEquals(HttpStatus.SC_OK, get(httpClient));
+
+    assertEquals(2, NTLM2Scheme.getHandshakeCount() - handshakes);
+    assertEquals(2, myConnections.size());
+  }
+
+  private static HttpClient createClient() {
+    HttpClient httpClient = WebServiceHelper.createHttpClient();
+    httpClient.getState().setCredentials(AuthScope.ANY, new NTCredentials("user", "password", "localhost", "DOMAIN"));
+    return httpClient;
+  }
+
+  private int get(HttpClient httpClient) throws IOException {
+    GetMethod method = new GetMethod("http://localhost:" + myServer.getAddress().getPort() + "/item");
+    try {
+      int statusCode = httpClient.executeMethod(method);
+      method.getResponseBody();
+      return statusCode;
+    }
+    finally {
+      method.releaseConnection();
+    }
+  }
+
+  private void handle(HttpExchange exchange) throws IOException {
+    SocketAddress connection = exchange.getRemoteAddress();
+    myConnections.add(connection);
+    exchange.getRequestBody().close();
+
+    String authorization = exchange.getRequestHeaders().getFirst("Authorization");
+    if (authorization != null && authorization.startsWith("NTLM ")) {
+      byte[] message = Base64.decode(authorization.substring("NTLM ".length()));
+      if (message[8] == 1) {
+        Type2Message type2 =
+          new Type2Message(Type2Message.getDefaultFlags(new Type1Message(message)), new byte[]{1, 2, 3, 4, 5, 6, 7, 8}, "STANDIN");
+        type2.setTargetInformation(new byte[4]);
+        exchange.getResponseHeaders().add("WWW-Authenticate", "NTLM " + Base64.encode(type2.toByteArray()));
+        exchange.sendResponseHeaders(HttpStatus.SC_UNAUTHORIZED, -1);
+        exchange.close();
+        return;
+      }
+      // type 3 message: the connection is authenticated from now on
+      myAuthenticatedConnections.add(connection);
+    }
+
+    if (!myAuthenticatedConnections.contains(connection)) {
+      exchange.getResponseHeaders().add("WWW-Authenticate", "NTLM");
+      exchange.sendResponseHeaders(HttpStatus.SC_UNAUTHORIZED, -1);
+      exchange.close();
+      return;
+    }
+
+    byte[] body = "content".getBytes(StandardCharsets.UTF_8);
+    exchange.sendResponseHeaders(HttpStatus.SC_OK, body.length);
+    try (OutputStream out = exchange.getResponseBody()) {
+      out.write(body);
+    }
+  }
+}
@@ -0,0 +1,110 @@
+package org.jetbrains.tfsIntegration.tests;
+
+import com.microsoft.schemas.teamfoundation._2005._06.versioncontrol.clientservices._03.*;
+import junit.framework.TestCase;
+import org.jetbrains.tfsIntegration.core.tfs.ExtendedItemInfo;
+import org.jetbrains.tfsIntegration.core.tfs.PendingChangeInfo;
+
+import java.util.*;
+
+/**
+ * Checks that compact copies of raw server beans of a large workspace status refresh keep the values status computation needs
+ * and share equal server paths instead of retaining a separate string for every attribute of every bean.
+ * See {@link ServerItemMemoryBenchmark} for the heap they retain.
+ */
+public class ServerItemInfoTest extends TestCase {
+
+  private static final int ITEMS_COUNT = 5000;
+  private static final int PENDING_CHANGES_PERCENT = 10;
+
+  public void testCompactRecordsShareServerPaths() {
+    List<Object> beans = createBeans(ITEMS_COUNT);
+    Set<String> paths = new HashSet<>();
+    Set<String> retainedPaths = Collections.newSetFromMap(new IdentityHashMap<>());
+    ExtendedItemInfo lastItem = null;
+    for (Object bean : beans) {
+      if (bean instanceof ExtendedItem) {
+        ExtendedItem item = (ExtendedItem)bean;
+        ExtendedItemInfo info = ExtendedItemInfo.from(item);
+        assertEquals(item.getItemid(), info.getItemId());
+        assertEquals(item.getLver(), info.getLocalVersion());
+        assertEquals(item.getLatest(), info.getLatestVersion());
+        assertFalse(info.isFolder());
+        assertEquals(item.getTitem(), info.getTargetItem());
+        assertSame(info.getTargetItem(), info.getSourceItem());
+        assertEquals(item.getChg().getChangeType_type0()[0] == ChangeType_type0.Edit, info.getChange().contains(ChangeType_type0.Edit));
+        paths.add(item.getTitem());
+        retainedPaths.add(info.getSourceItem());
+        retainedPaths.add(info.getTargetItem());
+        lastItem = info;
+      }
+      else {
+        PendingChange pendingChange = (PendingChange)bean;
+        PendingChangeInfo info = PendingChangeInfo.from(pendingChange);
+        assertNotNull(lastItem);
+        assertEquals(lastItem.getItemId(), info.getItemId());
+        assertEquals(pendingChange.getVer(), info.getVersion());
+        assertEquals(lastItem.getLocal(), info.getLocal());
+        assertSame(lastItem.getTargetItem(), info.getItem());
+        assertSame(lastItem.getTargetItem(), info.getSourceItem());
+        assertTrue(info.getChange().containsAll(ChangeType_type0.Edit, ChangeType_type0.Encoding));
+        retainedPaths.add(info.getSourceItem());
+        retainedPaths.add(info.getItem());
+      }
+    }
+    assertEquals(ITEMS_COUNT, paths.size());
+    assertEquals(paths.size(), retainedPaths.size());
+  }
+
+  /**
+   * @return {@link ExtendedItem}s of a status refresh, each followed by its {@link PendingChange} if the item is changed
+   */
+  static List<Object> createBeans(int count) {
+    List<Object> result = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      // server sends a separate string instance for every attribute
+      String serverPath = "$/Project/Main/src/module" + i % 50 + "/package" + i % 400 + "/File" + i + ".java";
+      String localPath = "C:\\Work\\Project\\Main\\src\\module" + i % 50 + "\\package" + i % 400 + "\\File" + i + ".java";
+      boolean changed = i % 100 < PENDING_CHANGES_PERCENT;
+
+      ExtendedItem item = new ExtendedItem();
+      item.setItemid(i);
+      item.setType(ItemType.File);
+      item.setLver(1000 + i % 7);
+      item.setLatest(1000 + i % 7);
+      item.setDid(0);
+      item.setEnc(65001);
+      item.setLocal(localPath);
+      item.setSitem(new String(serverPath));
+      item.setTitem(new String(serverPath));
+      item.setChg(createChangeType(changed ? ChangeType_type0.Edit : ChangeType_type0.None));
+      item.setLock(LockLevel.None);
+      item.setIsBranch(false);
+      item.setDate(Calendar.getInstance());
+      result.add(item);
+
+      if (changed) {
+        PendingChange pendingChange = new PendingChange();
+        pendingChange.setItemid(i);
+        pendingChange.setType(ItemType.File);
+        pendingChange.setVer(item.getLver());
+        pendingChange.setEnc(65001);
+        pendingChange.setLocal(new String(localPath));
+        pendingChange.setItem(new String(serverPath));
+        pendingChange.setSrcitem(new String(serverPath));
+        pendingChange.setChg(createChangeType(ChangeType_type0.Edit, ChangeType_type0.Encoding));
+        pendingChange.setLock(LockLevel.None);
+        pendingChange.setDate(Calendar.getInstance());
+        pendingChange.setLen(1024 + i);
+        result.add(pendingChange);
+      }
+    }
+    return result;
+  }
+
+  private static ChangeType createChangeType(ChangeType_type0... values) {
+    ChangeType changeType = new ChangeType();
+    changeType.setChangeType_type0(values);
+    return changeType;
+  }
+}
@@ -0,0 +1,60 @@
+package org.jetbrains.tfsIntegration.tests;
+
+import com.microsoft.schemas.teamfoundation._2005._06.versioncontrol.clientservices._03.ExtendedItem;
+import com.microsoft.schemas.teamfoundation._2005._06.versioncontrol.clientservices._03.PendingChange;
+import org.jetbrains.tfsIntegration.core.tfs.ExtendedItemInfo;
+import org.jetbrains.tfsIntegration.core.tfs.PendingChangeInfo;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compares heap retained by raw server beans of a status refresh and by their compact copies, {@link ExtendedItemInfo} and
+ * {@link PendingChangeInfo}. Not a part of the test suite, since heap usage depends on the JVM and the collector: run manually,
+ * preferably with a fixed heap size ({@code -Xms1g -Xmx1g}).
+ */
+@SuppressWarnings("UseOfSystemOutOrSystemErr")
+public class ServerItemMemoryBenchmark {
+
+  private static final int ITEMS_COUNT = 5000;
+  private static final int ROUNDS = 10;
+
+  public static void main(String[] args) {
+    // warm up class loading and interning of the compact records
+    compact(ServerItemInfoTest.createBeans(ITEMS_COUNT));
+
+    long before = usedMemory();
+    List<List<Object>> beans = new ArrayList<>(ROUNDS);
+    for (int i = 0; i < ROUNDS; i++) {
+      beans.add(ServerItemInfoTest.createBeans(ITEMS_COUNT));
+    }
+    long beansSize = usedMemory() - before;
+
+    List<List<Object>> infos = new ArrayList<>(ROUNDS);
+    for (List<Object> round : beans) {
+      infos.add(compact(round));
+    }
+    //noinspection UnusedAssignment
+    beans = null;
+    long infosSize = usedMemory() - before;
+
+    System.out.println(String.format("Retained per %d items: beans %d KB, compact records %d KB (%d records)", ITEMS_COUNT,
+                                     beansSize / ROUNDS / 1024, infosSize / ROUNDS / 1024, infos.get(0).size()));
+  }
+
+  private static List<Object> compact(List<Object> beans) {
+    List<Object> result = new ArrayList<>(beans.size());
+    for (Object bean : beans) {
+      result.add(bean instanceof ExtendedItem ? ExtendedItemInfo.from((ExtendedItem)bean) : PendingChangeInfo.from((PendingChange)bean));
+    }
+    return result;
+  }
+
+  private static long usedMemory() {
+    Runtime runtime = Runtime.getRuntime();
+    for (int i = 0; i < 5; i++) {
+      System.gc();
+    }
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+}
@@ -0,0 +1,63 @@
+package org.jetbrains.tfsIntegration.tests;
+
+import junit.framework.TestCase;
+import org.jetbrains.tfsIntegration.webservice.LatencyHistogram;
+import org.jetbrains.tfsIntegration.webservice.RequestPriority;
+import org.jetbrains.tfsIntegration.webservice.TfsRequestMetrics;
+
+import java.net.URI;
+
+public class TfsRequestMetricsTest extends TestCase {
+
+  @Override
+  protected void tearDown() throws Exception {
+    TfsRequestMetrics.getInstance().reset();
+    super.tearDown();
+  }
+
+  public void testHistogram() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    assertEquals(0, histogram.getPercentileMs(50));
+
+    for (int i = 0; i < 98; i++) {
+      histogram.record(3);
+    }
+    histogram.record(150);
+    histogram.record(7000);
+
+    assertEquals(100, histogram.getCount());
+    assertEquals(98 * 3 + 150 + 7000, histogram.getSumMs());
+    assertEquals(7000, histogram.getMaxMs());
+    assertEquals(5, histogram.getPercentileMs(50));
+    assertEquals(200, histogram.getPercentileMs(99));
+    assertEquals(7000, histogram.getPercentileMs(100));
+  }
+
+  public void testExport() throws Exception {
+    URI serverUri = new URI("http://tfs:8080/tfs/Collection");
+    TfsRequestMetrics.ServerMetrics server = TfsRequestMetrics.getInstance().getServer(serverUri);
+    server.requestExecuted(RequestPriority.INTERACTIVE, 10, 300, false);
+    server.chunkExecuted();
+    server.readRequested(false);
+    server.readRequested(true);
+    server.getOperation("queryItems").executed(120, 30, 2000, 50000, false);
+    server.getOperation(TfsRequestMetrics.DOWNLOAD).executed(40, -1, -1, 1024, true);
+
+    String[] lines = TfsRequestMetrics.getInstance().toCsv().split("\n");
+    assertEquals(4, lines.length);
+    int columns = lines[0].split(",", -1).length;
+    for (String line : lines) {
+      assertEquals(line, columns, line.split(",", -1).length);
+    }
+    assertTrue(lines[1], lines[1].startsWith("http://tfs:8080/tfs/Collection,*,1,0,1,,,10,"));
+    assertTrue(lines[1], lines[1].endsWith(",2,1,1,10,10,10,0,0,0,0"));
+    assertTrue(lines[2], lines[2].startsWith("http://tfs:8080/tfs/Collection,download,1,1,,0,1024,"));
+    assertTrue(lines[3], lines[3].startsWith("http://tfs:8080/tfs/Collection,queryItems,1,0,,2000,50000,"));
+
+    String json = TfsRequestMetrics.getInstance().toJson();
+    assertTrue(json, json.contains("\"server\": \"http://tfs:8080/tfs/Collection\""));
+    assertTrue(json, json.contains("\"coalescedReads\": 1"));
+    assertTrue(json, json.contains("\"background\": {\"count\": 0"));
+    assertTrue(json, json.contains("\"name\": \"queryItems\", \"count\": 1, \"failures\": 0, \"bytesOut\": 2000, \"bytesIn\": 50000"));
+  }
+}
@@ -0,0 +1,141 @@
+package org.jetbrains.tfsIntegration.webservice;
+
+import com.intellij.openapi.progress.EmptyProgressIndicator;
+import com.intellij.openapi.progress.ProcessCanceledException;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.testFramework.fixtures.BasePlatformTestCase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class PriorityRequestLockTest extends BasePlatformTestCase {
+
+  private static final long TIMEOUT_MS = 10000;
+
+  private final PriorityRequestLock myLock = new PriorityRequestLock();
+  private final List<String> myOrder = Collections.synchronizedList(new ArrayList<>());
+
+  @Override
+  protected boolean runInDispatchThread() {
+    // waiting for the lock checks cancellation of the waiting thread
+    return false;
+  }
+
+  public void testInteractiveGoesFirst() throws Exception {
+    myLock.lock(RequestPriority.BACKGROUND);
+    Locker background = new Locker("background", RequestPriority.BACKGROUND);
+    Locker interactive = new Locker("interactive", RequestPriority.INTERACTIVE);
+    background.startAndAwaitWaiting();
+    interactive.startAndAwaitWaiting();
+    myLock.unlock();
+
+    background.finish();
+    interactive.finish();
+    assertEquals(Arrays.asList("interactive", "background"), myOrder);
+  }
+
+  public void testBackgroundDelayedAfterInteractive() {
+    myLock.lock(RequestPriority.INTERACTIVE);
+    myLock.unlock();
+
+    long start = System.currentTimeMillis();
+    myLock.lock(RequestPriority.BACKGROUND);
+    long waited = System.currentTimeMillis() - start;
+    myLock.unlock();
+    // the delay is counted from the end of the interactive request, which was a bit before the start
+    assertTrue("waited " + waited + " ms", waited >= PriorityRequestLock.BACKGROUND_DELAY_MS - 10);
+  }
+
+  public void testReentrant() throws Exception {
+    myLock.lock(RequestPriority.INTERACTIVE);
+    myLock.lock(RequestPriority.BACKGROUND);
+    Locker other = new Locker("other", RequestPriority.INTERACTIVE);
+    other.startAndAwaitWaiting();
+
+    myLock.unlock();
+    Thread.sleep(200);
+    assertTrue("lock should be held until the outer unlock", myOrder.isEmpty());
+
+    myLock.unlock();
+    other.finish();
+    assertEquals(Collections.singletonList("other"), myOrder);
+
+    try {
+      myLock.unlock();
+      fail("lock is not held by the thread");
+    }
+    catch (IllegalMonitorStateException ignored) {
+    }
+  }
+
+  public void testCancelWhileWaiting() throws Exception {
+    myLock.lock(RequestPriority.BACKGROUND);
+    EmptyProgressIndicator indicator = new EmptyProgressIndicator();
+    Locker cancelled = new Locker("cancelled", RequestPriority.INTERACTIVE, indicator);
+    cancelled.startAndAwaitWaiting();
+
+    indicator.cancel();
+    cancelled.join(TIMEOUT_MS);
+    assertFalse("cancelled waiting should end", cancelled.isAlive());
+    assertInstanceOf(cancelled.myFailure, ProcessCanceledException.class);
+    myLock.unlock();
+
+    // cancelled interactive request does not keep background ones waiting
+    Locker background = new Locker("background", RequestPriority.BACKGROUND);
+    background.start();
+    background.finish();
+    assertEquals(Collections.singletonList("background"), myOrder);
+  }
+
+  private class Locker extends Thread {
+    private final RequestPriority myPriority;
+    private final ProgressIndicator myIndicator;
+    private volatile Throwable myFailure;
+
+    Locker(String name, RequestPriority priority) {
+      this(name, priority, new EmptyProgressIndicator());
+    }
+
+    Locker(String name, RequestPriority priority, ProgressIndicator indicator) {
+      super(name);
+      myPriority = priority;
+      myIndicator = indicator;
+    }
+
+    @Override
+    public void run() {
+      try {
+        ProgressManager.getInstance().runProcess(() -> {
+          myLock.lock(myPriority);
+          try {
+            myOrder.add(getName());
+          }
+          finally {
+            myLock.unlock();
+          }
+        }, myIndicator);
+      }
+      catch (Throwable e) {
+        myFailure = e;
+      }
+    }
+
+    void startAndAwaitWaiting() throws InterruptedException {
+      start();
+      long end = System.currentTimeMillis() + TIMEOUT_MS;
+      while (getState() != State.TIMED_WAITING) {
+        assertTrue(getName() + " does not wait for the lock", System.currentTimeMillis() < end);
+        Thread.sleep(10);
+      }
+    }
+
+    void finish() throws InterruptedException {
+      join(TIMEOUT_MS);
+      assertFalse(getName() + " did not get the lock", isAlive());
+      assertNull(myFailure);
+    }
+  }
+}
@@ -0,0 +1,171 @@
+package org.jetbrains.tfsIntegration.webservice;
+
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.testFramework.fixtures.BasePlatformTestCase;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.commons.httpclient.HttpStatus;
+import org.jetbrains.tfsIntegration.exceptions.ConnectionFailedException;
+import org.jetbrains.tfsIntegration.exceptions.UserCancelledException;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+public class ServerHealthTest extends BasePlatformTestCase {
+  private static final long MIN_BACKOFF_MS = 100;
+  private static final long MAX_BACKOFF_MS = 400;
+  private static final long TIMEOUT_MS = 10000;
+
+  private HttpServer myServer;
+  private volatile boolean myStalled;
+  private final CountDownLatch myProbeReceived = new CountDownLatch(1);
+  private final CountDownLatch myResponseReleased = new CountDownLatch(1);
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    myServer = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    myServer.createContext("/", this::handle);
+    myServer.setExecutor(Executors.newCachedThreadPool());
+    myServer.start();
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    try {
+      myResponseReleased.countDown();
+      myServer.stop(0);
+    }
+    finally {
+      super.tearDown();
+    }
+  }
+
+  public void testTripsAfterConsecutiveFailures() throws Exception {
+    ServerHealth health = createHealth(getServerUri());
+    health.requestFailed(new ConnectionFailedException(new ConnectException("Connection refused")));
+    health.requestFailed(new ConnectionFailedException(new ConnectException("Connection refused")));
+    // server did respond, even though with an error
+    health.requestFailed(new ConnectionFailedException(new IOException("Internal Server Error"), HttpStatus.SC_INTERNAL_SERVER_ERROR));
+    health.requestFailed(new ConnectionFailedException(new ConnectException("Connection refused")));
+    health.requestFailed(new ConnectionFailedException(new ConnectException("Connection refused")));
+    assertTrue(health.isAvailable());
+    health.checkAvailable();
+
+    health.requestFailed(new ConnectionFailedException(new ConnectException("Connection refused")));
+    assertFalse(health.isAvailable());
+    assertEquals(MIN_BACKOFF_MS, health.getBackoffMs());
+    assertUnavailable(health);
+  }
+
+  public void testBackoffDoublesWhileUnreachable() throws Exception {
+    URI serverUri = getServerUri();
+    myServer.stop(0);
+    ServerHealth health = createHealth(serverUri);
+    trip(health);
+
+    Thread.sleep(MIN_BACKOFF_MS);
+    // probe fails
+    assertUnavailable(health);
+    assertEquals(2 * MIN_BACKOFF_MS, health.getBackoffMs());
+    // no probe within backoff period
+    assertUnavailable(health);
+    assertEquals(2 * MIN_BACKOFF_MS, health.getBackoffMs());
+
+    Thread.sleep(2 * MIN_BACKOFF_MS);
+    assertUnavailable(health);
+    assertEquals(MAX_BACKOFF_MS, health.getBackoffMs());
+
+    Thread.sleep(MAX_BACKOFF_MS);
+    assertUnavailable(health);
+    assertEquals(MAX_BACKOFF_MS, health.getBackoffMs());
+  }
+
+  public void testResetWhenServerResponds() throws Exception {
+    ServerHealth health = createHealth(getServerUri());
+    trip(health);
+
+    Thread.sleep(MIN_BACKOFF_MS);
+    health.checkAvailable();
+    assertTrue(health.isAvailable());
+    assertEquals(0, health.getBackoffMs());
+  }
+
+  public void testProbeCancelledWithRequest() throws Exception {
+    myStalled = true;
+    ServerHealth health = createHealth(getServerUri());
+    trip(health);
+    Thread.sleep(MIN_BACKOFF_MS);
+
+    AbortableRequest request = new AbortableRequest();
+    Future<?> probe = ApplicationManager.getApplication().executeOnPooledThread(() -> AbortableRequest.computeWith(request, () -> {
+      health.checkAvailable();
+      return null;
+    }));
+    assertTrue("server was not probed", myProbeReceived.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+    long start = System.currentTimeMillis();
+    request.abort();
+    try {
+      probe.get(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+      fail("cancelled probe should fail");
+    }
+    catch (ExecutionException e) {
+      assertInstanceOf(e.getCause(), UserCancelledException.class);
+    }
+    long cancelled = System.currentTimeMillis() - start;
+    // probe timeout is 5 s
+    assertTrue("probe ended " + cancelled + " ms after cancellation", cancelled < 2000);
+
+    // cancelled probe does not count, the next request probes again
+    assertEquals(MIN_BACKOFF_MS, health.getBackoffMs());
+    myStalled = false;
+    health.checkAvailable();
+    assertTrue(health.isAvailable());
+  }
+
+  private static ServerHealth createHealth(URI serverUri) {
+    return new ServerHealth(serverUri, MIN_BACKOFF_MS, MAX_BACKOFF_MS);
+  }
+
+  private static void trip(ServerHealth health) {
+    while (health.isAvailable()) {
+      health.requestFailed(new ConnectionFailedException(new ConnectException("Connection refused")));
+    }
+  }
+
+  private static void assertUnavailable(ServerHealth health) throws Exception {
+    try {
+      health.checkAvailable();
+      fail("server should be considered unavailable");
+    }
+    catch (ConnectionFailedException e) {
+      assertFalse(health.isAvailable());
+    }
+  }
+
+  private URI getServerUri() throws Exception {
+    return new URI("http://localhost:" + myServer.getAddress().getPort() + "/tfs");
+  }
+
+  private void handle(HttpExchange exchange) throws IOException {
+    exchange.getRequestBody().close();
+    if (myStalled) {
+      myProbeReceived.countDown();
+      try {
+        myResponseReleased.await();
+      }
+      catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    exchange.sendResponseHeaders(HttpStatus.SC_NOT_FOUND, -1);
+    exchange.close();
+  }
+}